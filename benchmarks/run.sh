@@ -0,0 +1,25 @@
+#!/bin/bash
+
+# Builds the application + benchmarks and runs JMH, results go to benchmarks/results/<branch>-<commit>.json
+# Compare two branches by loading both files into https://jmh.morethan.io or any JSON tool.
+#
+# Extra arguments go to JMH, e.g.
+#   benchmarks/run.sh KafkaCodecBenchmark -prof gc
+#   benchmarks/run.sh -f 1 -wi 2 -i 3          (quick run)
+
+set -e
+
+cd "$(dirname "$0")/.."
+
+BRANCH=$(git rev-parse --abbrev-ref HEAD | tr '/' '-')
+COMMIT=$(git rev-parse --short HEAD)
+mkdir -p benchmarks/results
+
+mvn -B -q install -DskipTests
+mvn -B -q -f benchmarks/pom.xml package
+
+java -jar benchmarks/target/benchmarks.jar \
+  -rf json -rff "benchmarks/results/${BRANCH}-${COMMIT}.json" \
+  "$@"
+
+echo "Results: benchmarks/results/${BRANCH}-${COMMIT}.json"
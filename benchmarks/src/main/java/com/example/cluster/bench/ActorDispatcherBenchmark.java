@@ -0,0 +1,92 @@
+package com.example.cluster.bench;
+
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.testkit.typed.javadsl.ActorTestKit;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.DispatcherSelector;
+import org.apache.pekko.actor.typed.javadsl.AskPattern;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actors on the dispatchers of application.conf, started with ActorTestKit.
+ *
+ * One operation = one ask to each of the workers, all in flight at the same time, like a burst of cases.
+ * With blockMillis > 0 every message blocks like LogAnalysisActor / DeploymentMonitoringActor do,
+ * which shows what the virtual thread dispatchers buy compared to bench-platform-blocking-dispatcher
+ * (same size as the old platform pool of log-analysis-dispatcher).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ActorDispatcherBenchmark {
+
+    @Param({
+        "case-companion-dispatcher",
+        "log-analysis-dispatcher",
+        "deployment-monitoring-dispatcher",
+        "bench-platform-blocking-dispatcher"
+    })
+    public String dispatcher;
+
+    @Param({"0", "5"})
+    public int blockMillis;
+
+    @Param({"200"})
+    public int workers;
+
+    public static final class Work {
+        final ActorRef<Done> replyTo;
+
+        Work(ActorRef<Done> replyTo) {
+            this.replyTo = replyTo;
+        }
+    }
+
+    private ActorTestKit testKit;
+    private final List<ActorRef<Work>> workerRefs = new ArrayList<>();
+    private final Duration askTimeout = Duration.ofSeconds(30);
+
+    @Setup
+    public void setup() {
+        testKit = ActorTestKit.create("actor-dispatcher-benchmark", BenchmarkSystems.config());
+        DispatcherSelector selector = DispatcherSelector.fromConfig("pekko.actor.dispatchers." + dispatcher);
+        for (int i = 0; i < workers; i++) {
+            workerRefs.add(testKit.spawn(worker(blockMillis), "worker-" + i, selector));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        testKit.shutdownTestKit();
+    }
+
+    private static org.apache.pekko.actor.typed.Behavior<Work> worker(int blockMillis) {
+        return Behaviors.receiveMessage(work -> {
+            if (blockMillis > 0) {
+                Thread.sleep(blockMillis);
+            }
+            work.replyTo.tell(Done.getInstance());
+            return Behaviors.same();
+        });
+    }
+
+    @Benchmark
+    public void burst() throws Exception {
+        CompletableFuture<?>[] replies = new CompletableFuture<?>[workerRefs.size()];
+        for (int i = 0; i < replies.length; i++) {
+            replies[i] = AskPattern.<Work, Done>ask(workerRefs.get(i), Work::new, askTimeout, testKit.scheduler())
+                .toCompletableFuture();
+        }
+        CompletableFuture.allOf(replies).get(askTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
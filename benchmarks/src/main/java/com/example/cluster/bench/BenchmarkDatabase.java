@@ -0,0 +1,63 @@
+package com.example.cluster.bench;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Embedded Postgres with the pekko-persistence-jdbc schema of init-peekko.sql, like loadgen starts it,
+ * for the benchmarks that go through the real journal, snapshot store and durable state store.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+
+    private BenchmarkDatabase(EmbeddedPostgres postgres) {
+        this.postgres = postgres;
+    }
+
+    static BenchmarkDatabase start() throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        try {
+            createSchema(postgres);
+            return new BenchmarkDatabase(postgres);
+        } catch (Exception e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    private static void createSchema(EmbeddedPostgres postgres) throws Exception {
+        String schema;
+        try (InputStream in = BenchmarkDatabase.class.getResourceAsStream("/init-peekko.sql")) {
+            if (in == null) {
+                throw new IOException("init-peekko.sql is not on the classpath, build the module with maven");
+            }
+            schema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(schema);
+        }
+    }
+
+    // the shared slick database of all jdbc plugins, pointed at this Postgres
+    Config config() {
+        return ConfigFactory.parseString(
+            "pekko-persistence-jdbc.shared-databases.slick.db.url = \""
+                + postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true\"\n"
+                + "pekko-persistence-jdbc.shared-databases.slick.db.user = \"postgres\"\n"
+                + "pekko-persistence-jdbc.shared-databases.slick.db.password = \"\"\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        postgres.close();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.cluster.bench;
+
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actor systems for the benchmarks: the application config plus benchmark.conf
+ * (quiet logging, port 0, no seed nodes).
+ */
+final class BenchmarkSystems {
+
+    private BenchmarkSystems() {
+    }
+
+    static Config config() {
+        return ConfigFactory.load("benchmark");
+    }
+
+    static ActorSystem<Void> create(String name) {
+        return ActorSystem.create(Behaviors.empty(), name, config());
+    }
+
+    // overrides on top of config()
+    static ActorSystem<Void> create(String name, Config overrides) {
+        return ActorSystem.create(Behaviors.empty(), name, overrides.withFallback(config()));
+    }
+
+    static void terminate(ActorSystem<?> system) throws Exception {
+        if (system != null) {
+            system.terminate();
+            system.getWhenTerminated().toCompletableFuture().get(Duration.ofSeconds(30).toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.serialize.CaseMessagesSerializer;
+import org.apache.pekko.actor.ExtendedActorSystem;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.apache.pekko.serialization.SerializerWithStringManifest;
+import org.apache.pekko.serialization.jackson.JacksonCborSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CaseMessagesSerializer against Jackson CBOR for the messages bound to case-binary.
+ * Size is in the "bytes" secondary result, allocation with -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CaseBinarySerializerBenchmark {
+
+    @Param({"jackson-cbor", "case-binary"})
+    public String serializer;
+
+    @Param({
+        "ResolveCaseCommand.pubsub",
+        "ResolveCaseCommand.registry",
+        "DeploymentStatusArrivedCommand",
+        "CaseResolvedMessage",
+        "ResponseReceivedCommand",
+        "CaseReplyCommand",
+        "CaseResolvedCountIncremented",
+        "State"
+    })
+    public String message;
+
+    private ActorSystem<Void> system;
+    private SerializerWithStringManifest impl;
+    private Object instance;
+    private String manifest;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        system = BenchmarkSystems.create("case-binary-serializer-benchmark");
+        ExtendedActorSystem classic = (ExtendedActorSystem) Adapter.toClassic(system);
+        impl = "case-binary".equals(serializer)
+            ? new CaseMessagesSerializer(classic)
+            : new JacksonCborSerializer(classic, "jackson-cbor");
+        instance = SampleMessages.all(system).get(message);
+        manifest = impl.manifest(instance);
+        bytes = impl.toBinary(instance);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        BenchmarkSystems.terminate(system);
+    }
+
+    @Benchmark
+    public byte[] serialize(SerializedSize size) {
+        byte[] serialized = impl.toBinary(instance);
+        size.bytes = serialized.length;
+        return serialized;
+    }
+
+    @Benchmark
+    public Object deserialize() throws Exception {
+        return impl.fromBinary(bytes, manifest);
+    }
+
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        return impl.fromBinary(impl.toBinary(instance), manifest);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.events.CaseResolvedCountIncremented;
+import com.example.cluster.events.Event;
+import com.example.cluster.states.State;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.testkit.typed.javadsl.ActorTestKit;
+import org.apache.pekko.actor.testkit.typed.javadsl.TestProbe;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.persistence.typed.PersistenceId;
+import org.apache.pekko.persistence.typed.javadsl.CommandHandler;
+import org.apache.pekko.persistence.typed.javadsl.EventHandler;
+import org.apache.pekko.persistence.typed.javadsl.EventSourcedBehavior;
+import org.apache.pekko.persistence.typed.javadsl.RetentionCriteria;
+import org.apache.pekko.persistence.typed.state.javadsl.DurableStateBehavior;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the persisted history of a case the way the case entity leaves it after that many resolutions, same persistence id:
+ * - event-sourced (CaseCompanionActor): CaseResolvedCountIncremented events, State snapshots every snapshot-every events
+ * - durable-state (CaseCompanionDurableStateActor): the one State row with that resolve count
+ * Going through the pipeline would need log analysis, Kafka and ClusterB for every single resolution.
+ *
+ * The writers also do the write of one resolution (Append 1) for the persist latency of both modes.
+ */
+final class CaseHistory {
+
+    // events per write, a snapshot-every of 100 still snapshots at every multiple of 100
+    private static final int CHUNK = 100;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    static final class Append {
+        final int events;
+        final ActorRef<Done> replyTo;
+
+        Append(int events, ActorRef<Done> replyTo) {
+            this.events = events;
+            this.replyTo = replyTo;
+        }
+    }
+
+    private CaseHistory() {
+    }
+
+    // appends resolutions events to the journal of caseId, snapshotEvery 0 = no snapshots
+    static void seedEvents(ActorTestKit testKit, String caseId, int resolutions, int snapshotEvery) {
+        ActorRef<Append> writer = testKit.spawn(eventSourced(caseId, snapshotEvery));
+        TestProbe<Done> probe = testKit.createTestProbe(Done.class);
+        for (int written = 0; written < resolutions; written += CHUNK) {
+            writer.tell(new Append(Math.min(CHUNK, resolutions - written), probe.getRef()));
+            probe.expectMessage(TIMEOUT, Done.getInstance());
+        }
+        testKit.stop(writer, TIMEOUT);
+    }
+
+    // upserts the State row of caseId with resolveCount = resolutions, nothing stored for 0 like a case never resolved
+    static void seedState(ActorTestKit testKit, String caseId, int resolutions) {
+        if (resolutions == 0) {
+            return;
+        }
+        ActorRef<Append> writer = testKit.spawn(durableState(caseId));
+        TestProbe<Done> probe = testKit.createTestProbe(Done.class);
+        writer.tell(new Append(resolutions, probe.getRef()));
+        probe.expectMessage(TIMEOUT, Done.getInstance());
+        testKit.stop(writer, TIMEOUT);
+    }
+
+    static Behavior<Append> eventSourced(String caseId, int snapshotEvery) {
+        return Behaviors.setup(context -> new EventSourcedWriter(caseId, snapshotEvery,
+            context.getSystem().settings().config().getInt("case-companion.persistence.keep-snapshots")));
+    }
+
+    private static final class EventSourcedWriter extends EventSourcedBehavior<Append, Event, State> {
+        private final String caseId;
+        private final RetentionCriteria retentionCriteria;
+
+        EventSourcedWriter(String caseId, int snapshotEvery, int keepSnapshots) {
+            super(PersistenceId.of("CaseCompanion", caseId));
+            this.caseId = caseId;
+            this.retentionCriteria = snapshotEvery <= 0 ? RetentionCriteria.disabled()
+                : RetentionCriteria.snapshotEvery(snapshotEvery, keepSnapshots);
+        }
+
+        @Override
+        public RetentionCriteria retentionCriteria() {
+            return retentionCriteria;
+        }
+
+        @Override
+        public State emptyState() {
+            return State.empty(caseId);
+        }
+
+        @Override
+        public CommandHandler<Append, Event, State> commandHandler() {
+            return newCommandHandlerBuilder()
+                .forAnyState()
+                .onCommand(Append.class, append -> {
+                    List<Event> events = new ArrayList<>(append.events);
+                    for (int i = 0; i < append.events; i++) {
+                        events.add(new CaseResolvedCountIncremented(caseId));
+                    }
+                    return Effect().persist(events).thenRun(state -> append.replyTo.tell(Done.getInstance()));
+                })
+                .build();
+        }
+
+        @Override
+        public EventHandler<State, Event> eventHandler() {
+            return newEventHandlerBuilder()
+                .forAnyState()
+                .onEvent(CaseResolvedCountIncremented.class, (state, event) -> state.withIncrementedResolveCount())
+                .build();
+        }
+    }
+
+    static Behavior<Append> durableState(String caseId) {
+        return new DurableStateWriter(caseId);
+    }
+
+    private static final class DurableStateWriter extends DurableStateBehavior<Append, State> {
+        private final String caseId;
+
+        DurableStateWriter(String caseId) {
+            super(PersistenceId.of("CaseCompanion", caseId));
+            this.caseId = caseId;
+        }
+
+        @Override
+        public State emptyState() {
+            return State.empty(caseId);
+        }
+
+        @Override
+        public org.apache.pekko.persistence.typed.state.javadsl.CommandHandler<Append, State> commandHandler() {
+            return newCommandHandlerBuilder()
+                .forAnyState()
+                .onCommand(Append.class, (state, append) -> {
+                    State next = state;
+                    for (int i = 0; i < append.events; i++) {
+                        next = next.withIncrementedResolveCount();
+                    }
+                    return Effect().persist(next).thenRun(stored -> append.replyTo.tell(Done.getInstance()));
+                })
+                .build();
+        }
+    }
+}
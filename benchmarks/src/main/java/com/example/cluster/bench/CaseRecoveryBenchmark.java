@@ -0,0 +1,87 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.actors.CaseCompanionActor;
+import com.example.cluster.commands.Command;
+import com.example.cluster.commands.DeploymentStatusArrivedCommand;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.testkit.typed.javadsl.ActorTestKit;
+import org.apache.pekko.actor.testkit.typed.javadsl.TestProbe;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spawn-to-RecoveryCompleted of the event-sourced CaseCompanionActor, against the real jdbc journal and
+ * snapshot store on an embedded Postgres. The case is seeded with resolutions events first (CaseHistory).
+ *
+ * - snapshotEvery 0: no snapshots, recovery replays every event of the case
+ * - snapshotEvery 100: the default, recovery loads the latest snapshot and replays what came after it
+ *
+ * The entity only sees commands once it is recovered, so the first one it acks marks RecoveryCompleted:
+ * a DeploymentStatusArrivedCommand nobody waits for, acked and ignored. The entity is stopped outside
+ * the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CaseRecoveryBenchmark {
+
+    @Param({"0", "100", "1000", "10000"})
+    public int resolutions;
+
+    @Param({"0", "100"})
+    public int snapshotEvery;
+
+    private static final String CASE_ID = "recovery-case";
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private BenchmarkDatabase database;
+    private ActorTestKit testKit;
+    private TestProbe<Done> acks;
+    private ActorRef<Command> entity;
+
+    @Setup
+    public void setup() throws Exception {
+        database = BenchmarkDatabase.start();
+        testKit = ActorTestKit.create("case-recovery-benchmark",
+            ConfigFactory.parseString("case-companion.persistence.snapshot-every = " + snapshotEvery)
+                .withFallback(database.config())
+                .withFallback(BenchmarkSystems.config()));
+        // the probe command gets a warning per recovery, "no resolution waiting for it"
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(CaseCompanionActor.class)).setLevel(ch.qos.logback.classic.Level.ERROR);
+        CaseHistory.seedEvents(testKit, CASE_ID, resolutions, snapshotEvery);
+        acks = testKit.createTestProbe(Done.class);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try {
+            testKit.shutdownTestKit();
+        } finally {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public Done recover() {
+        entity = testKit.spawn(CaseCompanionActor.create(CASE_ID));
+        entity.tell(new DeploymentStatusArrivedCommand(CASE_ID, "{}", acks.getRef()));
+        return acks.receiveMessage(TIMEOUT);
+    }
+
+    // the next recovery must not overlap with this entity still running
+    @TearDown(Level.Invocation)
+    public void stopEntity() {
+        if (entity != null) {
+            testKit.stop(entity, TIMEOUT);
+            entity = null;
+        }
+    }
+}
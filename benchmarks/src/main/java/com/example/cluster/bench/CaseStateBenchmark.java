@@ -0,0 +1,49 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.actors.CaseResolutionPipeline;
+import com.example.cluster.states.State;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-resolution work of the case entity that does not touch I/O:
+ * the state transition and the summary built for the reply in onDeploymentStatusArrived.
+ * (State clashes with the JMH annotation, hence the qualified @State below)
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CaseStateBenchmark {
+
+    // log analysis results collected for the resolution being answered
+    @Param({"1", "10"})
+    public int logAnalysisResponses;
+
+    private State state;
+    private List<String> responses;
+
+    @Setup
+    public void setup() {
+        state = new State(SampleMessages.CASE_ID, true, 1234);
+        responses = new ArrayList<>();
+        for (int i = 0; i < logAnalysisResponses; i++) {
+            responses.add(SampleMessages.LOG_ANALYSIS_RESPONSES.get(0));
+        }
+    }
+
+    @Benchmark
+    public State withIncrementedResolveCount() {
+        return state.withIncrementedResolveCount();
+    }
+
+    @Benchmark
+    public String buildSummary() {
+        return CaseResolutionPipeline.buildSummary(responses, SampleMessages.DEPLOYMENT_STATUS_JSON, state.getResolveCount() + 1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.cluster.bench;
+
+import org.apache.pekko.actor.ExtendedActorSystem;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.apache.pekko.serialization.jackson.JacksonCborSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson CBOR (the CborSerializable binding) for every Command / Event / State of the application.
+ * Run with -prof gc for allocation per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandSerializationBenchmark {
+
+    @Param({
+        "ResolveCaseCommand.pubsub",
+        "ResolveCaseCommand.registry",
+        "AnalyzeLogRequestCommand",
+        "AnalyzeLogResponseCommand",
+        "DeploymentStatusRequestCommand",
+        "WrappedDeploymentStatusRequestCommand",
+        "DeploymentStatusKafkaResponseCommand",
+        "DeploymentStatusArrivedCommand",
+        "CaseResolvedMessage",
+        "ResponseReceivedCommand",
+        "CaseReplyCommand",
+        "WaitForResponseCommand",
+        "TimeoutCommand",
+        "CaseResolvedCountIncremented",
+        "State"
+    })
+    public String message;
+
+    private ActorSystem<Void> system;
+    private JacksonCborSerializer serializer;
+    private Object instance;
+    private String manifest;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        system = BenchmarkSystems.create("command-serialization-benchmark");
+        serializer = new JacksonCborSerializer((ExtendedActorSystem) Adapter.toClassic(system), "jackson-cbor");
+        instance = SampleMessages.all(system).get(message);
+        manifest = serializer.manifest(instance);
+        bytes = serializer.toBinary(instance);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        BenchmarkSystems.terminate(system);
+    }
+
+    @Benchmark
+    public byte[] serialize(SerializedSize size) {
+        byte[] serialized = serializer.toBinary(instance);
+        size.bytes = serialized.length;
+        return serialized;
+    }
+
+    @Benchmark
+    public Object deserialize() throws Exception {
+        return serializer.fromBinary(bytes, manifest);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.http.HttpServer;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.cluster.sharding.typed.javadsl.ClusterSharding;
+import org.apache.pekko.http.javadsl.model.HttpRequest;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.http.javadsl.server.Route;
+import org.apache.pekko.japi.function.Function;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route tree of HttpServer: building it from http-routes config and matching requests against it
+ * without a socket in between (Route.handler).
+ * The resolve route is not matched here, it needs the cluster behind it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpRoutesBenchmark {
+
+    // first configured route, last simple route, nothing matches
+    @Param({"/health", "/test", "/unknown"})
+    public String path;
+
+    private ActorSystem<Void> system;
+    private HttpServer httpServer;
+    private Function<HttpRequest, CompletionStage<HttpResponse>> handler;
+    private HttpRequest request;
+
+    @Setup
+    public void setup() {
+        system = BenchmarkSystems.create("http-routes-benchmark");
+        httpServer = new HttpServer(system, ClusterSharding.get(system));
+        handler = httpServer.createRoutes().handler(system);
+        request = HttpRequest.GET(path);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        BenchmarkSystems.terminate(system);
+    }
+
+    @Benchmark
+    public Route createRoutes() {
+        return httpServer.createRoutes();
+    }
+
+    @Benchmark
+    public HttpResponse match() throws Exception {
+        HttpResponse response = handler.apply(request).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        // strict entities, nothing to drain, but do not leave it to the GC to find out
+        response.discardEntityBytes(system);
+        return response;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.commands.DeploymentStatusKafkaResponseCommand;
+import com.example.cluster.commands.DeploymentStatusRequestCommand;
+import com.example.cluster.kafka.KafkaUtil;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KafkaUtil.toProducerRecord / fromConsumerRecord for the two inter-cluster commands, per codec.
+ * The codec is picked the way production picks it: by topic (benchmark.conf has one topic per codec)
+ * and by the content-type header when decoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KafkaCodecBenchmark {
+
+    @Param({"json", "cbor", "smile", "binary"})
+    public String codec;
+
+    @Param({"request", "response"})
+    public String payload;
+
+    private ActorSystem<Void> system;
+    private String topic;
+    private Object message;
+    private Class<?> messageClass;
+    private ConsumerRecord<String, byte[]> consumerRecord;
+
+    @Setup
+    public void setup() throws Exception {
+        system = BenchmarkSystems.create("kafka-codec-benchmark");
+        topic = KafkaUtil.topicName(system, "bench-" + codec);
+        if ("request".equals(payload)) {
+            message = new DeploymentStatusRequestCommand(SampleMessages.REQUEST_ID, SampleMessages.CASE_ID);
+            messageClass = DeploymentStatusRequestCommand.class;
+        } else {
+            message = SampleMessages.deploymentResponse();
+            messageClass = DeploymentStatusKafkaResponseCommand.class;
+        }
+        ProducerRecord<String, byte[]> produced = KafkaUtil.toProducerRecord(system, topic, SampleMessages.REQUEST_ID, message);
+        consumerRecord = new ConsumerRecord<>(topic, 0, 0L, System.currentTimeMillis(), TimestampType.CREATE_TIME,
+            produced.key().length(), produced.value().length, produced.key(), produced.value(), produced.headers(), Optional.empty());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        BenchmarkSystems.terminate(system);
+    }
+
+    @Benchmark
+    public ProducerRecord<String, byte[]> encode(SerializedSize size) throws Exception {
+        ProducerRecord<String, byte[]> record = KafkaUtil.toProducerRecord(system, topic, SampleMessages.REQUEST_ID, message);
+        size.bytes = record.value().length;
+        return record;
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return KafkaUtil.fromConsumerRecord(system, consumerRecord, messageClass);
+    }
+}
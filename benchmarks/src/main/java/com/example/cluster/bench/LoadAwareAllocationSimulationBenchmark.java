@@ -0,0 +1,250 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.sharding.LoadAwareShardAllocationStrategy;
+import com.example.cluster.sharding.ShardLoadSettings;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Props;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.cluster.sharding.typed.HashCodeMessageExtractor;
+import org.openjdk.jmh.annotations.*;
+import scala.collection.immutable.IndexedSeq;
+import scala.jdk.javaapi.CollectionConverters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated hour of CaseCompanion shard placement under skewed case load, driving the real allocation
+ * strategy decisions without a cluster: every round (one rebalance-interval) each shard reports a noisy, smoothed
+ * load the way ShardLoadTracker does, the strategy rebalances, moved shards are allocated again.
+ *
+ * - strategy shard-count: the same strategy with count-only settings (weights 0, threshold 1 shard, no damping),
+ *   which decides like the least-shard strategy with rebalance-threshold = 1
+ * - strategy load-aware: case-companion.sharding.load-aware as configured
+ * - distribution uniform: every case equally busy; zipf: case popularity ~ 1/rank^1.1;
+ *   zipf-shifting: the same, but the hot cases change every 10 minutes
+ *
+ * Each case takes 300 ms - 2 s per log analysis, so the real work of a node is its analyses in flight.
+ * Secondary results of one simulation (assigned, not summed, like SerializedSize):
+ * - meanImbalancePct / peakImbalancePct: how much the busiest node works above the node average, over all rounds
+ * - moves: shard handoffs; with zipf-shifting a strategy that chases every hot spot shows here
+ * The timing is the cost of simulating an hour, mostly rebalance decisions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadAwareAllocationSimulationBenchmark {
+
+    @Param({"shard-count", "load-aware"})
+    public String strategy;
+
+    @Param({"uniform", "zipf", "zipf-shifting"})
+    public String distribution;
+
+    @Param({"4"})
+    public int nodes;
+
+    @Param({"30"})
+    public int shards;
+
+    @Param({"5000"})
+    public int cases;
+
+    // resolve requests/s over all cases
+    @Param({"200"})
+    public double requestRate;
+
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int ROUND_SECONDS = 5;
+    private static final int ROUNDS = 3600 / ROUND_SECONDS;
+    private static final int SHIFT_EVERY_ROUNDS = 600 / ROUND_SECONDS;
+    // passivation idle timeout of the entities
+    private static final double IDLE_TIMEOUT_SECONDS = 30;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long moves;
+        public long meanImbalancePct;
+        public long peakImbalancePct;
+    }
+
+    private ActorSystem<Void> system;
+    private final List<ActorRef> regions = new ArrayList<>();
+    private ShardLoadSettings settings;
+    private int[] shardOfCase;
+    private double[] analysisSecondsOfCase;
+
+    @Setup
+    public void setup() {
+        system = BenchmarkSystems.create("load-aware-allocation-simulation");
+        // regions are only compared and used as map keys, they never get a message
+        for (int i = 0; i < nodes; i++) {
+            regions.add(Adapter.toClassic(system.systemActorOf(Behaviors.empty(), "region-" + i, Props.empty())));
+        }
+        Config loadAware = BenchmarkSystems.config().getConfig("case-companion.sharding.load-aware");
+        if (strategy.equals("shard-count")) {
+            loadAware = ConfigFactory.parseString(
+                "message-rate-weight = 0, active-entity-weight = 0, in-flight-analysis-weight = 0, shard-base-load = 1, "
+                    + "imbalance-threshold = 0, min-load-difference = 2, stable-rounds = 1, shard-cooldown = 0s, max-moves-per-round = 5")
+                .withFallback(loadAware);
+        }
+        settings = ShardLoadSettings.fromConfig(loadAware);
+
+        // shard ids as the application computes them, analysis durations fixed per case
+        HashCodeMessageExtractor<Object> extractor = new HashCodeMessageExtractor<>(shards);
+        Random random = new Random(7);
+        shardOfCase = new int[cases];
+        analysisSecondsOfCase = new double[cases];
+        for (int c = 0; c < cases; c++) {
+            shardOfCase[c] = Integer.parseInt(extractor.shardId("case-" + c));
+            analysisSecondsOfCase[c] = 0.3 + random.nextDouble() * 1.7;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        BenchmarkSystems.terminate(system);
+    }
+
+    @Benchmark
+    public void simulateHour(Outcome outcome) {
+        // same traffic for every strategy
+        Random random = new Random(42);
+        long[] clockNanos = {0};
+        Map<String, Double> reported = new HashMap<>();
+        LoadAwareShardAllocationStrategy allocation =
+            new LoadAwareShardAllocationStrategy(() -> reported, settings, () -> clockNanos[0]);
+
+        Map<ActorRef, List<String>> placement = new LinkedHashMap<>();
+        regions.forEach(region -> placement.put(region, new ArrayList<>()));
+        for (int s = 0; s < shards; s++) {
+            allocate(allocation, Integer.toString(s), placement);
+        }
+
+        double[] caseRates = caseRates(0);
+        double[] smoothedRate = new double[shards];
+        long moves = 0;
+        double imbalanceSum = 0;
+        double peakImbalance = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            clockNanos[0] = TimeUnit.SECONDS.toNanos((long) round * ROUND_SECONDS);
+            if (distribution.equals("zipf-shifting") && round % SHIFT_EVERY_ROUNDS == 0) {
+                caseRates = caseRates(round / SHIFT_EVERY_ROUNDS);
+            }
+
+            // true work per shard and what its node would report
+            double[] busy = new double[shards];
+            double[] rate = new double[shards];
+            double[] entities = new double[shards];
+            for (int c = 0; c < cases; c++) {
+                int s = shardOfCase[c];
+                rate[s] += caseRates[c];
+                // Little's law: analyses in flight = arrival rate * duration
+                busy[s] += caseRates[c] * analysisSecondsOfCase[c];
+                entities[s] += 1 - Math.exp(-caseRates[c] * IDLE_TIMEOUT_SECONDS);
+            }
+            reported.clear();
+            for (int s = 0; s < shards; s++) {
+                double observedRate = poisson(rate[s] * ROUND_SECONDS, random) / (double) ROUND_SECONDS;
+                smoothedRate[s] += settings.rateSmoothing * (observedRate - smoothedRate[s]);
+                int inFlight = (int) poisson(busy[s], random);
+                reported.put(Integer.toString(s), settings.loadOf(smoothedRate[s], (int) Math.round(entities[s]), inFlight));
+            }
+
+            Set<String> moving = allocation.rebalance(allocations(placement), Set.of()).toCompletableFuture().join();
+            for (String shard : moving) {
+                placement.values().forEach(allocated -> allocated.remove(shard));
+            }
+            for (String shard : moving) {
+                allocate(allocation, shard, placement);
+            }
+            moves += moving.size();
+
+            double total = 0;
+            double busiest = 0;
+            for (List<String> allocated : placement.values()) {
+                double work = 0;
+                for (String shard : allocated) {
+                    work += busy[Integer.parseInt(shard)];
+                }
+                total += work;
+                busiest = Math.max(busiest, work);
+            }
+            double imbalance = total == 0 ? 0 : busiest / (total / nodes) - 1;
+            imbalanceSum += imbalance;
+            peakImbalance = Math.max(peakImbalance, imbalance);
+        }
+        outcome.moves = moves;
+        outcome.meanImbalancePct = Math.round(100 * imbalanceSum / ROUNDS);
+        outcome.peakImbalancePct = Math.round(100 * peakImbalance);
+    }
+
+    private void allocate(LoadAwareShardAllocationStrategy allocation, String shard, Map<ActorRef, List<String>> placement) {
+        ActorRef region = allocation.allocateShard(regions.get(0), shard, allocations(placement)).toCompletableFuture().join();
+        placement.get(region).add(shard);
+    }
+
+    private static Map<ActorRef, IndexedSeq<String>> allocations(Map<ActorRef, List<String>> placement) {
+        Map<ActorRef, IndexedSeq<String>> allocations = new HashMap<>();
+        placement.forEach((region, allocated) -> allocations.put(region, CollectionConverters.asScala(allocated).toIndexedSeq()));
+        return allocations;
+    }
+
+    // requests/s per case; generation picks which cases are hot
+    private double[] caseRates(int generation) {
+        double[] weights = new double[cases];
+        if (distribution.equals("uniform")) {
+            Arrays.fill(weights, 1);
+        } else {
+            // rank 1 is the hottest; a new generation reshuffles the ranks
+            List<Integer> ranks = new ArrayList<>(cases);
+            for (int r = 1; r <= cases; r++) {
+                ranks.add(r);
+            }
+            Collections.shuffle(ranks, new Random(generation));
+            for (int c = 0; c < cases; c++) {
+                weights[c] = 1 / Math.pow(ranks.get(c), ZIPF_EXPONENT);
+            }
+        }
+        double sum = 0;
+        for (double weight : weights) {
+            sum += weight;
+        }
+        double[] rates = new double[cases];
+        for (int c = 0; c < cases; c++) {
+            rates[c] = requestRate * weights[c] / sum;
+        }
+        return rates;
+    }
+
+    // normal approximation above 30, Knuth below
+    private static long poisson(double mean, Random random) {
+        if (mean > 30) {
+            return Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        long count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.loganalysis.LogAnalysisReport;
+import com.example.cluster.loganalysis.LogScanEngine;
+import com.example.cluster.loganalysis.LogScanSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LogScanEngine (memory mapped, chunked, parallel) against the straightforward approach it replaced
+ * in spirit: BufferedReader line by line with a regex per line. Same synthetic log for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LogScanBenchmark {
+
+    @Param({"64", "512"})
+    public int sizeMb;
+
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "DEBUG", "DEBUG", "WARN", "ERROR"};
+    private static final String[] MESSAGES = {
+        "Request handled in 12 ms",
+        "Cache miss for key customer-42",
+        "Retrying call to deployment service",
+        "java.util.concurrent.TimeoutException: call timed out after 5000 ms",
+        "java.net.ConnectException: Connection refused",
+        "Processed batch of 500 records",
+        "com.example.billing.InvoiceValidationException: total does not match"
+    };
+    private static final Pattern BASELINE_LINE =
+        Pattern.compile("^\\S+ \\S+ (FATAL|ERROR|WARN|INFO|DEBUG|TRACE) .*?([\\w.$]+(?:Exception|Error))?(?::|$)");
+
+    private Path directory;
+    private List<Path> files;
+    private LogScanEngine engine;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("log-scan-benchmark");
+        Path file = directory.resolve("case.log");
+        writeSyntheticLog(file, sizeMb * 1024L * 1024L);
+        files = Collections.singletonList(file);
+        engine = new LogScanEngine(new LogScanSettings(BenchmarkSystems.config().getConfig("log-analysis")));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private static void writeSyntheticLog(Path file, long targetBytes) throws IOException {
+        Random random = new Random(42);
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            while (written < targetBytes) {
+                String line = "2026-10-18T10:15:30.123Z [worker-" + random.nextInt(32) + "] "
+                    + LEVELS[random.nextInt(LEVELS.length)] + " "
+                    + MESSAGES[random.nextInt(MESSAGES.length)] + "\n";
+                writer.write(line);
+                written += line.length();
+            }
+        }
+    }
+
+    @Benchmark
+    public LogAnalysisReport logScanEngine() throws IOException {
+        return engine.analyze(files);
+    }
+
+    @Benchmark
+    public Map<String, Integer> bufferedReaderRegex() throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(files.get(0), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = BASELINE_LINE.matcher(line);
+                if (matcher.find()) {
+                    counts.merge(matcher.group(1), 1, Integer::sum);
+                    if (matcher.group(2) != null) {
+                        counts.merge(matcher.group(2), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+}
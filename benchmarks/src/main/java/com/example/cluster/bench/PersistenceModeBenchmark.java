@@ -0,0 +1,103 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.actors.CaseCompanionActor;
+import com.example.cluster.actors.CaseCompanionDurableStateActor;
+import com.example.cluster.commands.Command;
+import com.example.cluster.commands.DeploymentStatusArrivedCommand;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.testkit.typed.javadsl.ActorTestKit;
+import org.apache.pekko.actor.testkit.typed.javadsl.TestProbe;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Both case-companion.persistence.mode values against the same jdbc store (embedded Postgres, init-peekko.sql),
+ * for a case with resolutions persisted resolutions already (CaseHistory):
+ *
+ * - persistResolution: the write of one resolution, a CaseResolvedCountIncremented event (plus a State snapshot
+ *   every snapshot-every) for event-sourced, the upsert of the State row for durable-state
+ * - recover: spawn-to-RecoveryCompleted of the entity createForConfiguredMode starts, the first acked command
+ *   marks it like in CaseRecoveryBenchmark; the entity is stopped outside the measured time
+ *
+ * Every trial gets a fresh database, persistResolution grows the history of its case by one per invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PersistenceModeBenchmark {
+
+    @Param({"event-sourced", "durable-state"})
+    public String mode;
+
+    @Param({"0", "100", "1000", "10000"})
+    public int resolutions;
+
+    private static final String CASE_ID = "persistence-mode-case";
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private BenchmarkDatabase database;
+    private ActorTestKit testKit;
+    private ActorRef<CaseHistory.Append> writer;
+    private TestProbe<Done> acks;
+    private ActorRef<Command> entity;
+
+    @Setup
+    public void setup() throws Exception {
+        database = BenchmarkDatabase.start();
+        testKit = ActorTestKit.create("persistence-mode-benchmark",
+            ConfigFactory.parseString("case-companion.persistence.mode = \"" + mode + "\"")
+                .withFallback(database.config())
+                .withFallback(BenchmarkSystems.config()));
+        // the probe command of recover gets a warning per recovery, "no resolution waiting for it"
+        for (Class<?> entityClass : new Class<?>[] {CaseCompanionActor.class, CaseCompanionDurableStateActor.class}) {
+            ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(entityClass)).setLevel(ch.qos.logback.classic.Level.ERROR);
+        }
+        if (mode.equals("event-sourced")) {
+            int snapshotEvery = testKit.system().settings().config().getInt("case-companion.persistence.snapshot-every");
+            CaseHistory.seedEvents(testKit, CASE_ID, resolutions, snapshotEvery);
+            writer = testKit.spawn(CaseHistory.eventSourced(CASE_ID, snapshotEvery));
+        } else {
+            CaseHistory.seedState(testKit, CASE_ID, resolutions);
+            writer = testKit.spawn(CaseHistory.durableState(CASE_ID));
+        }
+        acks = testKit.createTestProbe(Done.class);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try {
+            testKit.shutdownTestKit();
+        } finally {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public Done persistResolution() {
+        writer.tell(new CaseHistory.Append(1, acks.getRef()));
+        return acks.receiveMessage(TIMEOUT);
+    }
+
+    @Benchmark
+    public Done recover() {
+        entity = testKit.spawn(CaseCompanionActor.createForConfiguredMode(CASE_ID, testKit.system().settings().config()));
+        entity.tell(new DeploymentStatusArrivedCommand(CASE_ID, "{}", acks.getRef()));
+        return acks.receiveMessage(TIMEOUT);
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopEntity() {
+        if (entity != null) {
+            testKit.stop(entity, TIMEOUT);
+            entity = null;
+        }
+    }
+}
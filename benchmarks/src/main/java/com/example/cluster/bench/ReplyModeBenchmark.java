@@ -0,0 +1,212 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.actors.pubsub.ResponseSubscriberActor;
+import com.example.cluster.commands.CaseResolvedMessage;
+import com.example.cluster.commands.Command;
+import com.example.cluster.commands.ResolveCaseCommand;
+import com.example.cluster.commands.ResponseReceivedCommand;
+import com.example.cluster.commands.WaitForResponseCommand;
+import com.example.cluster.deadline.Deadlines;
+import com.example.cluster.reply.ReplyRegistry;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.actor.Address;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.Props;
+import org.apache.pekko.actor.typed.javadsl.AskPattern;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.cluster.MemberStatus;
+import org.apache.pekko.cluster.pubsub.DistributedPubSub;
+import org.apache.pekko.cluster.pubsub.DistributedPubSubMediator;
+import org.apache.pekko.cluster.sharding.typed.javadsl.ClusterSharding;
+import org.apache.pekko.cluster.sharding.typed.javadsl.Entity;
+import org.apache.pekko.cluster.sharding.typed.javadsl.EntityTypeKey;
+import org.apache.pekko.cluster.typed.Cluster;
+import org.apache.pekko.cluster.typed.Join;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolve latency per reply-registry.mode, request to answer on the node holding the request.
+ * Two cluster nodes in one JVM (real Artery over loopback), the requests go out from node 0 exactly like
+ * HttpServer sends them, about half of the cases have their entity on node 1:
+ *
+ * - registry: ReplyHandle of the node-local ReplyRegistry in the command, the entity replies straight to it
+ * - pubsub: one ResponseSubscriberActor + DistributedPubSub topic per request, the entity publishes the answer
+ *
+ * The entity stands in for CaseCompanionActor: it answers after resolveMillis, the time log analysis and
+ * ClusterB would take, and replies the way CaseResolutionPipeline does in each mode.
+ * With pubsub an answer published before the topic was gossiped to the entity's node (gossip-interval) is lost,
+ * the request then waits until the timeout: the timeouts counter, next to answered.
+ * Requests wait at most 5 s here instead of reply-registry.timeout / the 35 s of HttpServer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(1)
+public class ReplyModeBenchmark {
+
+    @Param({"registry", "pubsub"})
+    public String mode;
+
+    @Param({"0", "1000"})
+    public int resolveMillis;
+
+    @Param({"1000"})
+    public int cases;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long answered;
+        public long timeouts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            answered = 0;
+            timeouts = 0;
+        }
+    }
+
+    // the timer message of the stand-in entity, never leaves the node
+    private static final class Answer implements Command {
+        final ResolveCaseCommand command;
+
+        Answer(ResolveCaseCommand command) {
+            this.command = command;
+        }
+    }
+
+    private static final EntityTypeKey<Command> TYPE_KEY = EntityTypeKey.create(Command.class, "reply-mode-benchmark-case");
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration SETUP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final List<ActorSystem<Void>> nodes = new ArrayList<>();
+    private ActorSystem<Void> requester;
+    private org.apache.pekko.actor.ActorRef mediator;
+    private final AtomicLong next = new AtomicLong();
+
+    @Setup
+    public void setup() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            // one system name, or they are not the same cluster
+            nodes.add(BenchmarkSystems.create("reply-mode-benchmark",
+                ConfigFactory.parseString("reply-registry.timeout = " + TIMEOUT.toMillis() + "ms")));
+        }
+        Address first = Cluster.get(nodes.get(0)).selfMember().address();
+        nodes.forEach(node -> Cluster.get(node).manager().tell(Join.create(first)));
+        awaitUp();
+        for (ActorSystem<Void> node : nodes) {
+            org.apache.pekko.actor.ActorRef nodeMediator = DistributedPubSub.get(node).mediator();
+            ClusterSharding.get(node).init(Entity.of(TYPE_KEY, ctx -> caseEntity(nodeMediator, Duration.ofMillis(resolveMillis))));
+        }
+        requester = nodes.get(0);
+        mediator = DistributedPubSub.get(requester).mediator();
+
+        // allocate all shards and start all entities before measuring, through the registry so nothing is lost
+        List<CompletableFuture<CaseResolvedMessage>> started = new ArrayList<>(cases);
+        for (int i = 0; i < cases; i++) {
+            started.add(viaReplyRegistry("case-" + i));
+        }
+        CompletableFuture.allOf(started.toArray(new CompletableFuture<?>[0]))
+            .get(SETUP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (ActorSystem<Void> node : nodes) {
+            BenchmarkSystems.terminate(node);
+        }
+    }
+
+    @Benchmark
+    public CaseResolvedMessage resolve(Outcome outcome) throws Exception {
+        String caseId = "case-" + Math.floorMod(next.getAndIncrement(), cases);
+        CompletableFuture<CaseResolvedMessage> answer = mode.equals("pubsub") ? viaPubSub(caseId) : viaReplyRegistry(caseId);
+        try {
+            CaseResolvedMessage response = answer.get();
+            // the registry answers an expired request with a "timeout" message
+            if ("timeout".equals(response.caseId)) {
+                outcome.timeouts++;
+            } else {
+                outcome.answered++;
+            }
+            return response;
+        } catch (ExecutionException e) {
+            // ask timeout of the PubSub path
+            outcome.timeouts++;
+            return null;
+        }
+    }
+
+    // as HttpServer.resolveViaReplyRegistry
+    private CompletableFuture<CaseResolvedMessage> viaReplyRegistry(String caseId) {
+        ReplyRegistry.PendingReply pending = ReplyRegistry.get(requester).register();
+        ClusterSharding.get(requester).entityRefFor(TYPE_KEY, caseId)
+            .tell(new ResolveCaseCommand(caseId, pending.handle, pending.deadlineMillis, System.currentTimeMillis()));
+        return pending.response.toCompletableFuture();
+    }
+
+    // as HttpServer.resolveViaPubSub
+    private CompletableFuture<CaseResolvedMessage> viaPubSub(String caseId) {
+        String responseTopicId = "case-response-" + UUID.randomUUID();
+        ActorRef<Command> subscriber = requester.systemActorOf(
+            ResponseSubscriberActor.create(responseTopicId, mediator), "response-subscriber-" + UUID.randomUUID(), Props.empty());
+        ClusterSharding.get(requester).entityRefFor(TYPE_KEY, caseId)
+            .tell(new ResolveCaseCommand(caseId, responseTopicId, Deadlines.after(TIMEOUT), System.currentTimeMillis()));
+        return AskPattern.<Command, CaseResolvedMessage>ask(subscriber, WaitForResponseCommand::new, TIMEOUT, requester.scheduler())
+            .toCompletableFuture();
+    }
+
+    // answers every resolve after resolveTime, through the handle or the topic like CaseResolutionPipeline.Waiter
+    private static Behavior<Command> caseEntity(org.apache.pekko.actor.ActorRef mediator, Duration resolveTime) {
+        return Behaviors.setup(context -> Behaviors.receive(Command.class)
+            .onMessage(ResolveCaseCommand.class, command -> {
+                if (resolveTime.isZero()) {
+                    reply(command, mediator);
+                } else {
+                    context.scheduleOnce(resolveTime, context.getSelf(), new Answer(command));
+                }
+                return Behaviors.same();
+            })
+            .onMessage(Answer.class, answer -> {
+                reply(answer.command, mediator);
+                return Behaviors.same();
+            })
+            .build());
+    }
+
+    private static void reply(ResolveCaseCommand command, org.apache.pekko.actor.ActorRef mediator) {
+        CaseResolvedMessage response = new CaseResolvedMessage(command.getCaseId(), SampleMessages.SUMMARY);
+        if (command.hasReplyHandle()) {
+            command.getReplyHandle().reply(response);
+        } else {
+            mediator.tell(new DistributedPubSubMediator.Publish(command.getResponseTopicId(), new ResponseReceivedCommand(response)),
+                org.apache.pekko.actor.ActorRef.noSender());
+        }
+    }
+
+    private void awaitUp() throws InterruptedException {
+        long deadline = System.nanoTime() + SETUP_TIMEOUT.toNanos();
+        for (ActorSystem<Void> node : nodes) {
+            while (Cluster.get(node).selfMember().status() != MemberStatus.up()) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Benchmark cluster did not form within " + SETUP_TIMEOUT);
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.commands.CaseResolvedMessage;
+import com.example.cluster.reply.ReplyRegistry;
+import com.example.cluster.reply.ReplyTimerWheel;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of correlating one resolve reply on the node that holds the HTTP request:
+ * register + complete in the ReplyRegistry, and the timeout bookkeeping of the timer wheel alone.
+ * (The PubSub path it replaces spawned an actor and subscribed a topic per request.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplyRegistryBenchmark {
+
+    private ActorSystem<Void> system;
+    private ReplyRegistry registry;
+    private ReplyTimerWheel wheel;
+    private final AtomicLong keys = new AtomicLong();
+    private final CaseResolvedMessage response = new CaseResolvedMessage(SampleMessages.CASE_ID, SampleMessages.SUMMARY);
+
+    @Setup
+    public void setup() {
+        system = BenchmarkSystems.create("reply-registry-benchmark");
+        registry = ReplyRegistry.get(system);
+        wheel = new ReplyTimerWheel(Duration.ofMillis(100), 512, key -> { });
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        BenchmarkSystems.terminate(system);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CaseResolvedMessage registerAndComplete() throws Exception {
+        ReplyRegistry.PendingReply pending = registry.register();
+        registry.complete(pending.handle.requestId, response);
+        return pending.response.toCompletableFuture().get();
+    }
+
+    @Benchmark
+    public void timerWheelScheduleAndTick() {
+        wheel.schedule(Long.toString(keys.incrementAndGet()), Duration.ofSeconds(30));
+        wheel.tick();
+    }
+}
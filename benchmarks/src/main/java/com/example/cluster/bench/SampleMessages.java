@@ -0,0 +1,76 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.actors.CaseResolutionPipeline;
+import com.example.cluster.commands.*;
+import com.example.cluster.events.CaseResolvedCountIncremented;
+import com.example.cluster.loganalysis.LogAnalysisReport;
+import com.example.cluster.reply.ReplyHandle;
+import com.example.cluster.states.State;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Props;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One realistic instance of every Command / Event / State, sized like what a case resolution produces.
+ */
+final class SampleMessages {
+
+    static final String CASE_ID = "case-4711-2f9c";
+    static final String REQUEST_ID = "0f8fad5b-d9cb-469f-a165-70867728950e";
+    static final String DEPLOYMENT_STATUS_JSON =
+        "{\"requestId\":\"" + REQUEST_ID + "\",\"caseId\":\"" + CASE_ID + "\","
+            + "\"healthyServices\":[\"service-a\",\"service-b\",\"service-c\"],\"failedServices\":[\"service-x\"]}";
+    static final List<String> LOG_ANALYSIS_RESPONSES = Collections.singletonList(
+        new AnalyzeLogResponseCommand(CASE_ID, "Analysis for case " + CASE_ID, "LogAnalysisActor", LogAnalysisReport.empty()).toString());
+    static final String SUMMARY = CaseResolutionPipeline.buildSummary(LOG_ANALYSIS_RESPONSES, DEPLOYMENT_STATUS_JSON, 3);
+
+    private SampleMessages() {
+    }
+
+    // names are the @Param values of the serialization benchmarks
+    static Map<String, Object> all(ActorSystem<?> system) {
+        ActorRef<Command> commandRef = system.systemActorOf(Behaviors.<Command>ignore(), "bench-command-ref", Props.empty());
+        ActorRef<Done> doneRef = system.systemActorOf(Behaviors.<Done>ignore(), "bench-done-ref", Props.empty());
+        ActorRef<CaseResolvedMessage> resolvedRef =
+            system.systemActorOf(Behaviors.<CaseResolvedMessage>ignore(), "bench-resolved-ref", Props.empty());
+
+        CaseResolvedMessage resolved = new CaseResolvedMessage(CASE_ID, SUMMARY);
+        DeploymentStatusRequestCommand deploymentRequest = new DeploymentStatusRequestCommand(REQUEST_ID, CASE_ID);
+
+        Map<String, Object> messages = new LinkedHashMap<>();
+        messages.put("ResolveCaseCommand.pubsub", new ResolveCaseCommand(CASE_ID, "case-response-" + REQUEST_ID));
+        messages.put("ResolveCaseCommand.registry", new ResolveCaseCommand(CASE_ID, new ReplyHandle(commandRef, REQUEST_ID)));
+        messages.put("ResolveCaseCommand.deadline",
+            new ResolveCaseCommand(CASE_ID, new ReplyHandle(commandRef, REQUEST_ID),
+                System.currentTimeMillis() + 30_000, System.currentTimeMillis()));
+        messages.put("AnalyzeLogRequestCommand", new AnalyzeLogRequestCommand(CASE_ID, commandRef));
+        messages.put("AnalyzeLogResponseCommand", new AnalyzeLogResponseCommand(
+            CASE_ID, "Analysis for case " + CASE_ID, "LogAnalysisActor", LogAnalysisReport.empty()));
+        messages.put("DeploymentStatusRequestCommand", deploymentRequest);
+        messages.put("WrappedDeploymentStatusRequestCommand", new WrappedDeploymentStatusRequestCommand(deploymentRequest, doneRef));
+        messages.put("DeploymentStatusKafkaResponseCommand", deploymentResponse());
+        messages.put("DeploymentStatusArrivedCommand", new DeploymentStatusArrivedCommand(CASE_ID, DEPLOYMENT_STATUS_JSON, doneRef));
+        messages.put("CaseResolvedMessage", resolved);
+        messages.put("ResponseReceivedCommand", new ResponseReceivedCommand(resolved));
+        messages.put("CaseReplyCommand", new CaseReplyCommand(REQUEST_ID, resolved));
+        messages.put("WaitForResponseCommand", new WaitForResponseCommand(resolvedRef));
+        messages.put("TimeoutCommand", new TimeoutCommand());
+        messages.put("CaseResolvedCountIncremented", new CaseResolvedCountIncremented(CASE_ID));
+        messages.put("State", new State(CASE_ID, true, 1234));
+        return messages;
+    }
+
+    static DeploymentStatusKafkaResponseCommand deploymentResponse() {
+        List<String> healthy = Arrays.asList("service-a", "service-b", "service-c");
+        List<String> failed = Arrays.asList("service-x");
+        return new DeploymentStatusKafkaResponseCommand(REQUEST_ID, CASE_ID, healthy, failed);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.cluster.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports the payload size next to the timing in the JMH results.
+ * The field is assigned (not summed) on every invocation, with one benchmark thread
+ * the reported "bytes" value is exactly the size of one serialized message.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class SerializedSize {
+    public long bytes;
+}
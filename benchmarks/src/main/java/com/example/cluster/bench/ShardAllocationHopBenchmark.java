@@ -0,0 +1,227 @@
+package com.example.cluster.bench;
+
+import com.example.cluster.serialize.CborSerializable;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.pekko.actor.Address;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.cluster.MemberStatus;
+import org.apache.pekko.cluster.sharding.external.ExternalShardAllocation;
+import org.apache.pekko.cluster.sharding.external.ExternalShardAllocationStrategy;
+import org.apache.pekko.cluster.sharding.typed.ShardingEnvelope;
+import org.apache.pekko.cluster.sharding.typed.ShardingMessageExtractor;
+import org.apache.pekko.cluster.sharding.typed.javadsl.ClusterSharding;
+import org.apache.pekko.cluster.sharding.typed.javadsl.Entity;
+import org.apache.pekko.cluster.sharding.typed.javadsl.EntityTypeKey;
+import org.apache.pekko.cluster.typed.Cluster;
+import org.apache.pekko.cluster.typed.Join;
+import org.apache.pekko.util.Timeout;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hops and latency of delivering Kafka-consumed deployment responses to their sharded entity, per
+ * case-companion.sharding.allocation. Two cluster nodes in one JVM (real Artery over loopback, no Kafka):
+ * partitions are split between the nodes like a consumer group would, and every response is delivered
+ * from the node consuming its partition, like KafkaResponseRouterActor does.
+ *
+ * - hashed: default shard ids and allocation, the entity is on the consuming node by chance
+ * - kafka-partition: shard id = Kafka partition of the caseId, shards allocated (ExternalShardAllocationStrategy)
+ *   to the node owning the partition, the same layout KafkaClusterSharding produces in ClusterApp
+ *
+ * One operation = a burst of deliveries in flight at once. The remoteHops / localHops counters show
+ * how many of them crossed to the other node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ShardAllocationHopBenchmark {
+
+    @Param({"hashed", "kafka-partition"})
+    public String allocation;
+
+    @Param({"12"})
+    public int partitions;
+
+    @Param({"100"})
+    public int burst;
+
+    @Param({"2000"})
+    public int cases;
+
+    public static final class Deliver implements CborSerializable {
+        public final String caseId;
+        public final ActorRef<String> ackTo;
+
+        @JsonCreator
+        public Deliver(@JsonProperty("caseId") String caseId, @JsonProperty("ackTo") ActorRef<String> ackTo) {
+            this.caseId = caseId;
+            this.ackTo = ackTo;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Hops {
+        public long localHops;
+        public long remoteHops;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            localHops = 0;
+            remoteHops = 0;
+        }
+    }
+
+    // same partition as the Kafka default partitioner gives a record keyed by caseId
+    static final class PartitionExtractor extends ShardingMessageExtractor<ShardingEnvelope<Deliver>, Deliver> {
+        private final int partitions;
+
+        PartitionExtractor(int partitions) {
+            this.partitions = partitions;
+        }
+
+        static int partition(String caseId, int partitions) {
+            return Utils.toPositive(Utils.murmur2(caseId.getBytes(StandardCharsets.UTF_8))) % partitions;
+        }
+
+        @Override
+        public String entityId(ShardingEnvelope<Deliver> envelope) {
+            return envelope.entityId();
+        }
+
+        @Override
+        public String shardId(String entityId) {
+            return Integer.toString(partition(entityId, partitions));
+        }
+
+        @Override
+        public Deliver unwrapMessage(ShardingEnvelope<Deliver> envelope) {
+            return envelope.message();
+        }
+    }
+
+    private static final EntityTypeKey<Deliver> TYPE_KEY = EntityTypeKey.create(Deliver.class, "hop-benchmark-case");
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final List<ActorSystem<Void>> nodes = new ArrayList<>();
+    private final List<String> caseIds = new ArrayList<>();
+    // consuming node of each case, the owner of its partition
+    private final List<ActorSystem<Void>> consumerOf = new ArrayList<>();
+    private int next = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            // one system name, or they are not the same cluster
+            nodes.add(BenchmarkSystems.create("shard-allocation-hop-benchmark"));
+        }
+        Address first = Cluster.get(nodes.get(0)).selfMember().address();
+        nodes.forEach(node -> Cluster.get(node).manager().tell(Join.create(first)));
+        awaitUp();
+
+        // partitions 0..n/2-1 consumed by node 0, the rest by node 1
+        Map<String, Address> shardLocations = new HashMap<>();
+        for (int p = 0; p < partitions; p++) {
+            shardLocations.put(Integer.toString(p), Cluster.get(ownerOf(p)).selfMember().address());
+        }
+        for (ActorSystem<Void> node : nodes) {
+            Entity<Deliver, ShardingEnvelope<Deliver>> entity = Entity.of(TYPE_KEY, ctx -> caseEntity(node));
+            if (allocation.equals("kafka-partition")) {
+                entity = entity
+                    .withMessageExtractor(new PartitionExtractor(partitions))
+                    .withAllocationStrategy(new ExternalShardAllocationStrategy(node, TYPE_KEY.name(), Timeout.create(TIMEOUT)));
+            }
+            ClusterSharding.get(node).init(entity);
+        }
+        if (allocation.equals("kafka-partition")) {
+            // what the consumer rebalance listener does in the application
+            ExternalShardAllocation.get(nodes.get(0)).getClient(TYPE_KEY.name())
+                .setShardLocations(shardLocations)
+                .toCompletableFuture().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        for (int i = 0; i < cases; i++) {
+            String caseId = "case-" + i;
+            caseIds.add(caseId);
+            consumerOf.add(ownerOf(PartitionExtractor.partition(caseId, partitions)));
+        }
+        // allocate all shards and start all entities before measuring
+        deliver(cases, new Hops());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (ActorSystem<Void> node : nodes) {
+            BenchmarkSystems.terminate(node);
+        }
+    }
+
+    @Benchmark
+    public void deliverBurst(Hops hops) throws Exception {
+        deliver(burst, hops);
+    }
+
+    private void deliver(int count, Hops hops) throws Exception {
+        List<CompletableFuture<String>> acks = new ArrayList<>(count);
+        List<ActorSystem<Void>> consumers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int c = next;
+            next = (next + 1) % cases;
+            ActorSystem<Void> consumer = consumerOf.get(c);
+            consumers.add(consumer);
+            acks.add(ClusterSharding.get(consumer)
+                .entityRefFor(TYPE_KEY, caseIds.get(c))
+                .<String>ask(ackTo -> new Deliver(caseIds.get(c), ackTo), TIMEOUT)
+                .toCompletableFuture());
+        }
+        for (int i = 0; i < count; i++) {
+            String entityNode = acks.get(i).get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            if (entityNode.equals(Cluster.get(consumers.get(i)).selfMember().address().toString())) {
+                hops.localHops++;
+            } else {
+                hops.remoteHops++;
+            }
+        }
+    }
+
+    private ActorSystem<Void> ownerOf(int partition) {
+        return nodes.get(partition < partitions / 2 ? 0 : 1);
+    }
+
+    // acks with the address of the node it runs on
+    private static Behavior<Deliver> caseEntity(ActorSystem<Void> node) {
+        String self = Cluster.get(node).selfMember().address().toString();
+        return Behaviors.receiveMessage(deliver -> {
+            deliver.ackTo.tell(self);
+            return Behaviors.same();
+        });
+    }
+
+    private void awaitUp() throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        for (ActorSystem<Void> node : nodes) {
+            while (Cluster.get(node).selfMember().status() != MemberStatus.up()) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Benchmark cluster did not form within " + TIMEOUT);
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+}
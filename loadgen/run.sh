@@ -0,0 +1,17 @@
+#!/bin/bash
+
+# Builds the application + load driver and runs one load test.
+# Settings are in loadgen/src/main/resources/loadgen.conf, override them with -D, e.g.
+#   loadgen/run.sh -Dloadgen.rate=1000 -Dloadgen.duration=5m -Dloadgen.keys.distribution=zipf
+#   loadgen/run.sh -Dloadgen.mode=external -Dloadgen.external.targets.0=http://localhost/api/v1/cases/resolve
+# Report: loadgen/results/<timestamp>.json and .hgrm
+
+set -e
+
+cd "$(dirname "$0")/.."
+
+mvn -B -q install -DskipTests
+mvn -B -q -f loadgen/pom.xml package
+
+mkdir -p loadgen/results
+java -Dloadgen.report-dir=loadgen/results "$@" -jar loadgen/target/loadgen.jar
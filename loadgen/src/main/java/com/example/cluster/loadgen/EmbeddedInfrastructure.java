@@ -0,0 +1,75 @@
+package com.example.cluster.loadgen;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * The two things docker-compose provides besides the nodes: a Kafka broker with both topics
+ * and a Postgres with the pekko-persistence-jdbc schema of init-peekko.sql.
+ * Both are real implementations, only in-process / on localhost.
+ */
+final class EmbeddedInfrastructure implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedInfrastructure.class);
+
+    private final EmbeddedKafkaKraftBroker kafka;
+    private final EmbeddedPostgres postgres;
+
+    private EmbeddedInfrastructure(EmbeddedKafkaKraftBroker kafka, EmbeddedPostgres postgres) {
+        this.kafka = kafka;
+        this.postgres = postgres;
+    }
+
+    static EmbeddedInfrastructure start(LoadGenSettings settings, String... topics) throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        try {
+            createSchema(postgres);
+            EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, settings.kafkaPartitions, topics);
+            kafka.afterPropertiesSet();
+            log.info("Embedded Postgres on port {}, embedded Kafka at {}", postgres.getPort(), kafka.getBrokersAsString());
+            return new EmbeddedInfrastructure(kafka, postgres);
+        } catch (Exception e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    private static void createSchema(EmbeddedPostgres postgres) throws Exception {
+        String schema;
+        try (InputStream in = EmbeddedInfrastructure.class.getResourceAsStream("/init-peekko.sql")) {
+            if (in == null) {
+                throw new IOException("init-peekko.sql is not on the classpath, build the module with maven");
+            }
+            schema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(schema);
+        }
+    }
+
+    String kafkaBootstrapServers() {
+        return kafka.getBrokersAsString();
+    }
+
+    String jdbcUrl() {
+        return postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true";
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            kafka.destroy();
+        } finally {
+            postgres.close();
+        }
+    }
+}
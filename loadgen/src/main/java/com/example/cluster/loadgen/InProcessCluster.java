@@ -0,0 +1,140 @@
+package com.example.cluster.loadgen;
+
+import com.example.cluster.ClusterApp;
+import com.example.cluster.commands.Command;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.cluster.MemberStatus;
+import org.apache.pekko.cluster.typed.Cluster;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * ClusterA and ClusterB nodes as ActorSystems of this JVM, each started through ClusterApp.create()
+ * exactly like ClusterApp.main does, only the settings docker-compose passes as env vars
+ * (cluster name, ports, seed nodes, Kafka, Postgres) come from here.
+ */
+final class InProcessCluster implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessCluster.class);
+
+    private final List<ActorSystem<Command>> clusterA = new ArrayList<>();
+    private final List<ActorSystem<Command>> clusterB = new ArrayList<>();
+    private final List<String> resolveUrls = new ArrayList<>();
+
+    static InProcessCluster start(LoadGenSettings settings, EmbeddedInfrastructure infrastructure) throws Exception {
+        InProcessCluster cluster = new InProcessCluster();
+        try {
+            // no case logs in embedded mode, LogAnalysisActor answers "No logs found" without touching the disk much
+            String logDir = Files.createTempDirectory("loadgen-case-logs").toString();
+            for (int i = 0; i < settings.clusterANodes; i++) {
+                cluster.clusterA.add(cluster.startNode("ClusterA", i, i, settings, infrastructure, logDir));
+                cluster.resolveUrls.add("http://127.0.0.1:" + (settings.httpBasePort + i) + "/api/v1/cases/resolve");
+            }
+            for (int i = 0; i < settings.clusterBNodes; i++) {
+                cluster.clusterB.add(cluster.startNode("ClusterB", i, settings.clusterANodes + i, settings, infrastructure, logDir));
+            }
+            cluster.awaitUp(settings);
+            return cluster;
+        } catch (Exception e) {
+            cluster.close();
+            throw e;
+        }
+    }
+
+    private ActorSystem<Command> startNode(String clusterName, int indexInCluster, int portOffset,
+                                           LoadGenSettings settings, EmbeddedInfrastructure infrastructure, String logDir) {
+        int seedPort = settings.arteryBasePort + portOffset - indexInCluster;
+        Config nodeConfig = ConfigFactory.parseString(
+                "pekko.cluster.name = \"" + clusterName + "\"\n"
+                    + "pekko.cluster.seed-nodes = [\"pekko://" + clusterName + "@127.0.0.1:" + seedPort + "\"]\n"
+                    + "pekko.cluster.roles = []\n"
+                    + "pekko.remote.artery.canonical.hostname = \"127.0.0.1\"\n"
+                    + "pekko.remote.artery.canonical.port = " + (settings.arteryBasePort + portOffset) + "\n"
+                    + "pekko.management.http.hostname = \"127.0.0.1\"\n"
+                    + "pekko.management.http.port = " + (settings.managementBasePort + portOffset) + "\n"
+                    + "http.port = " + (settings.httpBasePort + portOffset) + "\n"
+                    + "kafka.bootstrap-servers = \"" + infrastructure.kafkaBootstrapServers() + "\"\n"
+                    + "log-analysis.log-dir = \"" + logDir.replace("\\", "\\\\") + "\"\n"
+                    + "pekko-persistence-jdbc.shared-databases.slick.db.url = \"" + infrastructure.jdbcUrl() + "\"\n"
+                    + "pekko-persistence-jdbc.shared-databases.slick.db.user = \"postgres\"\n"
+                    + "pekko-persistence-jdbc.shared-databases.slick.db.password = \"\"\n")
+            .withFallback(ConfigFactory.load("loadgen").getConfig("loadgen-node"))
+            .withFallback(ConfigFactory.load());
+        log.info("Starting {} node {} (artery {}, http {})", clusterName, indexInCluster,
+            settings.arteryBasePort + portOffset, settings.httpBasePort + portOffset);
+        return ActorSystem.create(ClusterApp.create(), clusterName, nodeConfig);
+    }
+
+    private void awaitUp(LoadGenSettings settings) throws Exception {
+        long deadline = System.nanoTime() + settings.startupTimeout.toNanos();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        while (!allUp(clusterA) || !allUp(clusterB) || !allHealthy(client, settings)) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Embedded cluster not up within " + settings.startupTimeout);
+            }
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        log.info("Embedded cluster up: {} ClusterA + {} ClusterB nodes", clusterA.size(), clusterB.size());
+    }
+
+    private static boolean allUp(List<ActorSystem<Command>> nodes) {
+        for (ActorSystem<Command> node : nodes) {
+            long up = StreamSupport.stream(Cluster.get(node).state().getMembers().spliterator(), false)
+                .filter(member -> member.status() == MemberStatus.up())
+                .count();
+            if (up < nodes.size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean allHealthy(HttpClient client, LoadGenSettings settings) {
+        for (int i = 0; i < clusterA.size(); i++) {
+            try {
+                HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + (settings.httpBasePort + i) + "/health")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    return false;
+                }
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<String> resolveUrls() {
+        return resolveUrls;
+    }
+
+    @Override
+    public void close() {
+        List<ActorSystem<Command>> all = new ArrayList<>(clusterA);
+        all.addAll(clusterB);
+        for (ActorSystem<Command> node : all) {
+            node.terminate();
+        }
+        for (ActorSystem<Command> node : all) {
+            try {
+                node.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("Node {} did not terminate cleanly: {}", node.address(), e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.cluster.loadgen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Which caseId the next request resolves. The distribution decides how hot the hottest entities get,
+ * which is what sharding, the per-entity mailbox and the journal writes of one persistence id feel.
+ * Only called from the driver thread.
+ */
+abstract class KeyDistribution {
+
+    private final String prefix;
+    protected final SplittableRandom random;
+
+    private KeyDistribution(String prefix, long seed) {
+        this.prefix = prefix;
+        this.random = new SplittableRandom(seed);
+    }
+
+    abstract int nextIndex();
+
+    String nextKey() {
+        return prefix + nextIndex();
+    }
+
+    static KeyDistribution fromSettings(LoadGenSettings settings) {
+        switch (settings.keyDistribution) {
+            case "uniform":
+                return new Uniform(settings.keyPrefix, settings.keySeed, settings.keyCount);
+            case "zipf":
+                return new Zipf(settings.keyPrefix, settings.keySeed, settings.keyCount, settings.zipfExponent);
+            case "hot-set":
+                return new HotSet(settings.keyPrefix, settings.keySeed, settings.keyCount, settings.hotFraction, settings.hotTraffic);
+            default:
+                throw new IllegalArgumentException("Unknown loadgen.keys.distribution: '" + settings.keyDistribution + "'");
+        }
+    }
+
+    private static final class Uniform extends KeyDistribution {
+        private final int count;
+
+        Uniform(String prefix, long seed, int count) {
+            super(prefix, seed);
+            this.count = count;
+        }
+
+        @Override
+        int nextIndex() {
+            return random.nextInt(count);
+        }
+    }
+
+    // rank k is drawn with probability proportional to 1 / k^exponent, cumulative table + binary search
+    private static final class Zipf extends KeyDistribution {
+        private final double[] cumulative;
+
+        Zipf(String prefix, long seed, int count, double exponent) {
+            super(prefix, seed);
+            this.cumulative = new double[count];
+            double sum = 0;
+            for (int k = 0; k < count; k++) {
+                sum += 1.0 / Math.pow(k + 1, exponent);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < count; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        @Override
+        int nextIndex() {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    private static final class HotSet extends KeyDistribution {
+        private final int count;
+        private final int hotCount;
+        private final double hotTraffic;
+
+        HotSet(String prefix, long seed, int count, double hotFraction, double hotTraffic) {
+            super(prefix, seed);
+            this.count = count;
+            this.hotCount = Math.max(1, (int) (count * hotFraction));
+            this.hotTraffic = hotTraffic;
+        }
+
+        @Override
+        int nextIndex() {
+            if (random.nextDouble() < hotTraffic || hotCount >= count) {
+                return random.nextInt(hotCount);
+            }
+            return hotCount + random.nextInt(count - hotCount);
+        }
+    }
+}
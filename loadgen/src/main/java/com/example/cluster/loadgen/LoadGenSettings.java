@@ -0,0 +1,76 @@
+package com.example.cluster.loadgen;
+
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * loadgen section of loadgen.conf.
+ */
+final class LoadGenSettings {
+
+    final String mode;
+    final double rate;
+    final Duration warmup;
+    final Duration duration;
+    final Duration requestTimeout;
+    final int maxOutstanding;
+
+    final String keyPrefix;
+    final int keyCount;
+    final String keyDistribution;
+    final double zipfExponent;
+    final double hotFraction;
+    final double hotTraffic;
+    final long keySeed;
+
+    final int clusterANodes;
+    final int clusterBNodes;
+    final int kafkaPartitions;
+    final int arteryBasePort;
+    final int managementBasePort;
+    final int httpBasePort;
+    final Duration startupTimeout;
+
+    final List<String> externalTargets;
+    final String reportDir;
+
+    LoadGenSettings(Config config) {
+        this.mode = config.getString("mode");
+        this.rate = config.getDouble("rate");
+        this.warmup = config.getDuration("warmup");
+        this.duration = config.getDuration("duration");
+        this.requestTimeout = config.getDuration("request-timeout");
+        this.maxOutstanding = config.getInt("max-outstanding");
+        if (rate <= 0) {
+            throw new IllegalArgumentException("loadgen.rate must be positive, was " + rate);
+        }
+
+        Config keys = config.getConfig("keys");
+        this.keyPrefix = keys.getString("prefix");
+        this.keyCount = keys.getInt("count");
+        this.keyDistribution = keys.getString("distribution");
+        this.zipfExponent = keys.getDouble("zipf-exponent");
+        this.hotFraction = keys.getDouble("hot-fraction");
+        this.hotTraffic = keys.getDouble("hot-traffic");
+        this.keySeed = keys.getLong("seed");
+
+        Config embedded = config.getConfig("embedded");
+        this.clusterANodes = embedded.getInt("cluster-a-nodes");
+        this.clusterBNodes = embedded.getInt("cluster-b-nodes");
+        this.kafkaPartitions = embedded.getInt("kafka-partitions");
+        this.arteryBasePort = embedded.getInt("artery-base-port");
+        this.managementBasePort = embedded.getInt("management-base-port");
+        this.httpBasePort = embedded.getInt("http-base-port");
+        this.startupTimeout = embedded.getDuration("startup-timeout");
+
+        this.externalTargets = config.getStringList("external.targets");
+        this.reportDir = config.getString("report-dir");
+    }
+
+    // time between two intended request starts
+    long intervalNanos() {
+        return (long) (1_000_000_000L / rate);
+    }
+}
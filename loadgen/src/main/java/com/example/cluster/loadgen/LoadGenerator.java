@@ -0,0 +1,57 @@
+package com.example.cluster.loadgen;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Capacity test without the docker-compose stack.
+ *
+ * embedded mode: embedded Kafka + Postgres, ClusterA/ClusterB nodes in this JVM, open-loop POST
+ * /api/v1/cases/resolve against the ClusterA nodes. external mode: the same load against given URLs.
+ * See loadgen.conf for the knobs.
+ */
+public class LoadGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    public static void main(String[] args) throws Exception {
+        LoadGenSettings settings = new LoadGenSettings(ConfigFactory.load("loadgen").getConfig("loadgen"));
+        String runId = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        LoadReport report;
+
+        switch (settings.mode) {
+            case "embedded":
+                report = runEmbedded(settings);
+                break;
+            case "external":
+                report = new OpenLoopDriver(settings, settings.externalTargets).run();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown loadgen.mode: '" + settings.mode + "'");
+        }
+
+        report.print(System.out);
+        Path json = report.write(Paths.get(settings.reportDir), runId);
+        log.info("Report written to {}", json.toAbsolutePath());
+        System.exit(0);
+    }
+
+    private static LoadReport runEmbedded(LoadGenSettings settings) throws Exception {
+        // topic names as the nodes will resolve them, from the application config
+        Config topics = ConfigFactory.load().getConfig("kafka.topics");
+        String requests = topics.getConfig("deployment-requests").getString("name");
+        String responses = topics.getConfig("deployment-responses").getString("name");
+
+        try (EmbeddedInfrastructure infrastructure = EmbeddedInfrastructure.start(settings, requests, responses);
+             InProcessCluster cluster = InProcessCluster.start(settings, infrastructure)) {
+            return new OpenLoopDriver(settings, cluster.resolveUrls()).run();
+        }
+    }
+}
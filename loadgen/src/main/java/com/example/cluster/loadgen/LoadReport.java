@@ -0,0 +1,130 @@
+package com.example.cluster.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Throughput / latency result of one run: a JSON file for comparing runs, one .hgrm percentile
+ * distribution per histogram (plot with HdrHistogram's plotter) and a summary on stdout.
+ * Latencies are recorded in microseconds and reported in milliseconds.
+ *
+ * responseTime covers every measured request (see OpenLoopDriver), it comes first: it is what callers saw.
+ * okResponseTime is the same for successful requests only, serviceTime is from the actual send.
+ */
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadGenSettings settings;
+    private final int targets;
+    private final Duration measured;
+    private final long sent;
+    private final long ok;
+    private final long timeouts;
+    private final long errors;
+    private final long shed;
+    private final long rejectedByDriver;
+    private final Histogram responseTime;
+    private final Histogram okResponseTime;
+    private final Histogram serviceTime;
+
+    LoadReport(LoadGenSettings settings, int targets, Duration measured, long sent, long ok, long timeouts,
+               long errors, long shed, long rejectedByDriver, Histogram responseTime, Histogram okResponseTime,
+               Histogram serviceTime) {
+        this.settings = settings;
+        this.targets = targets;
+        this.measured = measured;
+        this.sent = sent;
+        this.ok = ok;
+        this.timeouts = timeouts;
+        this.errors = errors;
+        this.shed = shed;
+        this.rejectedByDriver = rejectedByDriver;
+        this.responseTime = responseTime;
+        this.okResponseTime = okResponseTime;
+        this.serviceTime = serviceTime;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("mode", settings.mode);
+        run.put("targetRate", settings.rate);
+        run.put("measuredSeconds", measured.toMillis() / 1000.0);
+        run.put("targets", targets);
+        run.put("keyDistribution", settings.keyDistribution);
+        run.put("keyCount", settings.keyCount);
+
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("sent", sent);
+        counts.put("ok", ok);
+        counts.put("timeouts", timeouts);
+        counts.put("errors", errors);
+        counts.put("shed", shed);
+        counts.put("rejectedByDriver", rejectedByDriver);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("run", run);
+        report.put("counts", counts);
+        report.put("throughputOkPerSecond", ok / (measured.toMillis() / 1000.0));
+        report.put("responseTimeMs", percentiles(responseTime));
+        report.put("okResponseTimeMs", percentiles(okResponseTime));
+        report.put("serviceTimeMs", percentiles(serviceTime));
+        return report;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", histogram.getTotalCount());
+        values.put("mean", histogram.getMean() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            values.put("p" + percentile, histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        values.put("max", histogram.getMaxValue() / 1000.0);
+        return values;
+    }
+
+    // returns the JSON file
+    Path write(Path directory, String runId) throws IOException {
+        Files.createDirectories(directory);
+        Path json = directory.resolve(runId + ".json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), toMap());
+        writeDistribution(directory.resolve(runId + "-response-time.hgrm"), responseTime);
+        writeDistribution(directory.resolve(runId + "-ok-response-time.hgrm"), okResponseTime);
+        writeDistribution(directory.resolve(runId + "-service-time.hgrm"), serviceTime);
+        return json;
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n=== %s req/s for %ss against %d target(s), keys %s/%d ===%n",
+            settings.rate, measured.toMillis() / 1000.0, targets, settings.keyDistribution, settings.keyCount);
+        out.printf("sent %d, ok %d, timeouts %d, errors %d, shed (503) %d, rejected by driver %d, throughput %.1f ok/s%n",
+            sent, ok, timeouts, errors, shed, rejectedByDriver, ok / (measured.toMillis() / 1000.0));
+        printLine(out, "response time, all requests (from intended start)", responseTime);
+        printLine(out, "response time, ok only                           ", okResponseTime);
+        printLine(out, "service time, sent requests (from actual send)   ", serviceTime);
+    }
+
+    private static void printLine(PrintStream out, String label, Histogram histogram) {
+        StringBuilder line = new StringBuilder(label).append(" ms:");
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(" p%s=%.2f", percentile, histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        line.append(String.format(" max=%.2f", histogram.getMaxValue() / 1000.0));
+        out.println(line);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.cluster.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop driver: request i is due at start + i / rate, it is sent then whether or not earlier
+ * requests have been answered (a closed loop would wait, and so would hide every stall of the system).
+ *
+ * Coordinated omission: response time is measured from the intended start, not from the moment
+ * the request actually left. When the driver or the system falls behind, the waiting shows up in the
+ * histogram instead of being omitted. Service time (from the actual send) is recorded as well,
+ * the gap between the two is the queueing the system forced on its callers.
+ *
+ * Every measured request is in the response time histogram, whatever its outcome: errors, 503 sheds and
+ * timeouts at the time they took, a request the driver dropped (max-outstanding reached) at request-timeout,
+ * the wait its caller would have had at least. Leaving them out would drop the slowest outcomes exactly
+ * under overload and report percentiles that are too low. The ok-only histogram is kept next to it.
+ */
+final class OpenLoopDriver {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenLoopDriver.class);
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    // the reply registry answers an expired request with 200 and this case id
+    private static final String TIMEOUT_REPLY = "\"caseId\":\"timeout\"";
+    // and a request the log analysis pool of the entity's node had no room for with this one
+    private static final String REJECTED_REPLY = "\"caseId\":\"rejected\"";
+
+    private final LoadGenSettings settings;
+    private final List<String> targets;
+    private final KeyDistribution keys;
+    private final ExecutorService callbackExecutor = Executors.newFixedThreadPool(4);
+    private final HttpClient client;
+
+    // all measured requests
+    private final Recorder responseTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Recorder okResponseTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    // requests that were sent, any outcome
+    private final Recorder serviceTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    // 503 from the concurrency limiter
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder rejectedByDriver = new LongAdder();
+
+    OpenLoopDriver(LoadGenSettings settings, List<String> targets) {
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("No targets to drive");
+        }
+        this.settings = settings;
+        this.targets = targets;
+        this.keys = KeyDistribution.fromSettings(settings);
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(callbackExecutor)
+            .build();
+    }
+
+    LoadReport run() throws InterruptedException {
+        double intervalNanos = 1_000_000_000d / settings.rate;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + settings.warmup.toNanos();
+        long end = measureFrom + settings.duration.toNanos();
+        log.info("Driving {} req/s for {} (+{} warmup) against {} target(s), keys: {}",
+            settings.rate, settings.duration, settings.warmup, targets.size(), settings.keyDistribution);
+
+        boolean measuring = false;
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            if (!measuring && intended >= measureFrom) {
+                // everything recorded so far was warmup
+                measuring = true;
+                responseTime.reset();
+                okResponseTime.reset();
+                serviceTime.reset();
+                log.info("Warmup done, measuring");
+            }
+            parkUntil(intended);
+            send(targets.get((int) (i % targets.size())), keys.nextKey(), intended, measuring);
+        }
+
+        awaitOutstanding();
+        Histogram response = responseTime.getIntervalHistogram();
+        Histogram okResponse = okResponseTime.getIntervalHistogram();
+        Histogram service = serviceTime.getIntervalHistogram();
+        callbackExecutor.shutdown();
+        return new LoadReport(settings, targets.size(), settings.duration,
+            sent.sum(), ok.sum(), timeouts.sum(), errors.sum(), shed.sum(), rejectedByDriver.sum(), response, okResponse, service);
+    }
+
+    private void send(String target, String caseId, long intendedNanos, boolean measuring) {
+        if (measuring) {
+            sent.increment();
+        }
+        if (outstanding.get() >= settings.maxOutstanding) {
+            if (measuring) {
+                rejectedByDriver.increment();
+                responseTime.recordValue(micros(settings.requestTimeout.toNanos()));
+            }
+            return;
+        }
+        outstanding.incrementAndGet();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target))
+            .timeout(settings.requestTimeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"caseId\":\"" + caseId + "\"}"))
+            .build();
+        long sentNanos = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .whenComplete((response, failure) -> {
+                long now = System.nanoTime();
+                outstanding.decrementAndGet();
+                if (!measuring) {
+                    return;
+                }
+                long responseMicros = micros(now - intendedNanos);
+                responseTime.recordValue(responseMicros);
+                serviceTime.recordValue(micros(now - sentNanos));
+                if (failure == null && response.statusCode() == 503) {
+                    shed.increment();
+                } else if (failure != null || response.statusCode() != 200 || response.body().contains(REJECTED_REPLY)) {
+                    errors.increment();
+                } else if (response.body().contains(TIMEOUT_REPLY)) {
+                    timeouts.increment();
+                } else {
+                    ok.increment();
+                    okResponseTime.recordValue(responseMicros);
+                }
+            });
+    }
+
+    private static long micros(long nanos) {
+        return Math.max(0, Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    private void awaitOutstanding() throws InterruptedException {
+        long deadline = System.nanoTime() + settings.requestTimeout.toNanos() + TimeUnit.SECONDS.toNanos(5);
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        if (outstanding.get() > 0) {
+            log.warn("{} requests still outstanding after the request timeout, not in the report", outstanding.get());
+        }
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -2,23 +2,39 @@ package com.example.cluster;
 
 import com.example.cluster.actors.kafka.KafkaResponseRouterActor;
 import com.example.cluster.commands.*;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.typed.ActorRef;
 import org.apache.pekko.actor.typed.ActorSystem;
 import org.apache.pekko.actor.typed.Behavior;
 import org.apache.pekko.actor.typed.Props;
 import org.apache.pekko.actor.typed.javadsl.AbstractBehavior;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
 import org.apache.pekko.actor.typed.javadsl.ActorContext;
 import org.apache.pekko.actor.typed.javadsl.Behaviors;
 import org.apache.pekko.actor.typed.javadsl.Receive;
+import org.apache.pekko.cluster.sharding.external.ExternalShardAllocationStrategy;
+import org.apache.pekko.cluster.sharding.typed.ShardingEnvelope;
 import org.apache.pekko.cluster.sharding.typed.javadsl.ClusterSharding;
 import org.apache.pekko.cluster.sharding.typed.javadsl.Entity;
+import org.apache.pekko.kafka.ConsumerRebalanceEvent;
+import org.apache.pekko.kafka.cluster.sharding.KafkaClusterSharding;
 import org.apache.pekko.management.javadsl.PekkoManagement;
+import org.apache.pekko.util.Timeout;
 import com.example.cluster.actors.CaseCompanionActor;
+import com.example.cluster.deployment.DeploymentStatusEngine;
+import com.example.cluster.kafka.KafkaUtil;
 import com.example.cluster.http.HttpServer;
+import com.example.cluster.sharding.LoadAwareShardAllocationStrategy;
+import com.example.cluster.sharding.ShardLoadTracker;
 import com.typesafe.config.Config;
 import kamon.Kamon;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Main application class that starts the Pekko cluster
  */
@@ -35,6 +51,19 @@ public class ClusterApp extends AbstractBehavior<Command> {
         }
     }
 
+    // the partition count of deployment-responses is known, ClusterA can start its entities (kafka-partition allocation)
+    private static final class ClusterAShardingResolved implements Command {
+        final KafkaClusterSharding.KafkaShardingMessageExtractor<Command> extractor;
+        final Throwable failure;
+        final int httpPort;
+
+        ClusterAShardingResolved(KafkaClusterSharding.KafkaShardingMessageExtractor<Command> extractor, Throwable failure, int httpPort) {
+            this.extractor = extractor;
+            this.failure = failure;
+            this.httpPort = httpPort;
+        }
+    }
+
     public static Behavior<Command> create() {
         return Behaviors.setup(context -> {
             ActorSystem<?> system = context.getSystem();
@@ -70,20 +99,64 @@ public class ClusterApp extends AbstractBehavior<Command> {
         Logger log = LoggerFactory.getLogger(ClusterApp.class);
         log.info("[ClusterApp] Starting as ClusterA (CaseResolverService)");
         context.getLog().info("[ClusterA] Starting CaseCompanionActor");
+        String allocation = system.settings().config().getString("case-companion.sharding.allocation");
+        switch (allocation) {
+            case "hashed":
+            case "load-aware":
+                startClusterA(context, system, httpPort, null);
+                break;
+            case "kafka-partition":
+                // shard ids are partitions of deployment-responses, so the partition count is asked from the broker first
+                var kafkaConfig = system.settings().config().getConfig("kafka");
+                context.pipeToSelf(
+                    KafkaClusterSharding.get(Adapter.toClassic(system)).<Command>messageExtractor(
+                        KafkaUtil.topicName(system, "deployment-responses"),
+                        system.settings().config().getDuration("case-companion.sharding.kafka-metadata-timeout"),
+                        KafkaUtil.consumerSettings(system, kafkaConfig.getString("consumer-group"))),
+                    (extractor, failure) -> new ClusterAShardingResolved(extractor, failure, httpPort));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown case-companion.sharding.allocation: '" + allocation + "'");
+        }
+    }
+
+    // partitionAligned null = default (hashed) shard ids, allocated least-shard or load-aware
+    private static void startClusterA(ActorContext<Command> context, ActorSystem<?> system, int httpPort,
+                                      KafkaClusterSharding.KafkaShardingMessageExtractor<Command> partitionAligned) {
         // Initialize sharding for ClusterA
         ClusterSharding sharding = ClusterSharding.get(system);
-        sharding.init(
-            Entity.of(
+        String allocation = system.settings().config().getString("case-companion.sharding.allocation");
+        Entity<Command, ShardingEnvelope<Command>> entity = Entity.of(
                 CaseCompanionActor.ENTITY_TYPE_KEY,
-                entityContext -> CaseCompanionActor.create(entityContext.getEntityId())
-            ).withEntityProps(Props.empty().withDispatcherFromConfig("pekko.actor.dispatchers.case-companion-dispatcher"))
-        );
-        system.log().info("✅ Initialized CaseCompanion sharding with dispatcher: case-companion-dispatcher");
+                entityContext -> CaseCompanionActor.createForConfiguredMode(entityContext.getEntityId(), system.settings().config())
+            ).withEntityProps(Props.empty().withDispatcherFromConfig("pekko.actor.dispatchers.case-companion-dispatcher"));
+        ActorRef<ConsumerRebalanceEvent> rebalanceListener = null;
+        if (partitionAligned != null) {
+            // shard id = partition of the caseId, the shard lives on the node the consumer group assigned that partition to:
+            // the rebalance listener of the deployment-responses consumer writes the assignments to ExternalShardAllocation
+            entity = entity
+                .withMessageExtractor(partitionAligned)
+                .withAllocationStrategy(new ExternalShardAllocationStrategy(system, CaseCompanionActor.ENTITY_TYPE_KEY.name(),
+                    Timeout.create(system.settings().config().getDuration("case-companion.sharding.kafka-metadata-timeout"))));
+            rebalanceListener = KafkaClusterSharding.get(Adapter.toClassic(system)).rebalanceListener(CaseCompanionActor.ENTITY_TYPE_KEY);
+        } else if ("load-aware".equals(allocation)) {
+            // default shard ids (the tracker's extractor, so entities count into the shard the coordinator knows),
+            // placed and moved by the load every node reports
+            entity = entity
+                .withMessageExtractor(ShardLoadTracker.get(system).messageExtractor())
+                .withAllocationStrategy(new LoadAwareShardAllocationStrategy(system));
+        }
+        sharding.init(entity);
+        system.log().info("✅ Initialized CaseCompanion sharding with dispatcher: case-companion-dispatcher, persistence mode: {}, allocation: {}",
+            system.settings().config().getString("case-companion.persistence.mode"),
+            partitionAligned == null ? allocation : "kafka-partition (" + partitionAligned.kafkaPartitions() + " partitions)");
         
         //in this router actor we inject logic, which will allow to find sharded CaseCompanionActor by caseId
+        //with kafka-partition allocation the entity is on this node for every response it consumes
         var kafkaConfig = system.settings().config().getConfig("kafka");
-        String responsesTopic = kafkaConfig.getConfig("topics").getString("deployment-responses");
+        String responsesTopic = KafkaUtil.topicName(system, "deployment-responses");
         String groupId = kafkaConfig.getString("consumer-group");
+        Duration deliveryTimeout = kafkaConfig.getDuration("consumer.delivery-timeout");
         
         context.spawn(
             KafkaResponseRouterActor.create(
@@ -91,21 +164,45 @@ public class ClusterApp extends AbstractBehavior<Command> {
                 responsesTopic,
                 groupId,
                 DeploymentStatusKafkaResponseCommand.class,
-                (response, ctx, sys) -> {
-                    ClusterSharding shardingCaseCompanon = ClusterSharding.get(sys);
-                    var entityRef = shardingCaseCompanon.entityRefFor(
-                        com.example.cluster.actors.CaseCompanionActor.ENTITY_TYPE_KEY,
-                        response.caseId
-                    );
-                    entityRef.tell(new DeploymentStatusArrivedCommand(response.caseId, response.toString()));
-                }
+                (response, ctx, sys) -> deliverDeploymentStatus(sys, response, deliveryTimeout),
+                rebalanceListener
             ),
             "kafka-router-actor-for-case-companion"
         );
+        // batch envelopes (kafka.batching): fanned out to the entities, the record is acked once all of them acked.
+        // Keyed by batchId, so not partition-aligned: most responses of a batch take a hop. Consumed whether batching is on here or not, so nodes with and without it can be mixed during a rollout
+        context.spawn(
+            KafkaResponseRouterActor.create(
+                system,
+                KafkaUtil.topicName(system, "deployment-response-batches"),
+                groupId,
+                DeploymentStatusResponseBatchCommand.class,
+                (batch, ctx, sys) -> {
+                    CompletableFuture<?>[] delivered = batch.responses.stream()
+                        .map(response -> deliverDeploymentStatus(sys, response, deliveryTimeout).toCompletableFuture())
+                        .toArray(CompletableFuture[]::new);
+                    return CompletableFuture.allOf(delivered).thenApply(done -> Done.getInstance());
+                }
+            ),
+            "kafka-router-actor-for-case-companion-batches"
+        );
         // Start HTTP server
         startHttpServer(context, system, sharding, httpPort);
     }
 
+    // routes one deployment status to the sharded CaseCompanionActor of its case, completes with the entity ack
+    private static CompletionStage<Done> deliverDeploymentStatus(
+            ActorSystem<?> system, DeploymentStatusKafkaResponseCommand response, Duration deliveryTimeout) {
+        var entityRef = ClusterSharding.get(system).entityRefFor(
+            com.example.cluster.actors.CaseCompanionActor.ENTITY_TYPE_KEY,
+            response.caseId
+        );
+        return entityRef.<Done>ask(
+            ackTo -> new DeploymentStatusArrivedCommand(response.caseId, response.toString(), ackTo, response.requestId),
+            deliveryTimeout
+        );
+    }
+
     private static void initializeClusterB(ActorContext<Command> context, ActorSystem<?> system, int httpPort) {
         Logger log = LoggerFactory.getLogger(ClusterApp.class);
         log.info("[ClusterApp] Starting as ClusterB (OpsService)");
@@ -116,7 +213,7 @@ public class ClusterApp extends AbstractBehavior<Command> {
             Entity.of(
                 com.example.cluster.actors.DeploymentMonitoringActor.ENTITY_TYPE_KEY,
                 entityContext -> com.example.cluster.actors.DeploymentMonitoringActor.create(entityContext.getEntityId())
-            )
+            ).withEntityProps(Props.empty().withDispatcherFromConfig("pekko.actor.dispatchers.deployment-monitoring-dispatcher"))
         );
         // Start HTTP server (no sharding needed for ClusterB)
         HttpServer httpServer = new HttpServer(system, null);
@@ -130,10 +227,16 @@ public class ClusterApp extends AbstractBehavior<Command> {
                 return null;
             });
 
+        // polls health sources from now on, so the first snapshot is ready before requests come in
+        DeploymentStatusEngine deploymentStatus = DeploymentStatusEngine.get(system);
+        boolean answerFromEntity = "entity".equals(system.settings().config().getString("deployment-status.answer-from"));
+
         //in this router actor we inject logic, which will allow to find sharded DeploymentMonitoringActor by caseId
+        //or (answer-from = node) answer right here from the snapshot of this node
         var kafkaConfig = system.settings().config().getConfig("kafka");
-        String topic = kafkaConfig.getConfig("topics").getString("deployment-requests");
+        String topic = KafkaUtil.topicName(system, "deployment-requests");
         String groupId = kafkaConfig.getString("consumer-group");
+        Duration deliveryTimeout = kafkaConfig.getDuration("consumer.delivery-timeout");
 
 
         context.spawn(
@@ -143,16 +246,34 @@ public class ClusterApp extends AbstractBehavior<Command> {
                 groupId,
                 DeploymentStatusRequestCommand.class,
                 (request, ctx, sys) -> {
+                    if (!answerFromEntity) {
+                        return deploymentStatus.respond(request);
+                    }
                     ClusterSharding deploymentActorSharding = ClusterSharding.get(sys);
                     var entityRef = deploymentActorSharding.entityRefFor(
                         com.example.cluster.actors.DeploymentMonitoringActor.ENTITY_TYPE_KEY,
                         request.caseId
                     );
-                    entityRef.tell(new WrappedDeploymentStatusRequestCommand(request));
+                    return entityRef.<Done>ask(
+                        ackTo -> new WrappedDeploymentStatusRequestCommand(request, ackTo),
+                        deliveryTimeout
+                    );
                 }
             ),
             "kafka-router-actor-for-deployment-requests"
         );
+        // batch envelopes (kafka.batching) are always answered from the snapshot of this node, in one record:
+        // a detour over per-case entities would split the answer into single records again
+        context.spawn(
+            KafkaResponseRouterActor.create(
+                system,
+                KafkaUtil.topicName(system, "deployment-request-batches"),
+                groupId,
+                DeploymentStatusRequestBatchCommand.class,
+                (batch, ctx, sys) -> deploymentStatus.respondBatch(batch)
+            ),
+            "kafka-router-actor-for-deployment-request-batches"
+        );
     }
 
     private static void startHttpServer(ActorContext<Command> context, ActorSystem<?> system, 
@@ -182,6 +303,7 @@ public class ClusterApp extends AbstractBehavior<Command> {
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
             .onMessage(StartComplete.class, this::onStartComplete)
+            .onMessage(ClusterAShardingResolved.class, this::onClusterAShardingResolved)
             .build();
     }
 
@@ -190,6 +312,15 @@ public class ClusterApp extends AbstractBehavior<Command> {
         return this;
     }
 
+    private Behavior<Command> onClusterAShardingResolved(ClusterAShardingResolved message) {
+        if (message.failure != null) {
+            // without shard ids there are no entities, better no node than a node that takes requests it cannot serve
+            throw new IllegalStateException("Partition count of deployment-responses unknown, cannot start CaseCompanion sharding", message.failure);
+        }
+        startClusterA(getContext(), getContext().getSystem(), message.httpPort, message.extractor);
+        return this;
+    }
+
     public static void main(String[] args) {
         Kamon.init();
         Logger logger = LoggerFactory.getLogger(ClusterApp.class);
@@ -0,0 +1,124 @@
+package com.example.cluster.actors;
+
+import com.example.cluster.commands.*;
+import com.example.cluster.states.State;
+import com.example.cluster.nodelog.NodeInfoLogger;
+import com.example.cluster.trace.EntityLifecycleEvent;
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.PostStop;
+import org.apache.pekko.actor.typed.javadsl.ActorContext;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.persistence.typed.PersistenceId;
+import org.apache.pekko.persistence.typed.state.RecoveryCompleted;
+import org.apache.pekko.persistence.typed.state.javadsl.CommandHandler;
+import org.apache.pekko.persistence.typed.state.javadsl.DurableStateBehavior;
+import org.apache.pekko.persistence.typed.state.javadsl.ReplyEffect;
+import org.apache.pekko.persistence.typed.state.javadsl.SignalHandler;
+import kamon.Kamon;
+import kamon.metric.MeasurementUnit;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Durable-state case entity: the State row is upserted on every resolution instead of appending an event.
+ *
+ * The only thing the case keeps is the resolve count, nobody reads its history, so one row per case
+ * in durable_state is enough - no journal growth, no snapshots, recovery is a single row read.
+ * Same entity type key, same commands and same replies as CaseCompanionActor,
+ * the mode is chosen by case-companion.persistence.mode.
+ */
+public class CaseCompanionDurableStateActor extends DurableStateBehavior<Command, State> {
+
+    private final String caseId;
+    private final ActorContext<Command> context;
+    private final CaseResolutionPipeline pipeline;
+    // entity start, to compare recovery time with the event-sourced mode
+    private final long startedNanos = System.nanoTime();
+
+    public static Behavior<Command> create(String caseId) {
+        return Behaviors.setup(context -> new CaseCompanionDurableStateActor(PersistenceId.of("CaseCompanion", caseId), caseId, context));
+    }
+
+    private CaseCompanionDurableStateActor(PersistenceId persistenceId, String caseId, ActorContext<Command> context) {
+        super(persistenceId);
+        this.caseId = caseId;
+        this.context = context;
+        this.pipeline = new CaseResolutionPipeline(caseId, context);
+        lifecycle(EntityLifecycleEvent.STARTED, 0);
+    }
+
+    private void lifecycle(String transition, long micros) {
+        EntityLifecycleEvent.emit(CaseCompanionActor.ENTITY_TYPE_KEY.name(), caseId, NodeInfoLogger.getNodeInfo(context), transition, micros);
+    }
+
+    @Override
+    public State emptyState() {
+        return State.empty(caseId);
+    }
+
+    @Override
+    public SignalHandler<State> signalHandler() {
+        return newSignalHandlerBuilder()
+                .onSignal(RecoveryCompleted.instance(), state -> {
+                    long recoveryMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedNanos);
+                    Kamon.histogram("case-companion.recovery-time", MeasurementUnit.time().microseconds())
+                            .withTag("mode", "durable-state")
+                            .record(recoveryMicros);
+                    context.getLog().debug("[CaseCompanionDurableStateActor] Recovered case {} (resolveCount {}) in {} us",
+                            caseId, state.getResolveCount(), recoveryMicros);
+                    lifecycle(EntityLifecycleEvent.RECOVERED, recoveryMicros);
+                })
+                .onSignal(PostStop.instance(), state -> {
+                    pipeline.stopped();
+                    lifecycle(EntityLifecycleEvent.STOPPED, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedNanos));
+                })
+                .build();
+    }
+
+    @Override
+    public CommandHandler<Command, State> commandHandler() {
+        return newCommandHandlerBuilder()
+                .forAnyState()
+                .onCommand(ResolveCaseCommand.class, this::onResolveCase)
+                .onCommand(AnalyzeLogResponseCommand.class, this::onWrappedLogAnalysisResponse)
+                .onCommand(AnalyzeLogRejectedCommand.class, this::onLogAnalysisRejected)
+                .onCommand(DeploymentRequestSentCommand.class, this::onDeploymentRequestSent)
+                .onCommand(DeploymentStatusArrivedCommand.class, this::onDeploymentStatusArrived)
+                .build();
+    }
+
+    private ReplyEffect<State> onResolveCase(State state, ResolveCaseCommand command) {
+        pipeline.start(command);
+        return Effect().noReply();
+    }
+
+    private ReplyEffect<State> onWrappedLogAnalysisResponse(State state, AnalyzeLogResponseCommand response) {
+        pipeline.onLogAnalysisResponse(response);
+        return Effect().noReply();
+    }
+
+    private ReplyEffect<State> onLogAnalysisRejected(State state, AnalyzeLogRejectedCommand rejected) {
+        pipeline.onLogAnalysisRejected(rejected);
+        return Effect().noReply();
+    }
+
+    private ReplyEffect<State> onDeploymentRequestSent(State state, DeploymentRequestSentCommand sent) {
+        pipeline.onDeploymentRequestSent(sent);
+        return Effect().noReply();
+    }
+
+    private ReplyEffect<State> onDeploymentStatusArrived(State state, DeploymentStatusArrivedCommand msg) {
+        State newState = state.withIncrementedResolveCount();
+        Runnable reply = pipeline.onDeploymentStatusArrived(msg, newState.getResolveCount());
+        if (reply == null) {
+            return Effect().noReply();
+        }
+
+        // upsert the whole state row, reply once it is stored
+        return Effect()
+                .persist(newState)
+                .thenRun(stored -> reply.run())
+                .thenNoReply();
+    }
+}
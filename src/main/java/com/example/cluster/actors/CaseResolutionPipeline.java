@@ -0,0 +1,413 @@
+package com.example.cluster.actors;
+
+import com.example.cluster.commands.*;
+import com.example.cluster.deadline.Deadlines;
+import com.example.cluster.kafka.DeploymentRequestBatcher;
+import com.example.cluster.loganalysis.LogAnalysisWorkerPool;
+import com.example.cluster.metrics.PipelineMetrics;
+import com.example.cluster.nodelog.NodeInfoLogger;
+import com.example.cluster.nodelog.PipelineLog;
+import com.example.cluster.reply.ReplyHandle;
+import com.example.cluster.sharding.ShardLoadTracker;
+import kamon.Kamon;
+import kamon.metric.Counter;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.typed.javadsl.ActorContext;
+import org.apache.pekko.cluster.pubsub.DistributedPubSub;
+import org.apache.pekko.cluster.pubsub.DistributedPubSubMediator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The case resolution stages that do not depend on how the case counter is persisted:
+ * log analysis, the Kafka round trip to ClusterB and the reply to whoever waits.
+ *
+ * Shared by the event-sourced CaseCompanionActor and the durable-state CaseCompanionDurableStateActor,
+ * they only differ in how they persist the incremented resolve count before replying.
+ * Holds the transient (not persisted) state of the running resolution, so one instance per entity.
+ *
+ * Concurrent requests for the same case are coalesced: at most one resolution runs per case,
+ * every request that arrives meanwhile is added to its waiters and gets the same answer.
+ * case-companion.coalescing.late-joiners decides about requests that arrive after the log analysis
+ * of the running resolution is done (so its result cannot reflect them):
+ * - "join": they get the result of the running resolution anyway
+ * - "rerun": they wait for a fresh resolution, started as soon as the running one finished
+ * Either way the resolve count grows by one per resolution run, not per request.
+ *
+ * Every request carries the client's deadline. A resolution goes on as long as one of its waiters still waits
+ * (the latest deadline), past that it is dropped at the next stage: before log analysis, before the Kafka
+ * request, before persisting. Dropped work gets no reply, the ReplyRegistry already answered "timeout".
+ */
+public class CaseResolutionPipeline {
+
+    enum LateJoinerPolicy { JOIN, RERUN }
+
+    // caseId of the answer when the resolution was not even started (node overloaded)
+    public static final String REJECTED = "rejected";
+
+    // Artery hops between the Kafka consumer and the entity (0 with case-companion.sharding.allocation = kafka-partition)
+    private static final Counter consumedHere = Kamon.counter("kafka.delivery.hops").withTag("entity", "case-companion").withTag("hops", "0");
+    private static final Counter consumedElsewhere = Kamon.counter("kafka.delivery.hops").withTag("entity", "case-companion").withTag("hops", "1");
+    // work dropped because every request waiting for it is past its deadline
+    private static final Counter droppedOnArrival = Deadlines.dropped("case-companion");
+    private static final Counter droppedBeforeDeploymentRequest = Deadlines.dropped("deployment-request");
+    private static final Counter droppedBeforePersist = Deadlines.dropped("persist");
+    private static final Counter droppedAwaitingDeploymentStatus = Deadlines.dropped("awaiting-deployment-status");
+
+    private final String caseId;
+    private final ActorContext<Command> context;
+    private final org.apache.pekko.actor.ActorRef mediator;
+    private final LateJoinerPolicy lateJoinerPolicy;
+    private final PipelineMetrics metrics;
+    private final PipelineLog pipelineLog;
+    private final ShardLoadTracker shardLoad;
+
+    // the resolution in flight, null when idle
+    private Resolution current = null;
+    // a log analysis of this case is submitted and not answered yet (counted in ShardLoadTracker)
+    private boolean analysisInFlight = false;
+    // late joiners with the rerun policy, they start the next resolution
+    private final List<Waiter> nextRunWaiters = new ArrayList<>();
+
+    CaseResolutionPipeline(String caseId, ActorContext<Command> context) {
+        this.caseId = caseId;
+        this.context = context;
+        this.mediator = DistributedPubSub.get(context.getSystem()).mediator();
+        this.lateJoinerPolicy = LateJoinerPolicy.valueOf(context.getSystem().settings().config()
+                .getString("case-companion.coalescing.late-joiners").toUpperCase().replace('-', '_'));
+        this.metrics = PipelineMetrics.get(context.getSystem());
+        this.pipelineLog = PipelineLog.get(context.getSystem());
+        this.shardLoad = ShardLoadTracker.get(context.getSystem());
+        shardLoad.entityStarted(caseId);
+    }
+
+    // PostStop of the entity
+    void stopped() {
+        analysisEnded();
+        shardLoad.entityStopped(caseId);
+    }
+
+    // Handle ResolveCase command - works for both local and remote, via ReplyRegistry or PubSub
+    void start(ResolveCaseCommand command) {
+        shardLoad.requestReceived(caseId);
+        boolean expired = Deadlines.expired(command.getDeadlineMillis());
+        if (command.getAcceptedAtMillis() != 0) {
+            metrics.recordSinceEpochMillis(PipelineMetrics.ACCEPT,
+                    expired ? PipelineMetrics.EXPIRED : PipelineMetrics.OK, caseId, command.getAcceptedAtMillis());
+        }
+        if (expired) {
+            // the client gave up while the command was on its way or in the mailbox
+            droppedOnArrival.increment();
+            logSampled("[CaseCompanionActor] Resolve request for case {} past its deadline, dropped", caseId);
+            return;
+        }
+        if (current != null && current.logAnalysisDone && Deadlines.expired(current.deadlineMillis())) {
+            // everyone waiting for the running resolution gave up and its deployment status may never come
+            // (ClusterB drops expired requests): start over; a late answer for it is told apart by its requestId
+            abandonExpired(droppedAwaitingDeploymentStatus, "while waiting for the deployment status");
+        }
+        Waiter waiter;
+        if (command.hasReplyHandle()) {
+            logSampled("pocrun {} on Node {} {} (reply request: {})",
+                    "\uD83D\uDC31", NodeInfoLogger.getNodeInfo(context), "starts case resolution", command.getReplyHandle().requestId);
+            waiter = new Waiter(command.getReplyHandle(), null, command.getDeadlineMillis());
+        } else if (command.hasResponseTopic()) {
+            logSampled("pocrun {} on Node {} {} (PubSub topic: {})",
+                    "\uD83D\uDC31", NodeInfoLogger.getNodeInfo(context), "starts case resolution", command.getResponseTopicId());
+            waiter = new Waiter(null, command.getResponseTopicId(), command.getDeadlineMillis());
+        } else {
+            // Async case: no response expected
+            throw new RuntimeException("I did not intend to support a case here, where client gets async response");
+        }
+
+        if (current == null) {
+            startResolution(List.of(waiter));
+        } else if (!current.logAnalysisDone || lateJoinerPolicy == LateJoinerPolicy.JOIN) {
+            current.waiters.add(waiter);
+            logSampled("[CaseCompanionActor] Case {} already resolving, request joins it ({} waiters)",
+                    caseId, current.waiters.size());
+        } else {
+            nextRunWaiters.add(waiter);
+            logSampled("[CaseCompanionActor] Case {} past log analysis, request waits for the next run ({} waiting)",
+                    caseId, nextRunWaiters.size());
+        }
+    }
+
+    private void startResolution(List<Waiter> waiters) {
+        current = new Resolution(waiters);
+        try {
+            doResolveCase(caseId);
+        } catch (Exception ex) {
+            context.getLog().error("[CaseCompanionActor] Error in onResolveCase: {}", ex.toString());
+            throw ex;
+        }
+    }
+
+    private void doResolveCase(String caseId) {
+        //stage 1 - hand the log analysis to the worker pool of this node
+        logSampled("[CaseCompanionActor] Starting case resolution for case: {}", caseId);
+        AnalyzeLogRequestCommand logAnalysisRequest = new AnalyzeLogRequestCommand(caseId, context.getSelf(), current.deadlineMillis());
+        LogAnalysisWorkerPool.get(context.getSystem()).submit(logAnalysisRequest);
+        if (!analysisInFlight) {
+            analysisInFlight = true;
+            shardLoad.analysisStarted(caseId);
+        }
+    }
+
+    private void analysisEnded() {
+        if (analysisInFlight) {
+            analysisInFlight = false;
+            shardLoad.analysisFinished(caseId);
+        }
+    }
+
+    void onLogAnalysisResponse(AnalyzeLogResponseCommand response) {
+        //stage 2 - get reply from the local actor with result of the log analysis
+        logSampled("pocrun {} on Node {} {}", "\uD83D\uDC31", NodeInfoLogger.getNodeInfo(context), "gets data from LogAnalysisActor");
+        analysisEnded();
+        if (current == null) {
+            context.getLog().warn("[CaseCompanionActor] Log analysis for case {} arrived with no resolution in flight, ignored", caseId);
+            return;
+        }
+        current.logAnalysisResponses.add(response.toString());
+        current.logAnalysisDone = true;
+        if (Deadlines.expired(current.deadlineMillis())) {
+            abandonExpired(droppedBeforeDeploymentRequest, "before the deployment request");
+            return;
+        }
+        current.reportStage(CaseProgressCommand.LOG_ANALYSIS_DONE);
+
+        //stage 3 - send message to 2-d cluster using Kafka
+        consultDeploymentActorInOtherCluster(response);
+    }
+
+    // the pool of this node is full: everyone waiting for this case gets the rejection now, nothing is persisted
+    void onLogAnalysisRejected(AnalyzeLogRejectedCommand rejected) {
+        analysisEnded();
+        if (current == null) {
+            return;
+        }
+        if (rejected.deadlineExpired) {
+            // dropped for the deadline the analysis was submitted with; requests that joined later may still wait
+            List<Waiter> alive = new ArrayList<>();
+            current.waiters.stream().filter(waiter -> !waiter.expired()).forEach(alive::add);
+            current = null;
+            if (alive.isEmpty()) {
+                startNextRun();
+            } else {
+                logSampled("[CaseCompanionActor] Log analysis of case {} dropped for its deadline, rerun for {} waiter(s) still waiting",
+                        caseId, alive.size());
+                startResolution(alive);
+            }
+            return;
+        }
+        List<Waiter> waiters = new ArrayList<>(current.waiters);
+        waiters.addAll(nextRunWaiters);
+        current = null;
+        nextRunWaiters.clear();
+        context.getLog().warn("[CaseCompanionActor] Log analysis of case {} rejected, answering {} waiter(s): {}",
+                caseId, waiters.size(), rejected.reason);
+        // same convention as the "timeout" answer of the ReplyRegistry
+        CaseResolvedMessage response = new CaseResolvedMessage(REJECTED, rejected.reason);
+        waiters.forEach(waiter -> waiter.reply(response));
+    }
+
+    private void consultDeploymentActorInOtherCluster(AnalyzeLogResponseCommand response) {
+        //the response is routed to this stateful actor by case ID, the request ID tells whether it answers
+        //the running resolution or one that was dropped for its deadline (ClusterB may never answer that one)
+        String requestId = UUID.randomUUID().toString();
+        current.deploymentRequestId = requestId;
+        try {
+            logSampled("pocrun {} on Node {} {}", "\uD83D\uDC31", NodeInfoLogger.getNodeInfo(context), "calls DeploymentActor in other cluster via Kafka");
+            DeploymentStatusRequestCommand req = new DeploymentStatusRequestCommand(requestId, response.caseId);
+            long sentNanos = System.nanoTime();
+            current.deploymentRequestSentNanos = sentNanos;
+            // one record per request, or collected with the requests of other cases into a batch record (kafka.batching)
+            CompletionStage<Done> sent = DeploymentRequestBatcher.get(context.getSystem()).send(req, current.deadlineMillis())
+                .whenComplete((done, ex) ->
+                    metrics.recordSince(PipelineMetrics.KAFKA_PRODUCE, ex != null ? PipelineMetrics.ERROR : PipelineMetrics.OK, req.caseId, sentNanos));
+            // the outcome goes through the mailbox, a failed send must end the resolution (see onDeploymentRequestSent)
+            context.pipeToSelf(sent, (done, ex) -> new DeploymentRequestSentCommand(req.caseId, requestId, ex));
+        } catch (Exception e) {
+            onDeploymentRequestSent(new DeploymentRequestSentCommand(caseId, requestId, e));
+        }
+    }
+
+    /**
+     * Sent: the waiters see the stage. Not sent (producer queue full, batch failed): ClusterB never answers,
+     * so the resolution ends here, its waiters get the rejection right away instead of their timeout and
+     * later requests start a new run instead of joining the dead one.
+     * An outcome for a resolution that is not the running one anymore is ignored.
+     */
+    void onDeploymentRequestSent(DeploymentRequestSentCommand sent) {
+        if (current == null || !sent.requestId.equals(current.deploymentRequestId)) {
+            return;
+        }
+        if (sent.failure == null) {
+            current.reportStage(CaseProgressCommand.DEPLOYMENT_REQUEST_SENT);
+            return;
+        }
+        Throwable cause = sent.failure instanceof CompletionException && sent.failure.getCause() != null
+            ? sent.failure.getCause() : sent.failure;
+        List<Waiter> waiters = current.waiters;
+        current = null;
+        context.getLog().error("[CaseCompanionActor] Kafka request for case {} not sent, answering {} waiter(s): {}",
+                caseId, waiters.size(), cause.toString());
+        // same convention as a rejected log analysis
+        CaseResolvedMessage rejection = new CaseResolvedMessage(REJECTED, "Deployment status request not sent: " + cause.getMessage());
+        waiters.forEach(waiter -> waiter.reply(rejection));
+        startNextRun();
+    }
+
+    /**
+     * Stage 4 starts here: acks the Kafka delivery and builds the summary for the reply.
+     * The caller persists the new count and runs the returned reply after the write succeeded.
+     * Returns null when no resolution waits for this status (a redelivered response), then there is nothing to persist.
+     */
+    Runnable onDeploymentStatusArrived(DeploymentStatusArrivedCommand msg, int resolveCountAfterThisResolution) {
+        if (msg.ackTo != null) {
+            // the ack goes to the consumer's ask, a local ref means the response was consumed on this node
+            (msg.ackTo.path().address().hasLocalScope() ? consumedHere : consumedElsewhere).increment();
+            // delivery ack for the Kafka consumer, lets it commit the response offset
+            msg.ackTo.tell(Done.getInstance());
+        }
+        if (current == null || !current.logAnalysisDone
+                || (msg.requestId != null && !msg.requestId.equals(current.deploymentRequestId))) {
+            context.getLog().warn("[CaseCompanionActor] Deployment status for case {} arrived with no resolution waiting for it, ignored", caseId);
+            return null;
+        }
+        boolean expired = Deadlines.expired(current.deadlineMillis());
+        metrics.recordSince(PipelineMetrics.KAFKA_ROUND_TRIP,
+                expired ? PipelineMetrics.EXPIRED : PipelineMetrics.OK, caseId, current.deploymentRequestSentNanos);
+        if (expired) {
+            // nobody to reply to, nothing is persisted either
+            abandonExpired(droppedBeforePersist, "before persisting");
+            return null;
+        }
+        logSampled("pocrun {} on Node {} {}", "\uD83D\uDE80\uD83D\uDC31", NodeInfoLogger.getNodeInfo(context), "got response from actor in other cluster via Kafka");
+        Resolution finished = current;
+        current = null;
+        finished.reportStage(CaseProgressCommand.DEPLOYMENT_STATUS_ARRIVED);
+
+        String summary = buildSummary(finished.logAnalysisResponses, msg.deploymentStatusJson, resolveCountAfterThisResolution);
+
+        // late joiners (rerun policy) start their own resolution now, commands for it are stashed while the caller persists
+        startNextRun();
+
+        long persistStartedNanos = System.nanoTime();
+        return () -> {
+            // the runnable runs after the write succeeded
+            metrics.recordSince(PipelineMetrics.PERSIST, PipelineMetrics.OK, caseId, persistStartedNanos);
+            long replyStartedNanos = System.nanoTime();
+            CaseResolvedMessage response = new CaseResolvedMessage(caseId, summary);
+            logSampled("Replying to {} waiter(s) of case {}", finished.waiters.size(), caseId);
+            for (Waiter waiter : finished.waiters) {
+                waiter.reportStage(CaseProgressCommand.PERSISTED);
+                waiter.reply(response);
+            }
+            metrics.recordSince(PipelineMetrics.REPLY, PipelineMetrics.OK, caseId, replyStartedNanos);
+        };
+    }
+
+    // per-message INFO lines, only for the cases pipeline-log samples (JFR events cover all of them)
+    private void logSampled(String format, Object... args) {
+        if (pipelineLog.sampled(caseId)) {
+            context.getLog().info(format, args);
+        }
+    }
+
+    // every waiter of the running resolution gave up: forget it without replying
+    private void abandonExpired(Counter dropped, String stage) {
+        dropped.increment();
+        logSampled("[CaseCompanionActor] Resolution of case {} past the deadline of all {} waiter(s), dropped {}",
+                caseId, current.waiters.size(), stage);
+        current = null;
+        startNextRun();
+    }
+
+    private void startNextRun() {
+        List<Waiter> next = new ArrayList<>();
+        nextRunWaiters.stream().filter(waiter -> !waiter.expired()).forEach(next::add);
+        nextRunWaiters.clear();
+        if (!next.isEmpty()) {
+            startResolution(next);
+        }
+    }
+
+    public static String buildSummary(List<String> logAnalysisResponses, String deploymentStatusJson, int totalResolutions) {
+        return String.format(
+                "LogAnalysisResults: %s, DeploymentStatus: %s, TotalResolutions: %d",
+                logAnalysisResponses,
+                deploymentStatusJson,
+                totalResolutions
+        );
+    }
+
+    // one run of the stages, with everyone who gets its result
+    private static final class Resolution {
+        final List<Waiter> waiters;
+        final List<String> logAnalysisResponses = new ArrayList<>();
+        boolean logAnalysisDone = false;
+        // of the Kafka request to ClusterB, set when it is sent
+        String deploymentRequestId = null;
+        long deploymentRequestSentNanos = 0;
+
+        Resolution(List<Waiter> waiters) {
+            this.waiters = new ArrayList<>(waiters);
+        }
+
+        void reportStage(String stage) {
+            waiters.forEach(waiter -> waiter.reportStage(stage));
+        }
+
+        // the resolution is worth finishing as long as one of its waiters still waits
+        long deadlineMillis() {
+            long deadline = waiters.get(0).deadlineMillis;
+            for (Waiter waiter : waiters) {
+                deadline = Deadlines.latest(deadline, waiter.deadlineMillis);
+            }
+            return deadline;
+        }
+    }
+
+    // a request waiting for the answer: the ReplyRegistry handle of its node, or a PubSub topic
+    private final class Waiter {
+        final ReplyHandle replyHandle;
+        final String responseTopicId;
+        final long deadlineMillis;
+
+        Waiter(ReplyHandle replyHandle, String responseTopicId, long deadlineMillis) {
+            this.replyHandle = replyHandle;
+            this.responseTopicId = responseTopicId;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        boolean expired() {
+            return Deadlines.expired(deadlineMillis);
+        }
+
+        // only the registry path streams progress, PubSub waiters get the final answer only
+        void reportStage(String stage) {
+            if (replyHandle != null) {
+                replyHandle.reportStage(stage);
+            }
+        }
+
+        void reply(CaseResolvedMessage response) {
+            if (replyHandle != null) {
+                // Registry case: answer straight to the node that holds the HTTP request
+                replyHandle.reply(response);
+            } else {
+                // PubSub case: publish response to the distributed pub-sub topic
+                mediator.tell(new DistributedPubSubMediator.Publish(
+                        responseTopicId,
+                        new ResponseReceivedCommand(response)
+                ), org.apache.pekko.actor.ActorRef.noSender());
+            }
+        }
+    }
+}
@@ -1,20 +1,22 @@
 package com.example.cluster.actors;
 
+import org.apache.pekko.Done;
 import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.PostStop;
 import org.apache.pekko.actor.typed.javadsl.AbstractBehavior;
 import org.apache.pekko.actor.typed.javadsl.ActorContext;
 import org.apache.pekko.actor.typed.javadsl.Behaviors;
 import org.apache.pekko.actor.typed.javadsl.Receive;
 import org.apache.pekko.cluster.sharding.typed.javadsl.EntityTypeKey;
 import com.example.cluster.nodelog.NodeInfoLogger;
+import com.example.cluster.nodelog.PipelineLog;
 import com.example.cluster.commands.Command;
-import com.example.cluster.kafka.KafkaUtil;
 import com.example.cluster.commands.DeploymentStatusRequestCommand;
-import com.example.cluster.commands.DeploymentStatusKafkaResponseCommand;
 import com.example.cluster.commands.WrappedDeploymentStatusRequestCommand;
+import com.example.cluster.deployment.DeploymentStatusEngine;
+import com.example.cluster.trace.EntityLifecycleEvent;
 
-import java.util.List;
-import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 public class DeploymentMonitoringActor extends AbstractBehavior<Command> {
     public static final EntityTypeKey<Command> ENTITY_TYPE_KEY =
@@ -22,6 +24,8 @@ public class DeploymentMonitoringActor extends AbstractBehavior<Command> {
 
     private final String caseId;
     private final ActorContext<Command> context;
+    private final PipelineLog pipelineLog;
+    private final long startedNanos = System.nanoTime();
 
     public static Behavior<Command> create(String caseId) {
         return Behaviors.setup(ctx -> new DeploymentMonitoringActor(ctx, caseId));
@@ -31,30 +35,41 @@ public class DeploymentMonitoringActor extends AbstractBehavior<Command> {
         super(context);
         this.context = context;
         this.caseId = caseId;
+        this.pipelineLog = PipelineLog.get(context.getSystem());
+        EntityLifecycleEvent.emit(ENTITY_TYPE_KEY.name(), caseId, NodeInfoLogger.getNodeInfo(context),
+            EntityLifecycleEvent.STARTED, 0);
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
             .onMessage(WrappedDeploymentStatusRequestCommand.class, this::onDeploymentStatusRequest)
+            .onSignal(PostStop.class, signal -> {
+                EntityLifecycleEvent.emit(ENTITY_TYPE_KEY.name(), caseId, NodeInfoLogger.getNodeInfo(context),
+                    EntityLifecycleEvent.STOPPED, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedNanos));
+                return this;
+            })
             .build();
     }
 
     private Behavior<Command> onDeploymentStatusRequest(WrappedDeploymentStatusRequestCommand msg) {
         DeploymentStatusRequestCommand request = msg.request;
-        context.getLog().info("pocrun {} on Node {}  {} ", "\uD83D\uDC36", NodeInfoLogger.getNodeInfo(context), "got Kafka request to check deployment status");
-        // Mocked operation
-        List<String> healthy = Arrays.asList("service-a", "service-b", "service-c");
-        List<String> failed = Arrays.asList("service-x");
-        DeploymentStatusKafkaResponseCommand response = new DeploymentStatusKafkaResponseCommand(
-            request.requestId, request.caseId, healthy, failed
-        );
-        KafkaUtil.produce(context.getSystem(),
-            context.getSystem().settings().config().getConfig("kafka").getConfig("topics").getString("deployment-responses"),
-            request.requestId,
-            response
-        );
-        context.getLog().info("pocrun {} on Node {}  {} ", "\uD83D\uDC36", NodeInfoLogger.getNodeInfo(context), "sent response through Kafka with deployment status in it");
+        boolean logged = pipelineLog.sampled(request.caseId);
+        if (logged) {
+            context.getLog().info("pocrun {} on Node {}  {} ", "\uD83D\uDC36", NodeInfoLogger.getNodeInfo(context), "got Kafka request to check deployment status");
+        }
+        // answered from the node's DeploymentStatusEngine snapshot, no health check on the request path
+        DeploymentStatusEngine.get(context.getSystem()).respond(request).whenComplete((done, ex) -> {
+            if (ex != null) {
+                context.getSystem().log().error("[DeploymentMonitoringActor] Kafka response for case {} not sent: {}", request.caseId, ex.toString());
+            } else if (msg.ackTo != null) {
+                // the request offset is committed only once the response is safely in Kafka
+                msg.ackTo.tell(Done.getInstance());
+            }
+        });
+        if (logged) {
+            context.getLog().info("pocrun {} on Node {}  {} ", "\uD83D\uDC36", NodeInfoLogger.getNodeInfo(context), "sent response through Kafka with deployment status in it");
+        }
         return this;
     }
 
@@ -1,5 +1,6 @@
 package com.example.cluster.actors;
 
+import org.apache.pekko.actor.typed.ActorRef;
 import org.apache.pekko.actor.typed.Behavior;
 import org.apache.pekko.actor.typed.javadsl.AbstractBehavior;
 import org.apache.pekko.actor.typed.javadsl.ActorContext;
@@ -7,19 +8,35 @@ import org.apache.pekko.actor.typed.javadsl.Behaviors;
 import org.apache.pekko.actor.typed.javadsl.Receive;
 import com.example.cluster.commands.AnalyzeLogRequestCommand;
 import com.example.cluster.commands.AnalyzeLogResponseCommand;
+import com.example.cluster.commands.Command;
+import com.example.cluster.loganalysis.LogAnalysisExtension;
+import com.example.cluster.loganalysis.LogAnalysisReport;
+import com.example.cluster.metrics.PipelineMetrics;
 import com.example.cluster.nodelog.NodeInfoLogger;
+import com.example.cluster.nodelog.PipelineLog;
+
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * LogAnalysisActor that processes AnalyzeLogRequest messages
+ * Long-lived worker of LogAnalysisPoolActor: tells the pool when it is ready for the next request.
  */
 public class LogAnalysisActor extends AbstractBehavior<AnalyzeLogRequestCommand> {
 
-    public static Behavior<AnalyzeLogRequestCommand> create() {
-        return Behaviors.setup(LogAnalysisActor::new);
+    private final ActorRef<Command> pool;
+    private final PipelineLog pipelineLog;
+
+    public static Behavior<AnalyzeLogRequestCommand> create(ActorRef<Command> pool) {
+        return Behaviors.setup(context -> new LogAnalysisActor(context, pool));
     }
 
-    private LogAnalysisActor(ActorContext<AnalyzeLogRequestCommand> context) {
+    private LogAnalysisActor(ActorContext<AnalyzeLogRequestCommand> context, ActorRef<Command> pool) {
         super(context);
+        this.pool = pool;
+        this.pipelineLog = PipelineLog.get(context.getSystem());
+        // also runs after a restart, a failed request frees the worker this way
+        pool.tell(new LogAnalysisPoolActor.WorkerReady(context.getSelf()));
     }
 
     @Override
@@ -30,18 +47,27 @@ public class LogAnalysisActor extends AbstractBehavior<AnalyzeLogRequestCommand>
     }
 
     private Behavior<AnalyzeLogRequestCommand> onAnalyzeLog(AnalyzeLogRequestCommand msg) {
-        getContext().getLog().info("\uD83D\uDD0D [LogAnalysisActor] Processing log analysis request for case: {}", msg.getCaseId());
-        
+        if (pipelineLog.sampled(msg.getCaseId())) {
+            getContext().getLog().info("\uD83D\uDD0D [LogAnalysisActor] Processing log analysis request for case: {}", msg.getCaseId());
+        }
+
         processAnalyzeLogRequest(msg);
-        
-        return Behaviors.stopped(); // stateless, stop after handling
+
+        pool.tell(new LogAnalysisPoolActor.WorkerReady(getContext().getSelf()));
+        return this;
     }
 
     private void processAnalyzeLogRequest(AnalyzeLogRequestCommand msg) {
-        getContext().getLog().info("pocrun {} on Node {}  {} ", "\uD83D\uDC2D", NodeInfoLogger.getNodeInfo(getContext()), "got request to perform log analysis");
+        if (pipelineLog.sampled(msg.getCaseId())) {
+            getContext().getLog().info("pocrun {} on Node {}  {} ", "\uD83D\uDC2D", NodeInfoLogger.getNodeInfo(getContext()), "got request to perform log analysis");
+        }
+        PipelineMetrics metrics = PipelineMetrics.get(getContext().getSystem());
+        long started = System.nanoTime();
         try {
             doProcessAnalyzeLogRequest(msg);
+            metrics.recordSince(PipelineMetrics.LOG_ANALYSIS, PipelineMetrics.OK, msg.getCaseId(), started);
         } catch (Exception ex) {
+            metrics.recordSince(PipelineMetrics.LOG_ANALYSIS, PipelineMetrics.ERROR, msg.getCaseId(), started);
             getContext().getLog().error("[LogAnalysisActor] Error processing log analysis request: {}", ex.toString());
             throw ex;
         }
@@ -51,18 +77,19 @@ public class LogAnalysisActor extends AbstractBehavior<AnalyzeLogRequestCommand>
         String data = "";
         String replyFrom = getContext().getSelf().path().toString();
         try {
-            long sleepMillis = java.util.concurrent.ThreadLocalRandom.current().nextLong(300, 2001);
             getContext().getLog().debug("\uD83D\uDD0D [LogAnalysisActor] Starting log analysis for case: {}", msg.getCaseId());
-            //simulate some processing time
-            try {
-                Thread.sleep(sleepMillis);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Processing interrupted", e);
+            LogAnalysisExtension logAnalysis = LogAnalysisExtension.get(getContext().getSystem());
+            List<Path> files = logAnalysis.caseLogFiles(msg.getCaseId());
+            LogAnalysisReport report = files.isEmpty()
+                ? LogAnalysisReport.empty()
+                : logAnalysis.analyze(msg.getCaseId(), files);
+            data = files.isEmpty()
+                ? "No logs found for case " + msg.getCaseId()
+                : report.summary();
+            if (pipelineLog.sampled(msg.getCaseId())) {
+                getContext().getLog().info("pocrun {} on Node {}  {} ", "\uD83D\uDC2D", NodeInfoLogger.getNodeInfo(getContext()), "will reply with log analysis data");
             }
-            data = "Mock log analysis for case " + msg.getCaseId();
-            getContext().getLog().info("pocrun {} on Node {}  {} ", "\uD83D\uDC2D", NodeInfoLogger.getNodeInfo(getContext()), "will reply with log analysis data");
-            msg.getReplyTo().tell(new AnalyzeLogResponseCommand( msg.getCaseId(), data, replyFrom));
+            msg.getReplyTo().tell(new AnalyzeLogResponseCommand(msg.getCaseId(), data, replyFrom, report));
         } catch (Exception ex) {
             data = "Error processing log analysis: " + ex.getMessage();
             getContext().getLog().error("[LogAnalysisActor] Failed in log analysis: caseId={}, reason={}",
@@ -73,7 +100,7 @@ public class LogAnalysisActor extends AbstractBehavior<AnalyzeLogRequestCommand>
                 getContext().getLog().error("[LogAnalysisActor] Could not deliver error response: caseId={}, reason={}"
                    , msg.getCaseId(), sendEx.toString());
             }
-            throw ex;
+            throw new RuntimeException("Log analysis failed for case " + msg.getCaseId(), ex);
         }
     }
 } 
\ No newline at end of file
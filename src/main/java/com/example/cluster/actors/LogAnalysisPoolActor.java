@@ -0,0 +1,161 @@
+package com.example.cluster.actors;
+
+import com.example.cluster.commands.AnalyzeLogRejectedCommand;
+import com.example.cluster.commands.AnalyzeLogRequestCommand;
+import com.example.cluster.commands.Command;
+import com.example.cluster.deadline.Deadlines;
+import com.example.cluster.metrics.PipelineMetrics;
+import kamon.Kamon;
+import kamon.metric.Counter;
+import kamon.metric.Histogram;
+import kamon.metric.MeasurementUnit;
+import kamon.metric.RangeSampler;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.DispatcherSelector;
+import org.apache.pekko.actor.typed.SupervisorStrategy;
+import org.apache.pekko.actor.typed.javadsl.AbstractBehavior;
+import org.apache.pekko.actor.typed.javadsl.ActorContext;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.actor.typed.javadsl.Receive;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-node pool of long-lived LogAnalysisActor workers (see LogAnalysisWorkerPool).
+ *
+ * Requests wait in one bounded FIFO queue, a worker asks for the next one when it is free (pull),
+ * so a slow case never holds up requests queued behind it while other workers are idle
+ * and no worker mailbox ever holds more than one request.
+ * When the queue is full the request is rejected right away with AnalyzeLogRejectedCommand.
+ * A request whose deadline passed (on arrival or while queued) is dropped the same way, flagged deadlineExpired.
+ *
+ * Metrics:
+ * - log-analysis.pool.queued: requests waiting for a worker
+ * - log-analysis.pool.busy: workers analysing
+ * - log-analysis.pool.rejected: requests rejected because the queue was full
+ * - log-analysis.pool.queue-time: time from arrival to a worker picking it up
+ * - deadline.dropped{stage=log-analysis-pool}: requests dropped because of their deadline
+ * - case-resolution.stage-time{stage=log-analysis-queue}: queue time again, per node and outcome (ok / expired)
+ */
+public class LogAnalysisPoolActor extends AbstractBehavior<Command> {
+
+    // a worker is free: sent on start, after every finished request and after a restart (failed request)
+    static final class WorkerReady implements Command {
+        final ActorRef<AnalyzeLogRequestCommand> worker;
+
+        WorkerReady(ActorRef<AnalyzeLogRequestCommand> worker) {
+            this.worker = worker;
+        }
+    }
+
+    private static final class Queued {
+        final AnalyzeLogRequestCommand request;
+        final long enqueuedNanos = System.nanoTime();
+
+        Queued(AnalyzeLogRequestCommand request) {
+            this.request = request;
+        }
+    }
+
+    private final int queueSize;
+    private final Deque<Queued> queue = new ArrayDeque<>();
+    private final Deque<ActorRef<AnalyzeLogRequestCommand>> idleWorkers = new ArrayDeque<>();
+    private final Set<ActorRef<AnalyzeLogRequestCommand>> busyWorkers = new HashSet<>();
+
+    private final RangeSampler queuedSampler = Kamon.rangeSampler("log-analysis.pool.queued");
+    private final RangeSampler busySampler = Kamon.rangeSampler("log-analysis.pool.busy");
+    private final Counter rejectedCounter = Kamon.counter("log-analysis.pool.rejected");
+    private final Counter expiredCounter = Deadlines.dropped("log-analysis-pool");
+    private final Histogram queueTime = Kamon.histogram("log-analysis.pool.queue-time", MeasurementUnit.time().microseconds());
+    private final PipelineMetrics metrics;
+
+    public static Behavior<Command> create(int workers, int queueSize) {
+        return Behaviors.setup(context -> new LogAnalysisPoolActor(context, workers, queueSize));
+    }
+
+    private LogAnalysisPoolActor(ActorContext<Command> context, int workers, int queueSize) {
+        super(context);
+        this.queueSize = queueSize;
+        this.metrics = PipelineMetrics.get(context.getSystem());
+        DispatcherSelector dispatcher = DispatcherSelector.fromConfig("pekko.actor.dispatchers.log-analysis-dispatcher");
+        for (int i = 0; i < workers; i++) {
+            // a failed analysis restarts the worker, which reports itself ready again
+            context.spawn(
+                Behaviors.supervise(LogAnalysisActor.create(context.getSelf())).onFailure(SupervisorStrategy.restart()),
+                "worker-" + i,
+                dispatcher);
+        }
+    }
+
+    @Override
+    public Receive<Command> createReceive() {
+        return newReceiveBuilder()
+            .onMessage(AnalyzeLogRequestCommand.class, this::onRequest)
+            .onMessage(WorkerReady.class, this::onWorkerReady)
+            .build();
+    }
+
+    private Behavior<Command> onRequest(AnalyzeLogRequestCommand request) {
+        if (Deadlines.expired(request.deadlineMillis)) {
+            dropExpired(request);
+            return this;
+        }
+        ActorRef<AnalyzeLogRequestCommand> worker = idleWorkers.pollFirst();
+        if (worker != null) {
+            queueTime.record(0);
+            metrics.recordNanos(PipelineMetrics.LOG_ANALYSIS_QUEUE, PipelineMetrics.OK, request.getCaseId(), 0);
+            dispatch(worker, request);
+        } else if (queue.size() < queueSize) {
+            queue.addLast(new Queued(request));
+            queuedSampler.increment();
+        } else {
+            rejectedCounter.increment();
+            getContext().getLog().warn("[LogAnalysisPoolActor] Queue full ({} waiting), log analysis of case {} rejected",
+                queue.size(), request.getCaseId());
+            request.getReplyTo().tell(new AnalyzeLogRejectedCommand(request.getCaseId(),
+                "Log analysis queue full (" + queueSize + " waiting), retry later"));
+        }
+        return this;
+    }
+
+    private Behavior<Command> onWorkerReady(WorkerReady ready) {
+        if (busyWorkers.remove(ready.worker)) {
+            busySampler.decrement();
+        } else if (idleWorkers.contains(ready.worker)) {
+            return this;
+        }
+        Queued next = queue.pollFirst();
+        // whatever expired while waiting is dropped here, the worker only gets work somebody still waits for
+        while (next != null && Deadlines.expired(next.request.deadlineMillis)) {
+            queuedSampler.decrement();
+            metrics.recordSince(PipelineMetrics.LOG_ANALYSIS_QUEUE, PipelineMetrics.EXPIRED, next.request.getCaseId(), next.enqueuedNanos);
+            dropExpired(next.request);
+            next = queue.pollFirst();
+        }
+        if (next == null) {
+            idleWorkers.addLast(ready.worker);
+        } else {
+            queuedSampler.decrement();
+            queueTime.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - next.enqueuedNanos));
+            metrics.recordSince(PipelineMetrics.LOG_ANALYSIS_QUEUE, PipelineMetrics.OK, next.request.getCaseId(), next.enqueuedNanos);
+            dispatch(ready.worker, next.request);
+        }
+        return this;
+    }
+
+    private void dropExpired(AnalyzeLogRequestCommand request) {
+        expiredCounter.increment();
+        request.getReplyTo().tell(new AnalyzeLogRejectedCommand(request.getCaseId(), "Deadline passed before log analysis", true));
+    }
+
+    private void dispatch(ActorRef<AnalyzeLogRequestCommand> worker, AnalyzeLogRequestCommand request) {
+        busyWorkers.add(worker);
+        busySampler.increment();
+        worker.tell(request);
+    }
+}
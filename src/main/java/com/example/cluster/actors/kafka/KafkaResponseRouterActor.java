@@ -1,12 +1,32 @@
 package com.example.cluster.actors.kafka;
 
+import com.example.cluster.kafka.AsyncConsumingRoutingLogic;
 import com.example.cluster.kafka.KafkaUtil;
 import com.example.cluster.kafka.ConsumingRoutingLogic;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.typed.ActorRef;
 import org.apache.pekko.actor.typed.Behavior;
 import org.apache.pekko.actor.typed.javadsl.*;
 import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.kafka.AutoSubscription;
+import org.apache.pekko.kafka.CommitterSettings;
+import org.apache.pekko.kafka.ConsumerRebalanceEvent;
+import org.apache.pekko.kafka.ConsumerMessage;
+import org.apache.pekko.kafka.Subscriptions;
+import org.apache.pekko.kafka.javadsl.Committer;
+import org.apache.pekko.stream.OverflowStrategy;
+import org.apache.pekko.stream.RestartSettings;
+import org.apache.pekko.stream.javadsl.RestartSource;
 import org.apache.pekko.stream.javadsl.Sink;
 import com.example.cluster.commands.Command;
+import com.example.cluster.deadline.Deadlines;
+import kamon.metric.Counter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import com.typesafe.config.Config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -25,6 +45,20 @@ import com.example.cluster.commands.Command;
  *
  * One topic relevant for 1-st cluster, other relevant for 2-d cluster
  *
+ * Records with an x-deadline header that has passed are skipped (and committed), counted in
+ * deadline.dropped{stage=kafka-consumer}.
+ *
+ * Consumption mode is taken from kafka.consumer.mode:
+ * - plain: records are routed as they come, offsets are not committed by us (original POC behaviour).
+ *   At most parallelism-per-partition deliveries wait for an ack; a record that cannot be decoded or
+ *   whose delivery fails is logged and skipped (it is lost, like a tell without ack was), it never
+ *   stops consumption. A failing Kafka source restarts with backoff.
+ * - committable-partitioned: one sub-stream per assigned partition, records of a partition are handed
+ *   over in offset order (so per-key order is kept), at most parallelism-per-partition deliveries wait for
+ *   an ack at once, offsets are committed in batches after the ack. When sharded entities are slow
+ *   the acks are slow and consumption slows down with them instead of filling entity mailboxes.
+ *   A failed delivery restarts the consumer with backoff from the last committed offset (at-least-once).
+ *   At most max-partitions sub-streams run, a partition assigned beyond that waits (logged as an error).
  *
  */
 public class KafkaResponseRouterActor<T> extends AbstractBehavior<Command> {
@@ -37,14 +71,44 @@ public class KafkaResponseRouterActor<T> extends AbstractBehavior<Command> {
             Class<T> messageClass,
             ConsumingRoutingLogic<T> routingLogic
     ) {
-        return Behaviors.setup(ctx -> new KafkaResponseRouterActor<>(ctx, system, topic, groupId, messageClass, routingLogic));
+        AsyncConsumingRoutingLogic<T> fireAndForget = (message, ctx, sys) -> {
+            routingLogic.handle(message, ctx, sys);
+            return CompletableFuture.completedFuture(Done.getInstance());
+        };
+        return create(system, topic, groupId, messageClass, fireAndForget);
+    }
+
+    public static <T> Behavior<Command> create(
+            ActorSystem<?> system,
+            String topic,
+            String groupId,
+            Class<T> messageClass,
+            AsyncConsumingRoutingLogic<T> routingLogic
+    ) {
+        return create(system, topic, groupId, messageClass, routingLogic, null);
+    }
+
+    // rebalanceListener (may be null) is told about every partition assigned to / revoked from this node,
+    // e.g. KafkaClusterSharding.rebalanceListener to allocate shards where their partitions are consumed
+    public static <T> Behavior<Command> create(
+            ActorSystem<?> system,
+            String topic,
+            String groupId,
+            Class<T> messageClass,
+            AsyncConsumingRoutingLogic<T> routingLogic,
+            ActorRef<ConsumerRebalanceEvent> rebalanceListener
+    ) {
+        return Behaviors.setup(ctx -> new KafkaResponseRouterActor<>(ctx, system, topic, groupId, messageClass, routingLogic, rebalanceListener));
     }
 
     private final ActorSystem<?> system;
     private final String topic;
     private final String groupId;
     private final Class<T> messageClass;
-    private final ConsumingRoutingLogic<T> routingLogic;
+    private final AsyncConsumingRoutingLogic<T> routingLogic;
+    private final AutoSubscription subscription;
+    private final Config consumerConfig;
+    private final Counter droppedExpired;
 
     private KafkaResponseRouterActor(
             ActorContext<Command> ctx,
@@ -52,7 +116,8 @@ public class KafkaResponseRouterActor<T> extends AbstractBehavior<Command> {
             String topic,
             String groupId,
             Class<T> messageClass,
-            ConsumingRoutingLogic<T> routingLogic
+            AsyncConsumingRoutingLogic<T> routingLogic,
+            ActorRef<ConsumerRebalanceEvent> rebalanceListener
     ) {
         super(ctx);
         this.system = system;
@@ -60,18 +125,131 @@ public class KafkaResponseRouterActor<T> extends AbstractBehavior<Command> {
         this.groupId = groupId;
         this.messageClass = messageClass;
         this.routingLogic = routingLogic;
+        AutoSubscription subscription = Subscriptions.topics(topic);
+        this.subscription = rebalanceListener == null ? subscription : subscription.withRebalanceListener(Adapter.toClassic(rebalanceListener));
+        this.consumerConfig = system.settings().config().getConfig("kafka.consumer");
+        this.droppedExpired = Deadlines.dropped("kafka-consumer").withTag("topic", topic);
         startKafkaConsumer(ctx);
     }
 
     private void startKafkaConsumer(ActorContext<Command> ctx) {
-        ctx.getLog().info("[KafkaResponseRouterActor] Subscribing to topic: {} with group: {}", topic, groupId);
-        KafkaUtil.consume(system, topic, groupId, messageClass)
-            .to(Sink.foreach(message -> routingLogic.handle(message, ctx, system)))
-            .run(system);
+        String mode = consumerConfig.getString("mode");
+        ctx.getLog().info("[KafkaResponseRouterActor] Subscribing to topic: {} with group: {} (mode: {})", topic, groupId, mode);
+        switch (mode) {
+            case "plain":
+                startPlainConsumer(ctx);
+                break;
+            case "committable-partitioned":
+                startCommittablePartitionedConsumer(ctx);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kafka.consumer.mode: '" + mode + "'");
+        }
+    }
+
+    private void startPlainConsumer(ActorContext<Command> ctx) {
+        int parallelism = consumerConfig.getInt("parallelism-per-partition");
+        RestartSource.onFailuresWithBackoff(restartSettings(), () ->
+                KafkaUtil.consumeRecords(system, subscription, groupId)
+                    .filter(record -> !droppedForDeadline(record))
+                    .mapAsync(parallelism, record -> deliverPlain(record, ctx)))
+            .runWith(Sink.ignore(), system);
+    }
+
+    // never fails: without commits there is nothing to redeliver, a failed record is logged and skipped
+    private CompletionStage<Done> deliverPlain(ConsumerRecord<String, byte[]> record, ActorContext<Command> ctx) {
+        T decoded;
+        try {
+            decoded = KafkaUtil.fromConsumerRecord(system, record, messageClass);
+        } catch (Exception e) {
+            ctx.getSystem().log().error("[KafkaResponseRouterActor] Skipping undecodable record at {}-{}/{}: {}",
+                record.topic(), record.partition(), record.offset(), e.toString());
+            return CompletableFuture.completedFuture(Done.getInstance());
+        }
+        CompletionStage<Done> handled;
+        try {
+            handled = routingLogic.handle(decoded, ctx, system);
+        } catch (RuntimeException e) {
+            handled = CompletableFuture.failedFuture(e);
+        }
+        return handled.exceptionally(ex -> {
+            ctx.getSystem().log().warn("[KafkaResponseRouterActor] Delivery of record at {}-{}/{} failed, skipped: {}",
+                record.topic(), record.partition(), record.offset(), ex.toString());
+            return Done.getInstance();
+        });
+    }
+
+    private RestartSettings restartSettings() {
+        return RestartSettings.create(
+            consumerConfig.getDuration("restart-min-backoff"),
+            consumerConfig.getDuration("restart-max-backoff"),
+            0.2);
+    }
+
+    private void startCommittablePartitionedConsumer(ActorContext<Command> ctx) {
+        int maxPartitions = consumerConfig.getInt("max-partitions");
+        int parallelismPerPartition = consumerConfig.getInt("parallelism-per-partition");
+        CommitterSettings committerSettings = CommitterSettings
+            .create(system.settings().config().getConfig("pekko.kafka.committer"))
+            .withMaxBatch(consumerConfig.getLong("commit-max-batch"))
+            .withMaxInterval(consumerConfig.getDuration("commit-max-interval"));
+        RestartSource.onFailuresWithBackoff(restartSettings(), () -> {
+                // partition sub-streams of this consumer, assigned and not yet revoked
+                AtomicInteger assigned = new AtomicInteger();
+                return KafkaUtil.consumeCommittablePartitioned(system, subscription, groupId)
+                    .map(partitionAndSource -> {
+                        if (assigned.incrementAndGet() > maxPartitions) {
+                            // waits for a free sub-stream slot, i.e. until another partition is revoked
+                            ctx.getSystem().log().error("[KafkaResponseRouterActor] Partition {} assigned but {} partitions are consumed "
+                                    + "already (kafka.consumer.max-partitions), it is not consumed until another one is revoked; "
+                                    + "max-partitions must be at least the partition count of the subscribed topics",
+                                partitionAndSource.first(), maxPartitions);
+                        }
+                        return partitionAndSource;
+                    })
+                    // pulls the next assignment while all slots are taken, so the error above shows right away
+                    .buffer(1, OverflowStrategy.backpressure())
+                    .mapAsyncUnordered(maxPartitions, partitionAndSource -> {
+                        ctx.getSystem().log().info("[KafkaResponseRouterActor] Partition {} assigned", partitionAndSource.first());
+                        return partitionAndSource.second()
+                            .mapAsync(parallelismPerPartition, message -> deliver(message, ctx))
+                            .runWith(Committer.sink(committerSettings), system)
+                            .whenComplete((done, ex) -> assigned.decrementAndGet());
+                    });
+            })
+            .runWith(Sink.ignore(), system);
+    }
+
+    private CompletionStage<ConsumerMessage.CommittableOffset> deliver(
+            ConsumerMessage.CommittableMessage<String, byte[]> message, ActorContext<Command> ctx) {
+        if (droppedForDeadline(message.record())) {
+            // committed like a delivered record, nobody needs it anymore
+            return CompletableFuture.completedFuture(message.committableOffset());
+        }
+        T decoded;
+        try {
+            decoded = KafkaUtil.fromConsumerRecord(system, message.record(), messageClass);
+        } catch (Exception e) {
+            // a record we can never decode would block the partition forever - skip it and commit
+            ctx.getSystem().log().error("[KafkaResponseRouterActor] Skipping undecodable record at {}: {}",
+                message.committableOffset().partitionOffset(), e.toString());
+            return CompletableFuture.completedFuture(message.committableOffset());
+        }
+        return routingLogic.handle(decoded, ctx, system)
+            .thenApply(done -> message.committableOffset());
+    }
+
+    // a request whose requester gave up (x-deadline header passed) is not handed to the routing logic at all
+    private boolean droppedForDeadline(ConsumerRecord<String, byte[]> record) {
+        if (!Deadlines.expired(KafkaUtil.deadlineOf(record))) {
+            return false;
+        }
+        droppedExpired.increment();
+        return true;
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder().build();
     }
-} 
\ No newline at end of file
+}
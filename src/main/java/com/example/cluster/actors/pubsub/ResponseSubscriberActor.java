@@ -2,6 +2,7 @@ package com.example.cluster.actors.pubsub;
 
 import com.example.cluster.commands.*;
 import com.example.cluster.commands.TimeoutCommand;
+import com.example.cluster.nodelog.PipelineLog;
 import org.apache.pekko.actor.typed.ActorRef;
 import org.apache.pekko.actor.typed.Behavior;
 import org.apache.pekko.actor.typed.javadsl.*;
@@ -53,7 +54,9 @@ public class ResponseSubscriberActor extends AbstractBehavior<Command> {
     }
 
     private Behavior<Command> onResponseReceived(ResponseReceivedCommand cmd) {
-        getContext().getLog().info("Received response for topic {}: {}", topicId, cmd.response);
+        if (PipelineLog.get(getContext().getSystem()).sampled(cmd.response.caseId)) {
+            getContext().getLog().info("Received response for topic {}: {}", topicId, cmd.response);
+        }
 
         if (pendingReplyTo != null) {
             pendingReplyTo.tell(cmd.response);
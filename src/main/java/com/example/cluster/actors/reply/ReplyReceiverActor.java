@@ -0,0 +1,51 @@
+package com.example.cluster.actors.reply;
+
+import com.example.cluster.commands.CaseProgressCommand;
+import com.example.cluster.commands.CaseReplyCommand;
+import com.example.cluster.commands.Command;
+import com.example.cluster.reply.ReplyRegistry;
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.javadsl.AbstractBehavior;
+import org.apache.pekko.actor.typed.javadsl.ActorContext;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.actor.typed.javadsl.Receive;
+
+/**
+ * The one long-lived actor per node that receives replies from CaseCompanionActors
+ * (local or remote) and hands them to the ReplyRegistry.
+ * Replaces the per-request ResponseSubscriberActor + PubSub topic.
+ */
+public class ReplyReceiverActor extends AbstractBehavior<Command> {
+
+    private final ReplyRegistry registry;
+
+    public static Behavior<Command> create(ReplyRegistry registry) {
+        return Behaviors.setup(context -> new ReplyReceiverActor(context, registry));
+    }
+
+    private ReplyReceiverActor(ActorContext<Command> context, ReplyRegistry registry) {
+        super(context);
+        this.registry = registry;
+    }
+
+    @Override
+    public Receive<Command> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(CaseReplyCommand.class, this::onCaseReply)
+                .onMessage(CaseProgressCommand.class, this::onCaseProgress)
+                .build();
+    }
+
+    private Behavior<Command> onCaseReply(CaseReplyCommand reply) {
+        if (!registry.complete(reply.requestId, reply.response)) {
+            // already timed out, the client got its timeout answer
+            getContext().getLog().debug("Late reply for request {} dropped", reply.requestId);
+        }
+        return this;
+    }
+
+    private Behavior<Command> onCaseProgress(CaseProgressCommand progress) {
+        registry.stageCompleted(progress.requestId, progress.stage);
+        return this;
+    }
+}
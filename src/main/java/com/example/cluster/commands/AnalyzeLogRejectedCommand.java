@@ -0,0 +1,21 @@
+package com.example.cluster.commands;
+
+// The log analysis pool of the node is full, or the deadline of the request passed while it waited,
+// sent back to the entity instead of an AnalyzeLogResponseCommand
+public class AnalyzeLogRejectedCommand implements Command {
+
+    public final String caseId;
+    public final String reason;
+    // true: dropped because of its deadline, not because the node is overloaded
+    public final boolean deadlineExpired;
+
+    public AnalyzeLogRejectedCommand(String caseId, String reason, boolean deadlineExpired) {
+        this.caseId = caseId;
+        this.reason = reason;
+        this.deadlineExpired = deadlineExpired;
+    }
+
+    public AnalyzeLogRejectedCommand(String caseId, String reason) {
+        this(caseId, reason, false);
+    }
+}
@@ -1,14 +1,22 @@
 package com.example.cluster.commands;
 
+import com.example.cluster.deadline.Deadlines;
 import org.apache.pekko.actor.typed.ActorRef;
 
 public class AnalyzeLogRequestCommand implements Command {
     private final String caseId;
     public final ActorRef<Command> replyTo;
+    // the latest deadline of the requests waiting for this analysis, Deadlines.NONE = no deadline
+    public final long deadlineMillis;
 
-    public AnalyzeLogRequestCommand(String caseId, ActorRef<Command> replyTo) {
+    public AnalyzeLogRequestCommand(String caseId, ActorRef<Command> replyTo, long deadlineMillis) {
         this.replyTo = replyTo;
         this.caseId = caseId;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public AnalyzeLogRequestCommand(String caseId, ActorRef<Command> replyTo) {
+        this(caseId, replyTo, Deadlines.NONE);
     }
 
     public String getCaseId() {
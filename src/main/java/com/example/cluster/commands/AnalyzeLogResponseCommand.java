@@ -1,15 +1,24 @@
 package com.example.cluster.commands;
 
+import com.example.cluster.loganalysis.LogAnalysisReport;
+
 public class AnalyzeLogResponseCommand implements Command {
 
     public final String caseId;
     public final String data;
     public final String replyFrom;
+    // structured result, null when the analysis failed
+    public final LogAnalysisReport report;
 
-    public AnalyzeLogResponseCommand(String caseId, String data, String replyFrom) {
+    public AnalyzeLogResponseCommand(String caseId, String data, String replyFrom, LogAnalysisReport report) {
         this.caseId = caseId;
         this.data = data;
         this.replyFrom = replyFrom;
+        this.report = report;
+    }
+
+    public AnalyzeLogResponseCommand(String caseId, String data, String replyFrom) {
+        this(caseId, data, replyFrom, null);
     }
 
     @Override
@@ -0,0 +1,25 @@
+package com.example.cluster.commands;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// A resolution stage finished, sent to the ReplyRegistry of the node that streams progress to the client
+public class CaseProgressCommand implements Command {
+    public static final String LOG_ANALYSIS_DONE = "log-analysis-done";
+    public static final String DEPLOYMENT_REQUEST_SENT = "deployment-request-sent";
+    public static final String DEPLOYMENT_STATUS_ARRIVED = "deployment-status-arrived";
+    public static final String PERSISTED = "persisted";
+
+    @JsonProperty("requestId")
+    public final String requestId;
+
+    @JsonProperty("stage")
+    public final String stage;
+
+    @JsonCreator
+    public CaseProgressCommand(@JsonProperty("requestId") String requestId,
+                               @JsonProperty("stage") String stage) {
+        this.requestId = requestId;
+        this.stage = stage;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.cluster.commands;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Answer for a request waiting in the ReplyRegistry of the node that accepted it
+public class CaseReplyCommand implements Command {
+    @JsonProperty("requestId")
+    public final String requestId;
+
+    @JsonProperty("response")
+    public final CaseResolvedMessage response;
+
+    @JsonCreator
+    public CaseReplyCommand(@JsonProperty("requestId") String requestId,
+                            @JsonProperty("response") CaseResolvedMessage response) {
+        this.requestId = requestId;
+        this.response = response;
+    }
+}
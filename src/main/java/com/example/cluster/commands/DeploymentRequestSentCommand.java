@@ -0,0 +1,18 @@
+package com.example.cluster.commands;
+
+// Outcome of sending the deployment status request of a resolution to Kafka, piped back to the entity.
+// Local only, like AnalyzeLogRejectedCommand
+public class DeploymentRequestSentCommand implements Command {
+
+    public final String caseId;
+    // of the DeploymentStatusRequestCommand, a resolution that was dropped meanwhile ignores it
+    public final String requestId;
+    // null when the request was sent
+    public final Throwable failure;
+
+    public DeploymentRequestSentCommand(String caseId, String requestId, Throwable failure) {
+        this.caseId = caseId;
+        this.requestId = requestId;
+        this.failure = failure;
+    }
+}
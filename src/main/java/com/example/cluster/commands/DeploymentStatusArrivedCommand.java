@@ -1,12 +1,35 @@
 package com.example.cluster.commands;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.typed.ActorRef;
+
 // Command for deployment status arrival (you might already have this)
 public final class DeploymentStatusArrivedCommand implements Command {
     public final String caseId;
     public final String deploymentStatusJson;
+    // Kafka consumer waits for this ack before it commits the record offset, null if nobody waits
+    public final ActorRef<Done> ackTo;
+    // requestId of the DeploymentStatusRequestCommand this answers, null from senders older than the correlation
+    public final String requestId;
 
-    public DeploymentStatusArrivedCommand(String caseId, String deploymentStatusJson) {
+    @JsonCreator
+    public DeploymentStatusArrivedCommand(@JsonProperty("caseId") String caseId,
+                                          @JsonProperty("deploymentStatusJson") String deploymentStatusJson,
+                                          @JsonProperty("ackTo") ActorRef<Done> ackTo,
+                                          @JsonProperty("requestId") String requestId) {
         this.caseId = caseId;
         this.deploymentStatusJson = deploymentStatusJson;
+        this.ackTo = ackTo;
+        this.requestId = requestId;
+    }
+
+    public DeploymentStatusArrivedCommand(String caseId, String deploymentStatusJson, ActorRef<Done> ackTo) {
+        this(caseId, deploymentStatusJson, ackTo, null);
+    }
+
+    public DeploymentStatusArrivedCommand(String caseId, String deploymentStatusJson) {
+        this(caseId, deploymentStatusJson, null, null);
     }
 }
@@ -0,0 +1,19 @@
+package com.example.cluster.commands;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+// Kafka envelope: the deployment status requests of many cases of one ClusterA node in one record
+public class DeploymentStatusRequestBatchCommand implements Command {
+    public final String batchId;
+    public final List<DeploymentStatusRequestCommand> requests;
+
+    @JsonCreator
+    public DeploymentStatusRequestBatchCommand(
+            @JsonProperty("batchId") String batchId,
+            @JsonProperty("requests") List<DeploymentStatusRequestCommand> requests) {
+        this.batchId = batchId;
+        this.requests = requests;
+    }
+}
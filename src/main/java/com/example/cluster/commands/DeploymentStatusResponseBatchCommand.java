@@ -0,0 +1,19 @@
+package com.example.cluster.commands;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+// Kafka envelope: ClusterB's answers to one DeploymentStatusRequestBatchCommand, in one record
+public class DeploymentStatusResponseBatchCommand implements Command {
+    public final String batchId;
+    public final List<DeploymentStatusKafkaResponseCommand> responses;
+
+    @JsonCreator
+    public DeploymentStatusResponseBatchCommand(
+            @JsonProperty("batchId") String batchId,
+            @JsonProperty("responses") List<DeploymentStatusKafkaResponseCommand> responses) {
+        this.batchId = batchId;
+        this.responses = responses;
+    }
+}
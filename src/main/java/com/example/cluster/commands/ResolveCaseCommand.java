@@ -1,5 +1,7 @@
 package com.example.cluster.commands;
 
+import com.example.cluster.deadline.Deadlines;
+import com.example.cluster.reply.ReplyHandle;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Objects;
@@ -8,20 +10,55 @@ import java.util.Objects;
 public final class ResolveCaseCommand implements Command {
     private final String caseId;
     private final String responseTopicId;
+    private final ReplyHandle replyHandle;
+    // epoch millis after which nobody waits for the answer, Deadlines.NONE = no deadline
+    private final long deadlineMillis;
+    // epoch millis the HTTP node accepted the request, 0 = unknown (for the accept stage metric)
+    private final long acceptedAtMillis;
 
-    // Constructor for JSON entity routes (with response topic for PubSub)
     @JsonCreator
     public ResolveCaseCommand(
             @JsonProperty("caseId") String caseId,
-            @JsonProperty("responseTopicId") String responseTopicId) {
+            @JsonProperty("responseTopicId") String responseTopicId,
+            @JsonProperty("replyHandle") ReplyHandle replyHandle,
+            @JsonProperty("deadlineMillis") long deadlineMillis,
+            @JsonProperty("acceptedAtMillis") long acceptedAtMillis) {
         this.caseId = caseId;
         this.responseTopicId = responseTopicId;
+        this.replyHandle = replyHandle;
+        this.deadlineMillis = deadlineMillis;
+        this.acceptedAtMillis = acceptedAtMillis;
+    }
+
+    public ResolveCaseCommand(String caseId, String responseTopicId, ReplyHandle replyHandle, long deadlineMillis) {
+        this(caseId, responseTopicId, replyHandle, deadlineMillis, 0L);
+    }
+
+    public ResolveCaseCommand(String caseId, String responseTopicId, ReplyHandle replyHandle) {
+        this(caseId, responseTopicId, replyHandle, Deadlines.NONE);
+    }
+
+    // Constructor for JSON entity routes (with response topic for PubSub)
+    public ResolveCaseCommand(String caseId, String responseTopicId, long deadlineMillis, long acceptedAtMillis) {
+        this(caseId, responseTopicId, null, deadlineMillis, acceptedAtMillis);
+    }
+
+    // Constructor for JSON entity routes (reply straight to the node-local ReplyRegistry)
+    public ResolveCaseCommand(String caseId, ReplyHandle replyHandle, long deadlineMillis, long acceptedAtMillis) {
+        this(caseId, null, replyHandle, deadlineMillis, acceptedAtMillis);
+    }
+
+    public ResolveCaseCommand(String caseId, String responseTopicId) {
+        this(caseId, responseTopicId, null, Deadlines.NONE);
+    }
+
+    public ResolveCaseCommand(String caseId, ReplyHandle replyHandle) {
+        this(caseId, null, replyHandle, Deadlines.NONE);
     }
 
     // Constructor for simple cases (backward compatibility)
     public ResolveCaseCommand(String caseId) {
-        this.caseId = caseId;
-        this.responseTopicId = null;
+        this(caseId, null, null, Deadlines.NONE);
     }
 
     public String getCaseId() {
@@ -36,18 +73,37 @@ public final class ResolveCaseCommand implements Command {
         return responseTopicId != null;
     }
 
+    public ReplyHandle getReplyHandle() {
+        return replyHandle;
+    }
+
+    public boolean hasReplyHandle() {
+        return replyHandle != null;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public long getAcceptedAtMillis() {
+        return acceptedAtMillis;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ResolveCaseCommand that = (ResolveCaseCommand) o;
         return Objects.equals(caseId, that.caseId) &&
-               Objects.equals(responseTopicId, that.responseTopicId);
+               Objects.equals(responseTopicId, that.responseTopicId) &&
+               Objects.equals(replyHandle, that.replyHandle) &&
+               deadlineMillis == that.deadlineMillis &&
+               acceptedAtMillis == that.acceptedAtMillis;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(caseId, responseTopicId);
+        return Objects.hash(caseId, responseTopicId, replyHandle, deadlineMillis, acceptedAtMillis);
     }
 
     @Override
@@ -55,6 +111,9 @@ public final class ResolveCaseCommand implements Command {
         return "ResolveCase{" +
                 "caseId='" + caseId + '\'' +
                 ", responseTopicId='" + responseTopicId + '\'' +
+                ", replyHandle=" + replyHandle +
+                ", deadlineMillis=" + deadlineMillis +
+                ", acceptedAtMillis=" + acceptedAtMillis +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -2,13 +2,25 @@ package com.example.cluster.commands;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.typed.ActorRef;
 
 public class WrappedDeploymentStatusRequestCommand implements Command {
     @JsonProperty("request")
     public final DeploymentStatusRequestCommand request;
 
+    // Kafka consumer waits for this ack before it commits the record offset, null if nobody waits
+    @JsonProperty("ackTo")
+    public final ActorRef<Done> ackTo;
+
     @JsonCreator
-    public WrappedDeploymentStatusRequestCommand(@JsonProperty("request") DeploymentStatusRequestCommand request) {
+    public WrappedDeploymentStatusRequestCommand(@JsonProperty("request") DeploymentStatusRequestCommand request,
+                                                 @JsonProperty("ackTo") ActorRef<Done> ackTo) {
         this.request = request;
+        this.ackTo = ackTo;
+    }
+
+    public WrappedDeploymentStatusRequestCommand(DeploymentStatusRequestCommand request) {
+        this(request, null);
     }
 }
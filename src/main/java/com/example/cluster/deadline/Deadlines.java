@@ -0,0 +1,40 @@
+package com.example.cluster.deadline;
+
+import kamon.Kamon;
+import kamon.metric.Counter;
+
+import java.time.Duration;
+
+/**
+ * Absolute deadlines of client requests, carried from HttpServer through the entity, the log analysis pool
+ * and the Kafka request to ClusterB (header x-deadline), so every stage can drop work nobody waits for anymore.
+ *
+ * A deadline is epoch millis (wall clock, it crosses nodes), NONE = no deadline. Nodes are expected to run NTP,
+ * a skew of a few hundred ms only shifts the drop by that much.
+ *
+ * Metric: deadline.dropped (tag stage) - work items dropped because their deadline had passed.
+ */
+public final class Deadlines {
+
+    public static final long NONE = 0L;
+
+    private Deadlines() {
+    }
+
+    public static long after(Duration timeout) {
+        return System.currentTimeMillis() + timeout.toMillis();
+    }
+
+    public static boolean expired(long deadlineMillis) {
+        return deadlineMillis != NONE && System.currentTimeMillis() >= deadlineMillis;
+    }
+
+    // the deadline of work done for both: the later one, NONE if either has none
+    public static long latest(long a, long b) {
+        return a == NONE || b == NONE ? NONE : Math.max(a, b);
+    }
+
+    public static Counter dropped(String stage) {
+        return Kamon.counter("deadline.dropped").withTag("stage", stage);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.cluster.deployment;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable deployment health at one point in time. The lists are built once per change,
+ * every request answered from this snapshot shares them.
+ */
+public final class DeploymentSnapshot {
+
+    public final long version;
+    public final Instant takenAt;
+    public final List<String> healthyServices;
+    public final List<String> failedServices;
+    final Map<String, Boolean> health;
+
+    DeploymentSnapshot(long version, Instant takenAt, Map<String, Boolean> health) {
+        this.version = version;
+        this.takenAt = takenAt;
+        this.health = Map.copyOf(health);
+        List<String> healthy = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        health.forEach((service, ok) -> (ok ? healthy : failed).add(service));
+        Collections.sort(healthy);
+        Collections.sort(failed);
+        this.healthyServices = Collections.unmodifiableList(healthy);
+        this.failedServices = Collections.unmodifiableList(failed);
+    }
+
+    @Override
+    public String toString() {
+        return "DeploymentSnapshot{version=" + version + ", healthy=" + healthyServices + ", failed=" + failedServices + "}";
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.cluster.deployment;
+
+import com.example.cluster.commands.DeploymentStatusKafkaResponseCommand;
+import com.example.cluster.commands.DeploymentStatusRequestBatchCommand;
+import com.example.cluster.commands.DeploymentStatusRequestCommand;
+import com.example.cluster.commands.DeploymentStatusResponseBatchCommand;
+import com.example.cluster.kafka.KafkaUtil;
+import com.example.cluster.metrics.PipelineMetrics;
+import com.typesafe.config.Config;
+import kamon.Kamon;
+import kamon.metric.Counter;
+import kamon.metric.Histogram;
+import kamon.metric.MeasurementUnit;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ClusterB deployment status, one per node.
+ *
+ * The health sources are polled every deployment-status.refresh-interval, off the request path. A poll result
+ * is diffed against the current snapshot; only a change builds a new immutable DeploymentSnapshot (and logs
+ * what changed), otherwise the current one stays. Requests read the snapshot reference, O(1), so their latency
+ * does not depend on how long a health check takes. Until the first poll finished requests wait for it, at most
+ * first-snapshot-timeout: then they fail (TimeoutException), so the Kafka consumer restarts with backoff
+ * instead of a partition stalling on health sources that never answer.
+ *
+ * Requests for the same case within dedup-window are answered from the snapshot the first one got, and a
+ * redelivered request (same requestId) is not answered twice.
+ * A batch envelope (kafka.batching) is answered in one record, see respondBatch.
+ *
+ * Metrics: deployment-status.poll-time, deployment-status.deduplicated (tag kind = same-case | redelivery),
+ * case-resolution.stage-time{stage=clusterb} per request or batch answered.
+ */
+public class DeploymentStatusEngine implements Extension {
+
+    public static final ExtensionId<DeploymentStatusEngine> ID = new Id();
+
+    public static DeploymentStatusEngine get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<DeploymentStatusEngine> {
+        @Override
+        public DeploymentStatusEngine createExtension(ActorSystem<?> system) {
+            return new DeploymentStatusEngine(system);
+        }
+    }
+
+    private static final class Answered {
+        final String requestId;
+        final DeploymentSnapshot snapshot;
+        final long answeredNanos;
+        final CompletionStage<Done> sent;
+
+        Answered(String requestId, DeploymentSnapshot snapshot, long answeredNanos, CompletionStage<Done> sent) {
+            this.requestId = requestId;
+            this.snapshot = snapshot;
+            this.answeredNanos = answeredNanos;
+            this.sent = sent;
+        }
+    }
+
+    private final ActorSystem<?> system;
+    private final List<HealthSource> sources = new ArrayList<>();
+    private final Duration pollTimeout;
+    private final long firstSnapshotTimeoutMillis;
+    private final long dedupWindowNanos;
+    private final String responsesTopic;
+    private final String responseBatchesTopic;
+    private final PipelineMetrics metrics;
+
+    private volatile DeploymentSnapshot current;
+    private final CompletableFuture<DeploymentSnapshot> firstSnapshot = new CompletableFuture<>();
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final Map<String, Answered> recentByCase = new ConcurrentHashMap<>();
+    // batchId -> answer of the batch, snapshot unused
+    private final Map<String, Answered> recentBatches = new ConcurrentHashMap<>();
+
+    private final Histogram pollTime = Kamon.histogram("deployment-status.poll-time", MeasurementUnit.time().milliseconds());
+    private final Counter sameCaseDeduplicated = Kamon.counter("deployment-status.deduplicated").withTag("kind", "same-case");
+    private final Counter redeliveryDeduplicated = Kamon.counter("deployment-status.deduplicated").withTag("kind", "redelivery");
+
+    private DeploymentStatusEngine(ActorSystem<?> system) {
+        Config config = system.settings().config().getConfig("deployment-status");
+        this.system = system;
+        this.pollTimeout = config.getDuration("poll-timeout");
+        this.firstSnapshotTimeoutMillis = config.getDuration("first-snapshot-timeout").toMillis();
+        this.dedupWindowNanos = config.getDuration("dedup-window").toNanos();
+        this.responsesTopic = KafkaUtil.topicName(system, "deployment-responses");
+        this.responseBatchesTopic = KafkaUtil.topicName(system, "deployment-response-batches");
+        this.metrics = PipelineMetrics.get(system);
+        // real sources (monitoring API, registry) go here next to the stub
+        sources.add(new StubHealthSource(config.getConfig("stub")));
+
+        system.scheduler().scheduleWithFixedDelay(Duration.ZERO, config.getDuration("refresh-interval"),
+            this::refresh, system.executionContext());
+    }
+
+    // the current snapshot, null before the first poll finished
+    public DeploymentSnapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Answers the request on the deployment-responses topic from the current snapshot.
+     * Completes once the response is in Kafka (or right away for a redelivered request already answered).
+     */
+    public CompletionStage<Done> respond(DeploymentStatusRequestCommand request) {
+        long now = System.nanoTime();
+        Answered recent = recentAnswer(request.caseId, now);
+        if (recent != null && recent.requestId.equals(request.requestId)) {
+            redeliveryDeduplicated.increment();
+            return recent.sent;
+        }
+        return timed(request.caseId, now, snapshotFor(recent).thenCompose(s -> {
+            // keyed by caseId: all responses of a case land in one partition (kafka-partition shard allocation relies on it)
+            CompletionStage<Done> sent = send(responsesTopic, request.caseId, response(request, s));
+            if (recent == null) {
+                recentByCase.put(request.caseId, new Answered(request.requestId, s, now, sent));
+            }
+            return sent;
+        }));
+    }
+
+    /**
+     * Answers all requests of the batch in one DeploymentStatusResponseBatchCommand record on deployment-response-batches,
+     * same snapshot and dedup rules per request as respond(). A redelivered batch (same batchId) is not answered twice.
+     */
+    public CompletionStage<Done> respondBatch(DeploymentStatusRequestBatchCommand batch) {
+        long now = System.nanoTime();
+        Answered earlier = recentBatches.get(batch.batchId);
+        if (earlier != null && !earlier.sent.toCompletableFuture().isCompletedExceptionally()) {
+            redeliveryDeduplicated.increment();
+            return earlier.sent;
+        }
+        CompletableFuture<Done> sent = new CompletableFuture<>();
+        recentBatches.put(batch.batchId, new Answered(batch.batchId, null, now, sent));
+
+        List<CompletableFuture<DeploymentStatusKafkaResponseCommand>> responses = new ArrayList<>(batch.requests.size());
+        for (DeploymentStatusRequestCommand request : batch.requests) {
+            Answered recent = recentAnswer(request.caseId, now);
+            responses.add(snapshotFor(recent).thenApply(s -> {
+                if (recent == null) {
+                    recentByCase.put(request.caseId, new Answered(request.requestId, s, now, sent));
+                }
+                return response(request, s);
+            }).toCompletableFuture());
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0]))
+            .thenCompose(done -> {
+                List<DeploymentStatusKafkaResponseCommand> answers = new ArrayList<>(responses.size());
+                responses.forEach(response -> answers.add(response.join()));
+                return send(responseBatchesTopic, batch.batchId, new DeploymentStatusResponseBatchCommand(batch.batchId, answers));
+            })
+            .whenComplete((done, ex) -> {
+                if (ex != null) {
+                    sent.completeExceptionally(ex);
+                } else {
+                    sent.complete(done);
+                }
+            });
+        // a batch has many cases, its trace event carries the batch id
+        return timed("batch:" + batch.batchId, now, sent);
+    }
+
+    // request consumed until its answer is in Kafka
+    private CompletionStage<Done> timed(String caseId, long startedNanos, CompletionStage<Done> sent) {
+        sent.whenComplete((done, ex) -> metrics.recordSince(PipelineMetrics.CLUSTER_B,
+            ex != null ? PipelineMetrics.ERROR : PipelineMetrics.OK, caseId, startedNanos));
+        return sent;
+    }
+
+    // the answer for caseId still inside the dedup window, null if there is none
+    private Answered recentAnswer(String caseId, long now) {
+        Answered recent = recentByCase.get(caseId);
+        // a failed send is not remembered as answered, the retry sends again
+        if (recent == null || now - recent.answeredNanos >= dedupWindowNanos
+                || recent.sent.toCompletableFuture().isCompletedExceptionally()) {
+            return null;
+        }
+        return recent;
+    }
+
+    private CompletionStage<DeploymentSnapshot> snapshotFor(Answered recent) {
+        if (recent != null) {
+            sameCaseDeduplicated.increment();
+            return CompletableFuture.completedFuture(recent.snapshot);
+        }
+        DeploymentSnapshot snapshot = current;
+        if (snapshot != null) {
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        // a copy times out, firstSnapshot itself stays open for the poll that eventually succeeds
+        return firstSnapshot.copy().orTimeout(firstSnapshotTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static DeploymentStatusKafkaResponseCommand response(DeploymentStatusRequestCommand request, DeploymentSnapshot snapshot) {
+        return new DeploymentStatusKafkaResponseCommand(
+            request.requestId, request.caseId, snapshot.healthyServices, snapshot.failedServices);
+    }
+
+    private CompletionStage<Done> send(String topic, String key, Object message) {
+        return KafkaUtil.produce(system, topic, key, message)
+            .thenApply(metadata -> Done.getInstance());
+    }
+
+    private void refresh() {
+        evictOldAnswers();
+        if (!polling.compareAndSet(false, true)) {
+            // the previous poll is still running, skip this round instead of piling up
+            return;
+        }
+        long started = System.nanoTime();
+        List<CompletableFuture<Map<String, Boolean>>> polls = new ArrayList<>();
+        for (HealthSource source : sources) {
+            polls.add(source.poll().toCompletableFuture());
+        }
+        CompletableFuture.allOf(polls.toArray(new CompletableFuture[0]))
+            .orTimeout(pollTimeout.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((done, failure) -> {
+                try {
+                    pollTime.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                    if (failure != null) {
+                        system.log().warn("Deployment health poll failed, keeping snapshot {}: {}",
+                            current == null ? "none" : current.version, failure.toString());
+                        return;
+                    }
+                    Map<String, Boolean> health = new HashMap<>();
+                    // later sources win for a service more than one reports
+                    polls.forEach(poll -> health.putAll(poll.join()));
+                    apply(health);
+                } finally {
+                    polling.set(false);
+                }
+            });
+    }
+
+    private void apply(Map<String, Boolean> health) {
+        DeploymentSnapshot previous = current;
+        if (previous != null && previous.health.equals(health)) {
+            return;
+        }
+        List<String> changes = new ArrayList<>();
+        if (previous != null) {
+            health.forEach((service, ok) -> {
+                Boolean before = previous.health.get(service);
+                if (!Objects.equals(before, ok)) {
+                    changes.add(service + (before == null ? " added " : " ") + (ok ? "healthy" : "failed"));
+                }
+            });
+            previous.health.keySet().stream()
+                .filter(service -> !health.containsKey(service))
+                .forEach(service -> changes.add(service + " gone"));
+        }
+        DeploymentSnapshot next = new DeploymentSnapshot(previous == null ? 1 : previous.version + 1, Instant.now(), health);
+        current = next;
+        firstSnapshot.complete(next);
+        system.log().info("Deployment snapshot {}: {}", next.version, previous == null ? next : changes);
+    }
+
+    private void evictOldAnswers() {
+        long now = System.nanoTime();
+        recentByCase.values().removeIf(answered -> now - answered.answeredNanos >= dedupWindowNanos);
+        recentBatches.values().removeIf(answered -> now - answered.answeredNanos >= dedupWindowNanos);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.cluster.deployment;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Somewhere DeploymentStatusEngine gets service health from (monitoring API, service registry, ...).
+ * poll() may be slow, it runs on the engine's schedule and never on a request path.
+ */
+public interface HealthSource {
+
+    String name();
+
+    // service name -> healthy
+    CompletionStage<Map<String, Boolean>> poll();
+}
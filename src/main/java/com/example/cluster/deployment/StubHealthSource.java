@@ -0,0 +1,37 @@
+package com.example.cluster.deployment;
+
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a real health check: the services of deployment-status.stub,
+ * answered after poll-latency to simulate an expensive check.
+ */
+public class StubHealthSource implements HealthSource {
+
+    private final Map<String, Boolean> health = new LinkedHashMap<>();
+    private final Duration pollLatency;
+
+    public StubHealthSource(Config config) {
+        config.getStringList("healthy").forEach(service -> health.put(service, true));
+        config.getStringList("failed").forEach(service -> health.put(service, false));
+        this.pollLatency = config.getDuration("poll-latency");
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public CompletionStage<Map<String, Boolean>> poll() {
+        return CompletableFuture.supplyAsync(() -> Map.copyOf(health),
+            CompletableFuture.delayedExecutor(pollLatency.toMillis(), TimeUnit.MILLISECONDS));
+    }
+}
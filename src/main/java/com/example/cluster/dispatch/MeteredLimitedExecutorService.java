@@ -0,0 +1,142 @@
+package com.example.cluster.dispatch;
+
+import kamon.Kamon;
+import kamon.metric.Gauge;
+import kamon.metric.RangeSampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps the dispatcher's executor with an optional concurrency limit and Kamon metrics.
+ *
+ * Tasks above max-concurrency are queued here instead of blocking the submitter
+ * (the submitter is often another dispatcher thread) and started when a running task finishes.
+ *
+ * Metrics, tagged with the dispatcher id:
+ * - dispatcher.tasks.running: tasks started and not finished; on virtual threads this includes tasks parked in blocking calls
+ * - dispatcher.tasks.queued: tasks waiting for the concurrency limit
+ * - dispatcher.tasks.parked: running tasks above the number of carrier threads, i.e. at least this many are
+ *   parked in a blocking call right now (virtual threads only, an estimate - the JVM does not expose the exact number)
+ */
+final class MeteredLimitedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final int limit;
+    private final boolean virtual;
+    private final int carriers = Runtime.getRuntime().availableProcessors();
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    private final RangeSampler runningSampler;
+    private final RangeSampler queuedSampler;
+    private final Gauge parkedGauge;
+
+    MeteredLimitedExecutorService(ExecutorService delegate, String dispatcherId, int limit, boolean virtual) {
+        this.delegate = delegate;
+        this.limit = limit;
+        this.virtual = virtual;
+        this.runningSampler = Kamon.rangeSampler("dispatcher.tasks.running").withTag("dispatcher", dispatcherId);
+        this.queuedSampler = Kamon.rangeSampler("dispatcher.tasks.queued").withTag("dispatcher", dispatcherId);
+        this.parkedGauge = Kamon.gauge("dispatcher.tasks.parked").withTag("dispatcher", dispatcherId);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (limit <= 0) {
+            start(task);
+            return;
+        }
+        waiting.add(task);
+        queuedSampler.increment();
+        drain();
+    }
+
+    private void drain() {
+        while (true) {
+            int current = running.get();
+            if (current >= limit || waiting.isEmpty()) {
+                return;
+            }
+            if (!running.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable next = waiting.poll();
+            if (next == null) {
+                // someone else took it, give the permit back and look again
+                running.decrementAndGet();
+                continue;
+            }
+            queuedSampler.decrement();
+            startWithPermit(next);
+        }
+    }
+
+    private void start(Runnable task) {
+        running.incrementAndGet();
+        startWithPermit(task);
+    }
+
+    private void startWithPermit(Runnable task) {
+        try {
+            delegate.execute(() -> {
+                runningSampler.increment();
+                updateParked();
+                try {
+                    task.run();
+                } finally {
+                    runningSampler.decrement();
+                    running.decrementAndGet();
+                    updateParked();
+                    if (limit > 0) {
+                        drain();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            running.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void updateParked() {
+        if (virtual) {
+            parkedGauge.update(Math.max(0, running.get() - carriers));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> notStarted = new ArrayList<>(delegate.shutdownNow());
+        notStarted.addAll(waiting);
+        waiting.clear();
+        return notStarted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated() && waiting.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
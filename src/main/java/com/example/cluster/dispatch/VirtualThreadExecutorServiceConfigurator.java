@@ -0,0 +1,75 @@
+package com.example.cluster.dispatch;
+
+import com.typesafe.config.Config;
+import org.apache.pekko.dispatch.DispatcherPrerequisites;
+import org.apache.pekko.dispatch.ExecutorServiceConfigurator;
+import org.apache.pekko.dispatch.ExecutorServiceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Dispatcher executor that runs every task on its own virtual thread, for actors that block
+ * (log analysis, health checks). A blocked virtual thread only parks, it does not hold a platform
+ * thread, so thousands of blocking analyses fit where the fixed pool allowed 24.
+ *
+ * Select it in a dispatcher config:
+ * <pre>
+ *   executor = "com.example.cluster.dispatch.VirtualThreadExecutorServiceConfigurator"
+ *   virtual-thread-executor {
+ *     max-concurrency = 0        # 0 = unlimited, otherwise tasks above the limit wait in a queue
+ *     fallback-pool-size = 24    # platform threads used when the JVM has no virtual threads
+ *   }
+ * </pre>
+ *
+ * The project still compiles for Java 11, so virtual threads are looked up reflectively
+ * and the fixed platform pool is used on JVMs older than 21.
+ */
+public class VirtualThreadExecutorServiceConfigurator extends ExecutorServiceConfigurator {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadExecutorServiceConfigurator.class);
+
+    private final int maxConcurrency;
+    private final int fallbackPoolSize;
+
+    public VirtualThreadExecutorServiceConfigurator(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+        Config executorConfig = config.getConfig("virtual-thread-executor");
+        this.maxConcurrency = executorConfig.getInt("max-concurrency");
+        this.fallbackPoolSize = executorConfig.getInt("fallback-pool-size");
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        return () -> {
+            ExecutorService virtual = newVirtualThreadPerTaskExecutor(id + "-vt-");
+            boolean isVirtual = virtual != null;
+            ExecutorService delegate = isVirtual
+                ? virtual
+                : Executors.newFixedThreadPool(fallbackPoolSize, threadFactory);
+            if (!isVirtual) {
+                log.warn("Virtual threads are not available on this JVM, dispatcher {} uses {} platform threads",
+                    id, fallbackPoolSize);
+            }
+            return new MeteredLimitedExecutorService(delegate, id, maxConcurrency, isVirtual);
+        };
+    }
+
+    // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory()) on Java 21+, null before
+    static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.cluster.http;
+
+import com.typesafe.config.Config;
+import kamon.Kamon;
+import kamon.metric.Counter;
+import kamon.metric.Gauge;
+import kamon.metric.RangeSampler;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.http.javadsl.model.StatusCodes;
+import org.apache.pekko.http.javadsl.model.headers.RawHeader;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the requests in flight on the endpoints that share it, the cap follows the observed latency
+ * (gradient algorithm, as in Netflix concurrency-limits Gradient2):
+ *
+ *   gradient = clamp(0.5, 1.0, rtt-tolerance * longRtt / rtt)
+ *   newLimit = limit * gradient + sqrt(limit)
+ *   limit    = limit * (1 - smoothing) + newLimit * smoothing
+ *
+ * longRtt is an exponential average over long-window samples. While latency stays near it the limit
+ * grows by ~sqrt(limit) per sample, when requests start queueing (latency above tolerance) it shrinks.
+ * The limit only grows when at least half of it is used, an idle node does not learn a huge limit.
+ *
+ * Requests above the limit are not queued: the caller answers 503 with Retry-After right away,
+ * so an overloaded node keeps serving what it admitted within bounded latency.
+ *
+ * Metrics, tagged with the limiter name:
+ * - http.concurrency-limit.limit: the current limit
+ * - http.concurrency-limit.in-flight: admitted requests not finished yet
+ * - http.concurrency-limit.rejected: requests answered with 503
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    private static final int WARMUP_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int longWindow;
+    private final HttpResponse rejection;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // guarded by this, read without the lock by tryAcquire
+    private volatile double limit;
+    private double longRttNanos;
+    private long samples;
+
+    private final Gauge limitGauge;
+    private final RangeSampler inFlightSampler;
+    private final Counter rejectedCounter;
+
+    AdaptiveConcurrencyLimiter(String name, Config config) {
+        this.minLimit = config.getInt("min-limit");
+        this.maxLimit = config.getInt("max-limit");
+        this.rttTolerance = config.getDouble("rtt-tolerance");
+        this.smoothing = config.getDouble("smoothing");
+        this.longWindow = config.getInt("long-window");
+        this.limit = Math.max(minLimit, Math.min(maxLimit, config.getInt("initial-limit")));
+        // built once, every rejection completes with the same strict response
+        this.rejection = HttpResponse.create()
+            .withStatus(StatusCodes.SERVICE_UNAVAILABLE)
+            .addHeader(RawHeader.create("Retry-After", String.valueOf(Math.max(1, config.getDuration("retry-after").toSeconds()))))
+            .withEntity("Too many requests in flight, retry later");
+
+        this.limitGauge = Kamon.gauge("http.concurrency-limit.limit").withTag("limiter", name);
+        this.inFlightSampler = Kamon.rangeSampler("http.concurrency-limit.in-flight").withTag("limiter", name);
+        this.rejectedCounter = Kamon.counter("http.concurrency-limit.rejected").withTag("limiter", name);
+        limitGauge.update(limit);
+    }
+
+    /**
+     * A permit when the request is admitted, null when it must be rejected (answer with rejection()).
+     * Every permit must be released exactly once, when the response is done.
+     */
+    Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejectedCounter.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                inFlightSampler.increment();
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    HttpResponse rejection() {
+        return rejection;
+    }
+
+    int currentLimit() {
+        return (int) limit;
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        double rtt = Math.max(1, rttNanos);
+        samples++;
+        if (samples <= WARMUP_SAMPLES) {
+            longRttNanos += (rtt - longRttNanos) / samples;
+        } else {
+            longRttNanos += (rtt - longRttNanos) * 2.0 / (longWindow + 1);
+        }
+        // the long average lags behind a recovery, pull it down so the limit can grow again
+        if (longRttNanos / rtt > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double current = limit;
+        if (inFlightAtStart < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / rtt));
+        double newLimit = current * gradient + Math.sqrt(current);
+        newLimit = current * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limitGauge.update(limit);
+    }
+
+    final class Permit {
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        // the latency of this request feeds the limit, later calls are ignored
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                inFlightSampler.decrement();
+                onSample(System.nanoTime() - startNanos, inFlightAtStart);
+            }
+        }
+    }
+}
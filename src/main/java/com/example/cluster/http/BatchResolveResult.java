@@ -0,0 +1,46 @@
+package com.example.cluster.http;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One NDJSON line of POST /api/v1/cases/resolve-batch.
+ * status: "ok" (summary set), "timeout", "rejected" (node overloaded, retry the case later) or "error" (error set).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResolveResult {
+    @JsonProperty("caseId")
+    public final String caseId;
+
+    @JsonProperty("status")
+    public final String status;
+
+    @JsonProperty("summary")
+    public final String summary;
+
+    @JsonProperty("error")
+    public final String error;
+
+    private BatchResolveResult(String caseId, String status, String summary, String error) {
+        this.caseId = caseId;
+        this.status = status;
+        this.summary = summary;
+        this.error = error;
+    }
+
+    public static BatchResolveResult ok(String caseId, String summary) {
+        return new BatchResolveResult(caseId, "ok", summary, null);
+    }
+
+    public static BatchResolveResult timeout(String caseId) {
+        return new BatchResolveResult(caseId, "timeout", null, null);
+    }
+
+    public static BatchResolveResult rejected(String caseId) {
+        return new BatchResolveResult(caseId, "rejected", null, null);
+    }
+
+    public static BatchResolveResult error(String caseId, String error) {
+        return new BatchResolveResult(caseId, "error", null, error);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.cluster.http;
+
+import com.example.cluster.actors.CaseResolutionPipeline;
+import com.example.cluster.commands.CaseResolvedMessage;
+import com.example.cluster.deadline.Deadlines;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.typesafe.config.Config;
+import org.apache.pekko.NotUsed;
+import org.apache.pekko.japi.pf.PFBuilder;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.util.ByteString;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+
+/**
+ * Fans the cases of one batch request out to the case entities, at most batch-resolve.parallelism
+ * at a time, and emits one result line per case as soon as that case is done (so not in request order).
+ *
+ * Every case ends in exactly one line: a slow or failing case becomes a "timeout" / "error" line,
+ * it never fails the whole response.
+ *
+ * Each case in flight holds a permit of itemLimiter (batch-resolve.concurrency-limit, the limiter of the single
+ * resolve endpoint), so bulk callers and single requests are shed by the same limit: a case that gets no permit
+ * is not sent to the cluster and ends as a "rejected" line.
+ */
+final class BatchResolver {
+
+    private static final ObjectWriter LINE_WRITER = new ObjectMapper().writerFor(BatchResolveResult.class);
+
+    // caseId, deadline (epoch millis) -> answer
+    private final BiFunction<String, Long, CompletionStage<CaseResolvedMessage>> resolve;
+    private final int parallelism;
+    private final Duration itemTimeout;
+    private final int maxItems;
+    // null = items are not limited
+    private final AdaptiveConcurrencyLimiter itemLimiter;
+
+    BatchResolver(Config config, BiFunction<String, Long, CompletionStage<CaseResolvedMessage>> resolve,
+                  AdaptiveConcurrencyLimiter itemLimiter) {
+        this.resolve = resolve;
+        this.itemLimiter = itemLimiter;
+        this.parallelism = config.getInt("parallelism");
+        this.itemTimeout = config.getDuration("item-timeout");
+        this.maxItems = config.getInt("max-items");
+    }
+
+    Source<ByteString, NotUsed> resolveAll(Source<HttpServer.ResolveCaseRequest, NotUsed> requests) {
+        return requests
+            .zipWithIndex()
+            .map(indexed -> {
+                if (indexed.second() >= maxItems) {
+                    throw new IllegalArgumentException("Batch larger than " + maxItems + " cases");
+                }
+                return indexed.first();
+            })
+            .mapAsyncUnordered(parallelism, request -> resolveOne(request.caseId))
+            .map(BatchResolver::toLine)
+            // a broken body (bad JSON, too many cases) ends the response with a last error line without caseId
+            .recover(new PFBuilder<Throwable, ByteString>()
+                .match(Exception.class, e -> toLine(BatchResolveResult.error(null, "Batch aborted: " + e.getMessage())))
+                .build());
+    }
+
+    private CompletionStage<BatchResolveResult> resolveOne(String caseId) {
+        if (caseId == null || caseId.isBlank()) {
+            return CompletableFuture.completedFuture(BatchResolveResult.error(caseId, "caseId is required"));
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = null;
+        if (itemLimiter != null) {
+            permit = itemLimiter.tryAcquire();
+            if (permit == null) {
+                return CompletableFuture.completedFuture(BatchResolveResult.rejected(caseId));
+            }
+        }
+        CompletionStage<CaseResolvedMessage> pending;
+        try {
+            // the line turns into "timeout" after item-timeout, the cluster can stop working on it then too
+            pending = resolve.apply(caseId, Deadlines.after(itemTimeout));
+        } catch (Exception e) {
+            if (permit != null) {
+                permit.release();
+            }
+            return CompletableFuture.completedFuture(BatchResolveResult.error(caseId, e.toString()));
+        }
+        AdaptiveConcurrencyLimiter.Permit held = permit;
+        return pending.toCompletableFuture()
+            .orTimeout(itemTimeout.toMillis(), TimeUnit.MILLISECONDS)
+            .handle((message, failure) -> {
+                if (held != null) {
+                    held.release();
+                }
+                if (failure != null) {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+                    return cause instanceof TimeoutException
+                        ? BatchResolveResult.timeout(caseId)
+                        : BatchResolveResult.error(caseId, cause.toString());
+                }
+                // the reply registry answers an expired request with a "timeout" message
+                if ("timeout".equals(message.caseId)) {
+                    return BatchResolveResult.timeout(caseId);
+                }
+                // log analysis pool of the entity's node was full
+                if (CaseResolutionPipeline.REJECTED.equals(message.caseId)) {
+                    return BatchResolveResult.error(caseId, message.summary);
+                }
+                return BatchResolveResult.ok(message.caseId, message.summary);
+            });
+    }
+
+    private static ByteString toLine(BatchResolveResult result) throws JsonProcessingException {
+        return ByteString.fromString(LINE_WRITER.writeValueAsString(result) + "\n");
+    }
+}
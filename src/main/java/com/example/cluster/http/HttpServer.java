@@ -10,8 +10,26 @@ import org.apache.pekko.cluster.sharding.typed.javadsl.EntityRef;
 import org.apache.pekko.http.javadsl.Http;
 import org.apache.pekko.http.javadsl.ServerBinding;
 import org.apache.pekko.http.javadsl.marshallers.jackson.Jackson;
+import org.apache.pekko.http.javadsl.marshalling.sse.EventStreamMarshalling;
+import org.apache.pekko.http.javadsl.common.EntityStreamingSupport;
+import org.apache.pekko.http.javadsl.model.ContentType;
+import org.apache.pekko.http.javadsl.model.ContentTypes;
+import org.apache.pekko.http.javadsl.model.HttpCharsets;
+import org.apache.pekko.http.javadsl.model.HttpEntities;
+import org.apache.pekko.http.javadsl.model.HttpEntity;
+import org.apache.pekko.http.javadsl.model.HttpMethods;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.http.javadsl.model.ResponseEntity;
+import org.apache.pekko.http.javadsl.model.MediaTypes;
 import org.apache.pekko.http.javadsl.model.StatusCodes;
+import org.apache.pekko.http.javadsl.model.headers.RawHeader;
+import org.apache.pekko.http.javadsl.server.Complete;
 import org.apache.pekko.http.javadsl.server.Route;
+import org.apache.pekko.http.javadsl.server.RouteResult;
+import org.apache.pekko.http.javadsl.server.RouteResults;
+import org.apache.pekko.stream.javadsl.Flow;
+import org.apache.pekko.http.javadsl.unmarshalling.Unmarshaller;
+import org.apache.pekko.util.ByteString;
 import org.apache.pekko.actor.typed.Props;
 import org.apache.pekko.actor.typed.ActorRef;
 import org.apache.pekko.actor.typed.javadsl.AskPattern;
@@ -21,14 +39,21 @@ import java.time.Duration;
 import org.apache.pekko.cluster.pubsub.DistributedPubSub;
 
 import com.example.cluster.actors.CaseCompanionActor;
+import com.example.cluster.actors.CaseResolutionPipeline;
 import com.example.cluster.commands.CaseResolvedMessage;
+import com.example.cluster.reply.ReplyRegistry;
+import com.example.cluster.deadline.Deadlines;
+import com.example.cluster.metrics.PipelineMetrics;
+import com.example.cluster.nodelog.PipelineLog;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.typesafe.config.Config;
 
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeoutException;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -37,10 +62,24 @@ import java.util.UUID;
  */
 public class HttpServer {
     
+    private static final ContentType NDJSON =
+        ContentTypes.create(MediaTypes.applicationWithOpenCharset("x-ndjson", "ndjson"), HttpCharsets.UTF_8);
+    
     private final ActorSystem<?> system;
     private final ClusterSharding sharding;
     private final Config config;
     private final org.apache.pekko.actor.ActorRef mediator;
+    private final String replyMode;
+    private final PipelineMetrics metrics;
+    private final PipelineLog pipelineLog;
+    // json-entity-handler endpoints pick their logic by name (handler = "..." in http-routes)
+    private final Map<String, JsonEndpointHandler<?>> jsonHandlers = new HashMap<>();
+    // same for ndjson-stream-handler endpoints
+    private final Map<String, NdjsonEndpointHandler<?>> ndjsonHandlers = new HashMap<>();
+    // and sse-stream-handler endpoints
+    private final Map<String, SseEndpointHandler> sseHandlers = new HashMap<>();
+    // endpoints with concurrency-limit = "<name>" share the limiter configured in concurrency-limits.<name>
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new HashMap<>();
 
     public HttpServer(ActorSystem<?> system, ClusterSharding sharding) {
         this.system = system;
@@ -48,6 +87,23 @@ public class HttpServer {
         this.config = system.settings().config();
         // Initialize Distributed PubSub mediator
         this.mediator = DistributedPubSub.get(system).mediator();
+        // registry (default) or pubsub - how resolve replies find their way back to this node
+        this.replyMode = config.getString("reply-registry.mode");
+        this.metrics = PipelineMetrics.get(system);
+        this.pipelineLog = PipelineLog.get(system);
+
+        jsonHandlers.put("resolve-case", JsonEndpointHandler.of(ResolveCaseRequest.class, (request, pathParams) ->
+            resolve(request.caseId)));
+
+        Config batchConfig = config.getConfig("batch-resolve");
+        BatchResolver batchResolver = new BatchResolver(batchConfig, this::resolveBefore,
+            batchConfig.hasPath("concurrency-limit") ? limiter(batchConfig.getString("concurrency-limit")) : null);
+        ndjsonHandlers.put("resolve-case-batch", NdjsonEndpointHandler.of(ResolveCaseRequest.class, (requests, pathParams) ->
+            batchResolver.resolveAll(requests)));
+
+        ResolveProgressStreamer progressStreamer = new ResolveProgressStreamer(system, sharding, config.getConfig("resolve-stream"), metrics);
+        sseHandlers.put("resolve-case-stream", SseEndpointHandler.of(pathParams ->
+            progressStreamer.resolveWithProgress(pathParams.get("caseId"))));
     }
 
     public CompletionStage<ServerBinding> start(String host, int port) {
@@ -55,8 +111,9 @@ public class HttpServer {
         return Http.get(system).newServerAt(host, port).bind(createRoutes());
     }
 
-    private Route createRoutes() {
-        List<Route> routes = new ArrayList<>();
+    // public for the route benchmark (benchmarks module), start() is the only caller in the app
+    public Route createRoutes() {
+        RouteDispatchTable table = new RouteDispatchTable();
         
         system.log().info("Loading routes from configuration...");
         
@@ -67,9 +124,9 @@ public class HttpServer {
             for (String routeName : endpointsConfig.root().keySet()) {
                 try {
                     Config routeConfig = endpointsConfig.getConfig(routeName);
-                    Route route = createRouteFromConfig(routeName, routeConfig);
-                    if (route != null) {
-                        routes.add(route);
+                    RouteDispatchTable.Endpoint endpoint = createEndpointFromConfig(routeName, routeConfig);
+                    if (endpoint != null) {
+                        table.add(routeConfig.getString("method"), routeConfig.getString("path"), endpoint);
                         system.log().info("Loaded route: {} -> {} {} (type: '{}')", 
                             routeName, 
                             routeConfig.getString("method"), 
@@ -83,139 +140,248 @@ public class HttpServer {
         }
         
         // No fallback routes - everything must be configured
-        if (routes.isEmpty()) {
+        if (table.size() == 0) {
             system.log().error("No routes configured! Check your http-routes.endpoints configuration");
             return complete(StatusCodes.INTERNAL_SERVER_ERROR, "No routes configured");
         }
         
-        system.log().info("Total routes loaded: {}", routes.size());
-        return buildRouteTree(routes);
+        system.log().info("Total routes loaded: {}", table.size());
+        return dispatch(table);
     }
     
-    private Route buildRouteTree(List<Route> routes) {
-        Route result = routes.get(0);
-        for (int i = 1; i < routes.size(); i++) {
-            result = concat(result, routes.get(i));
-        }
-        return result;
+    // One route for all endpoints: method + path are looked up in the table, no directive chain to walk
+    private Route dispatch(RouteDispatchTable table) {
+        return extractMethod(method ->
+            extractUri(uri -> {
+                RouteDispatchTable.Lookup lookup = table.lookup(method.name(), uri.path());
+                switch (lookup.result) {
+                    case FOUND:
+                        return lookup.endpoint.route(lookup.pathParams);
+                    case METHOD_NOT_ALLOWED:
+                        return complete(HttpResponse.create()
+                            .withStatus(StatusCodes.METHOD_NOT_ALLOWED)
+                            .addHeader(RawHeader.create("Allow", String.join(", ", lookup.allowedMethods))));
+                    default:
+                        return reject();
+                }
+            })
+        );
     }
     
-    private Route createRouteFromConfig(String routeName, Config routeConfig) {
+    private RouteDispatchTable.Endpoint createEndpointFromConfig(String routeName, Config routeConfig) {
         String path = routeConfig.getString("path");
         String method = routeConfig.getString("method");
         String type = routeConfig.getString("type");
         
         system.log().info("Creating route '{}': {} {} (type: '{}')", routeName, method, path, type);
         
+        if (HttpMethods.lookup(method.toUpperCase()).isEmpty()) {
+            system.log().warn("Unsupported HTTP method: {}", method);
+            return null;
+        }
+        
+        RouteDispatchTable.Endpoint endpoint;
         switch (type) {
             case "simple-response":
-                return createSimpleResponseRoute(path, method, routeConfig);
+                endpoint = createSimpleResponseEndpoint(routeConfig);
+                break;
             case "json-entity-handler":
-                return createJsonEntityRoute(path, method, routeConfig);
+                endpoint = createJsonEntityEndpoint(routeName, routeConfig);
+                break;
+            case "ndjson-stream-handler":
+                endpoint = createNdjsonStreamEndpoint(routeName, routeConfig);
+                break;
+            case "sse-stream-handler":
+                endpoint = createSseStreamEndpoint(routeName, routeConfig);
+                break;
             default:
                 system.log().warn("Unknown route type: '{}' for route '{}'", type, routeName);
                 return null;
         }
+        if (endpoint != null && routeConfig.hasPath("concurrency-limit")) {
+            return limited(endpoint, limiter(routeConfig.getString("concurrency-limit")));
+        }
+        return endpoint;
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(String name) {
+        return limiters.computeIfAbsent(name,
+            limiterName -> new AdaptiveConcurrencyLimiter(limiterName, config.getConfig("concurrency-limits." + limiterName)));
     }
     
-    private Route createSimpleResponseRoute(String path, String method, Config routeConfig) {
-        String response = routeConfig.getString("response");
-        return createMethodRoute(method, path, () -> complete(response));
-    }
-    
-    private Route createJsonEntityRoute(String path, String method, Config routeConfig) {
-        if ("/api/v1/cases/resolve".equals(path) && "POST".equalsIgnoreCase(method)) {
-            return post(() ->
-                pathPrefix("api", () ->
-                    pathPrefix("v1", () ->
-                        pathPrefix("cases", () ->
-                            path("resolve", () ->
-                                entity(Jackson.unmarshaller(ResolveCaseRequest.class), request -> {
-                                    system.log().info("Received resolve case request for caseId: {} using Distributed PubSub", request.caseId);
-                                    
-                                    // Create a unique response topic for this request
-                                    String responseTopicId = "case-response-" + UUID.randomUUID();
-                                    
-                                    // Create a temporary subscriber actor for this request
-                                    ActorRef<Command> subscriber = 
-                                        system.systemActorOf(
-                                            ResponseSubscriberActor.create(responseTopicId, mediator),
-                                            "response-subscriber-" + UUID.randomUUID(),
-                                            Props.empty()
-                                        );
-                                    
-                                    // Send command to sharded entity with response topic
-                                    EntityRef<Command> caseRef = sharding.entityRefFor(
-                                        CaseCompanionActor.ENTITY_TYPE_KEY, request.caseId
-                                    );
-                                    caseRef.tell(new ResolveCaseCommand(request.caseId, responseTopicId));
-                                    
-                                    // Use Ask pattern with the subscriber
-                                    CompletionStage<CaseResolvedMessage> future = AskPattern.ask(
-                                        subscriber,
-                                        WaitForResponseCommand::new,
-                                        Duration.ofSeconds(35), // Generous timeout
-                                        system.scheduler()
-                                    );
-                                    
-                                    return completeOKWithFuture(future, Jackson.marshaller());
-                                })
-                            )
-                        )
-                    )
-                )
-            );
+    // over the limit: 503 right away; admitted: the permit is released when the response is fully sent
+    private RouteDispatchTable.Endpoint limited(RouteDispatchTable.Endpoint endpoint, AdaptiveConcurrencyLimiter limiter) {
+        return pathParams -> {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            if (permit == null) {
+                return complete(limiter.rejection());
+            }
+            return mapRouteResultFuture(resultFuture -> resultFuture.<RouteResult>handle((result, failure) -> {
+                if (failure != null) {
+                    permit.release();
+                    throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+                }
+                if (result instanceof Complete) {
+                    return RouteResults.complete(releaseWhenSent(((Complete) result).getResponse(), permit));
+                }
+                permit.release();
+                return result;
+            }), () -> endpoint.route(pathParams));
+        };
+    }
+    
+    // streamed entities (NDJSON, SSE) are still running when the route completes
+    private static HttpResponse releaseWhenSent(HttpResponse response, AdaptiveConcurrencyLimiter.Permit permit) {
+        ResponseEntity entity = response.entity();
+        if (entity.isStrict()) {
+            permit.release();
+            return response;
         }
-        
-        // Handle other JSON entity routes if needed
-        system.log().warn("Unsupported JSON entity route: {} {}", method, path);
-        return null;
+        return response.withEntity(entity.transformDataBytes(
+            Flow.<ByteString>create().watchTermination((notUsed, done) -> {
+                done.whenComplete((d, ex) -> permit.release());
+                return notUsed;
+            })));
     }
     
+    // the response is built once, every hit completes with the same strict entity
+    private RouteDispatchTable.Endpoint createSimpleResponseEndpoint(Config routeConfig) {
+        HttpResponse response = HttpResponse.create()
+            .withEntity(HttpEntities.create(ContentTypes.TEXT_PLAIN_UTF8, routeConfig.getString("response")));
+        Route route = complete(response);
+        return pathParams -> route;
+    }
     
-    // Helper method to create routes for different HTTP methods and paths
-    private Route createMethodRoute(String method, String path, java.util.function.Supplier<Route> routeSupplier) {
-        Route baseRoute = routeSupplier.get();
-        
-        // Handle path routing
-        final Route pathRoute = buildPathRoute(path, baseRoute);
-        
-        // Handle HTTP method
-        switch (method.toUpperCase()) {
-            case "GET":
-                return get(() -> pathRoute);
-            case "POST":
-                return post(() -> pathRoute);
-            case "PUT":
-                return put(() -> pathRoute);
-            case "DELETE":
-                return delete(() -> pathRoute);
-            default:
-                system.log().warn("Unsupported HTTP method: {}", method);
-                return null;
+    private RouteDispatchTable.Endpoint createJsonEntityEndpoint(String routeName, Config routeConfig) {
+        String handlerName = routeConfig.getString("handler");
+        JsonEndpointHandler<?> handler = jsonHandlers.get(handlerName);
+        if (handler == null) {
+            system.log().warn("Unknown json handler: '{}' for route '{}', known: {}", handlerName, routeName, jsonHandlers.keySet());
+            return null;
+        }
+        return jsonEndpoint(handler);
+    }
+    
+    // unmarshaller created once per endpoint, not per request
+    private <T> RouteDispatchTable.Endpoint jsonEndpoint(JsonEndpointHandler<T> handler) {
+        Unmarshaller<HttpEntity, T> unmarshaller = Jackson.unmarshaller(handler.requestClass);
+        return pathParams -> entity(unmarshaller, request -> completeJson(handler.handle(request, pathParams)));
+    }
+    
+    private <R> Route completeJson(CompletionStage<R> future) {
+        return completeOKWithFuture(future, Jackson.<R>marshaller());
+    }
+    
+    private RouteDispatchTable.Endpoint createNdjsonStreamEndpoint(String routeName, Config routeConfig) {
+        String handlerName = routeConfig.getString("handler");
+        NdjsonEndpointHandler<?> handler = ndjsonHandlers.get(handlerName);
+        if (handler == null) {
+            system.log().warn("Unknown ndjson handler: '{}' for route '{}', known: {}", handlerName, routeName, ndjsonHandlers.keySet());
+            return null;
+        }
+        return ndjsonEndpoint(handler);
+    }
+    
+    // request elements are unmarshalled while they arrive, response lines are sent while they are produced (chunked)
+    private <T> RouteDispatchTable.Endpoint ndjsonEndpoint(NdjsonEndpointHandler<T> handler) {
+        Unmarshaller<ByteString, T> unmarshaller = Jackson.byteStringUnmarshaller(handler.elementClass);
+        EntityStreamingSupport streamingSupport = EntityStreamingSupport.json();
+        return pathParams -> entityAsSourceOf(unmarshaller, streamingSupport, elements ->
+            complete(HttpResponse.create()
+                .withEntity(HttpEntities.createChunked(NDJSON, handler.handle(elements, pathParams)))));
+    }
+    
+    private RouteDispatchTable.Endpoint createSseStreamEndpoint(String routeName, Config routeConfig) {
+        String handlerName = routeConfig.getString("handler");
+        SseEndpointHandler handler = sseHandlers.get(handlerName);
+        if (handler == null) {
+            system.log().warn("Unknown sse handler: '{}' for route '{}', known: {}", handlerName, routeName, sseHandlers.keySet());
+            return null;
         }
+        return pathParams -> completeOK(handler.handle(pathParams), EventStreamMarshalling.toEventStream());
     }
     
-    // Extract path building to separate method to avoid "effectively final" issues
-    private Route buildPathRoute(String path, Route baseRoute) {
-        if ("/".equals(path)) {
-            return pathSingleSlash(() -> baseRoute);
+    
+    private CompletionStage<CaseResolvedMessage> resolve(String caseId) {
+        return resolveBefore(caseId, Deadlines.NONE);
+    }
+
+    // the command carries the client's deadline: the earlier of deadlineMillis (NONE = none) and the wait timeout here
+    private CompletionStage<CaseResolvedMessage> resolveBefore(String caseId, long deadlineMillis) {
+        long acceptedNanos = System.nanoTime();
+        CompletionStage<CaseResolvedMessage> answer = "pubsub".equals(replyMode)
+            ? resolveViaPubSub(caseId, deadlineMillis)
+            : resolveViaReplyRegistry(caseId, deadlineMillis);
+        answer.whenComplete((message, failure) -> metrics.requestAnswered(outcomeOf(message, failure), caseId, acceptedNanos));
+        return answer;
+    }
+
+    // outcome tag of the case-resolution.requests and total stage metrics
+    static String outcomeOf(CaseResolvedMessage message, Throwable failure) {
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+            // AskTimeoutException of the PubSub path is one too
+            return cause instanceof TimeoutException ? PipelineMetrics.TIMEOUT : PipelineMetrics.ERROR;
+        }
+        // the reply registry answers an expired request with a "timeout" message
+        if ("timeout".equals(message.caseId)) {
+            return PipelineMetrics.TIMEOUT;
+        }
+        if (CaseResolutionPipeline.REJECTED.equals(message.caseId)) {
+            return PipelineMetrics.REJECTED;
+        }
+        return PipelineMetrics.OK;
+    }
+    
+    // Replies come back to this node's ReplyRegistry, nothing is subscribed cluster-wide
+    private CompletionStage<CaseResolvedMessage> resolveViaReplyRegistry(String caseId, long deadlineMillis) {
+        if (pipelineLog.sampled(caseId)) {
+            system.log().info("Received resolve case request for caseId: {} using ReplyRegistry", caseId);
+        }
+        ReplyRegistry.PendingReply pending = ReplyRegistry.get(system).register();
+        EntityRef<Command> caseRef = sharding.entityRefFor(CaseCompanionActor.ENTITY_TYPE_KEY, caseId);
+        caseRef.tell(new ResolveCaseCommand(caseId, pending.handle, earliest(deadlineMillis, pending.deadlineMillis),
+            System.currentTimeMillis()));
+        return pending.response;
+    }
+
+    private static long earliest(long deadlineMillis, long waitDeadlineMillis) {
+        return deadlineMillis == Deadlines.NONE ? waitDeadlineMillis : Math.min(deadlineMillis, waitDeadlineMillis);
+    }
+
+    // Original path: one subscriber actor and one DistributedPubSub topic per request
+    private CompletionStage<CaseResolvedMessage> resolveViaPubSub(String caseId, long deadlineMillis) {
+        if (pipelineLog.sampled(caseId)) {
+            system.log().info("Received resolve case request for caseId: {} using Distributed PubSub", caseId);
         }
         
-        // Parse path segments for nested paths like /api/v1/cases/resolve
-        String[] segments = path.split("/");
-        Route currentRoute = baseRoute;
+        // Create a unique response topic for this request
+        String responseTopicId = "case-response-" + UUID.randomUUID();
         
-        // Build nested path from right to left (skip empty first element from leading /)
-        for (int i = segments.length - 1; i >= 1; i--) {
-            if (!segments[i].isEmpty()) {
-                final Route innerRoute = currentRoute;
-                final String segment = segments[i];
-                currentRoute = path(segment, () -> innerRoute);
-            }
-        }
+        // Create a temporary subscriber actor for this request
+        ActorRef<Command> subscriber = 
+            system.systemActorOf(
+                ResponseSubscriberActor.create(responseTopicId, mediator),
+                "response-subscriber-" + UUID.randomUUID(),
+                Props.empty()
+            );
+        
+        // Send command to sharded entity with response topic
+        EntityRef<Command> caseRef = sharding.entityRefFor(
+            CaseCompanionActor.ENTITY_TYPE_KEY, caseId
+        );
+        Duration timeout = Duration.ofSeconds(35); // Generous timeout
+        caseRef.tell(new ResolveCaseCommand(caseId, responseTopicId, earliest(deadlineMillis, Deadlines.after(timeout)),
+            System.currentTimeMillis()));
         
-        return currentRoute;
+        // Use Ask pattern with the subscriber
+        return AskPattern.ask(
+            subscriber,
+            WaitForResponseCommand::new,
+            timeout,
+            system.scheduler()
+        );
     }
     
     // Request DTO
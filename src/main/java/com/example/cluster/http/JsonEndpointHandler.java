@@ -0,0 +1,31 @@
+package com.example.cluster.http;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+
+/**
+ * Application logic behind a json-entity-handler endpoint: the request body type and what to answer.
+ * Registered by name in HttpServer, endpoints pick one with the handler key of their http-routes entry.
+ * The answer is marshalled to JSON with status 200.
+ */
+public final class JsonEndpointHandler<T> {
+
+    final Class<T> requestClass;
+    private final BiFunction<T, Map<String, String>, CompletionStage<?>> handle;
+
+    private JsonEndpointHandler(Class<T> requestClass, BiFunction<T, Map<String, String>, CompletionStage<?>> handle) {
+        this.requestClass = requestClass;
+        this.handle = handle;
+    }
+
+    // handle gets the unmarshalled body and the {name} path parameters of the endpoint
+    public static <T> JsonEndpointHandler<T> of(Class<T> requestClass,
+                                               BiFunction<T, Map<String, String>, CompletionStage<?>> handle) {
+        return new JsonEndpointHandler<>(requestClass, handle);
+    }
+
+    CompletionStage<?> handle(T request, Map<String, String> pathParams) {
+        return handle.apply(request, pathParams);
+    }
+}
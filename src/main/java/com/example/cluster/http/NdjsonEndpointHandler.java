@@ -0,0 +1,35 @@
+package com.example.cluster.http;
+
+import org.apache.pekko.NotUsed;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.util.ByteString;
+
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Application logic behind an ndjson-stream-handler endpoint: the request body is a stream of JSON
+ * objects of one type (a JSON array or newline delimited), the answer is a stream of NDJSON lines
+ * that is sent while it is produced. Registered by name in HttpServer like JsonEndpointHandler.
+ */
+public final class NdjsonEndpointHandler<T> {
+
+    final Class<T> elementClass;
+    private final BiFunction<Source<T, NotUsed>, Map<String, String>, Source<ByteString, ?>> handle;
+
+    private NdjsonEndpointHandler(Class<T> elementClass,
+                                  BiFunction<Source<T, NotUsed>, Map<String, String>, Source<ByteString, ?>> handle) {
+        this.elementClass = elementClass;
+        this.handle = handle;
+    }
+
+    // handle turns the request elements (and the {name} path parameters) into the response lines, each ending in \n
+    public static <T> NdjsonEndpointHandler<T> of(Class<T> elementClass,
+                                                 BiFunction<Source<T, NotUsed>, Map<String, String>, Source<ByteString, ?>> handle) {
+        return new NdjsonEndpointHandler<>(elementClass, handle);
+    }
+
+    Source<ByteString, ?> handle(Source<T, NotUsed> elements, Map<String, String> pathParams) {
+        return handle.apply(elements, pathParams);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.cluster.http;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Data of one event of GET /api/v1/cases/{caseId}/resolve/stream.
+ * elapsedMs counts from the moment this node accepted the request, summary is only set on "resolved".
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResolveProgressEvent {
+    @JsonProperty("caseId")
+    public final String caseId;
+
+    @JsonProperty("stage")
+    public final String stage;
+
+    @JsonProperty("elapsedMs")
+    public final long elapsedMs;
+
+    @JsonProperty("summary")
+    public final String summary;
+
+    public ResolveProgressEvent(String caseId, String stage, long elapsedMs, String summary) {
+        this.caseId = caseId;
+        this.stage = stage;
+        this.elapsedMs = elapsedMs;
+        this.summary = summary;
+    }
+}
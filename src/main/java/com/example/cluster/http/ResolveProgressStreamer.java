@@ -0,0 +1,96 @@
+package com.example.cluster.http;
+
+import com.example.cluster.actors.CaseCompanionActor;
+import com.example.cluster.actors.CaseResolutionPipeline;
+import com.example.cluster.commands.Command;
+import com.example.cluster.commands.ResolveCaseCommand;
+import com.example.cluster.metrics.PipelineMetrics;
+import com.example.cluster.reply.ReplyRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.typesafe.config.Config;
+import org.apache.pekko.NotUsed;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.cluster.sharding.typed.javadsl.ClusterSharding;
+import org.apache.pekko.cluster.sharding.typed.javadsl.EntityRef;
+import org.apache.pekko.http.javadsl.model.sse.ServerSentEvent;
+import org.apache.pekko.japi.Pair;
+import org.apache.pekko.stream.BoundedSourceQueue;
+import org.apache.pekko.stream.javadsl.Source;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves one case and streams every finished stage to the client as a server-sent event:
+ * accepted, log-analysis-done, deployment-request-sent, deployment-status-arrived, persisted,
+ * and last resolved (with the summary), timeout or rejected (node overloaded, summary says why).
+ *
+ * Always goes through the ReplyRegistry, the stages are reported to the handle of this node.
+ * A client that disconnects early only closes its queue, the resolution itself runs to the end.
+ */
+final class ResolveProgressStreamer {
+
+    static final String ACCEPTED = "accepted";
+    static final String RESOLVED = "resolved";
+    static final String TIMEOUT = "timeout";
+
+    private static final ObjectWriter EVENT_WRITER = new ObjectMapper().writerFor(ResolveProgressEvent.class);
+
+    private final ActorSystem<?> system;
+    private final ClusterSharding sharding;
+    private final Duration heartbeat;
+    private final PipelineMetrics metrics;
+
+    ResolveProgressStreamer(ActorSystem<?> system, ClusterSharding sharding, Config config, PipelineMetrics metrics) {
+        this.system = system;
+        this.sharding = sharding;
+        this.heartbeat = config.getDuration("heartbeat");
+        this.metrics = metrics;
+    }
+
+    Source<ServerSentEvent, NotUsed> resolveWithProgress(String caseId) {
+        long acceptedAt = System.nanoTime();
+        // at most 5 stages + the final event, the buffer never drops while the client reads
+        Pair<BoundedSourceQueue<ServerSentEvent>, Source<ServerSentEvent, NotUsed>> queueAndEvents =
+            Source.<ServerSentEvent>queue(8).preMaterialize(system);
+        BoundedSourceQueue<ServerSentEvent> queue = queueAndEvents.first();
+
+        ReplyRegistry.PendingReply pending = ReplyRegistry.get(system).register(
+            stage -> queue.offer(event(caseId, stage, acceptedAt, null)));
+        EntityRef<Command> caseRef = sharding.entityRefFor(CaseCompanionActor.ENTITY_TYPE_KEY, caseId);
+        caseRef.tell(new ResolveCaseCommand(caseId, pending.handle, pending.deadlineMillis, System.currentTimeMillis()));
+        queue.offer(event(caseId, ACCEPTED, acceptedAt, null));
+
+        pending.response.whenComplete((message, failure) -> {
+            metrics.requestAnswered(HttpServer.outcomeOf(message, failure), caseId, acceptedAt);
+            if (failure != null) {
+                queue.fail(failure);
+            } else if (TIMEOUT.equals(message.caseId)) {
+                // the registry expired the request, see ReplyRegistry.expire
+                queue.offer(event(caseId, TIMEOUT, acceptedAt, null));
+                queue.complete();
+            } else if (CaseResolutionPipeline.REJECTED.equals(message.caseId)) {
+                queue.offer(event(caseId, CaseResolutionPipeline.REJECTED, acceptedAt, message.summary));
+                queue.complete();
+            } else {
+                queue.offer(event(caseId, RESOLVED, acceptedAt, message.summary));
+                queue.complete();
+            }
+        });
+
+        // proxies close idle connections, the analysis can take a while between two stages
+        return queueAndEvents.second().keepAlive(heartbeat, ServerSentEvent::heartbeat);
+    }
+
+    private static ServerSentEvent event(String caseId, String stage, long acceptedAt, String summary) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - acceptedAt);
+        try {
+            return ServerSentEvent.create(
+                EVENT_WRITER.writeValueAsString(new ResolveProgressEvent(caseId, stage, elapsedMs, summary)), stage);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("ResolveProgressEvent not serializable", e);
+        }
+    }
+}
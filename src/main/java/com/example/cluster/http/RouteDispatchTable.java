@@ -0,0 +1,157 @@
+package com.example.cluster.http;
+
+import org.apache.pekko.http.javadsl.server.Route;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The configured endpoints compiled into a lookup structure, so dispatch cost does not grow with the
+ * number of endpoints (concat of path directives tries every route in turn).
+ *
+ * - paths without parameters: one hash lookup on the normalized path, then one on the method
+ * - paths with {name} segments: a segment trie, literal children win over the parameter child
+ *
+ * Built once in HttpServer.createRoutes, read only afterwards, so it is safe to share between requests.
+ */
+final class RouteDispatchTable {
+
+    /** What an endpoint does for a request; static endpoints return the same prebuilt Route every time. */
+    interface Endpoint {
+        Route route(Map<String, String> pathParams);
+    }
+
+    enum Result { FOUND, METHOD_NOT_ALLOWED, NOT_FOUND }
+
+    static final class Lookup {
+        final Result result;
+        final Endpoint endpoint;
+        final Map<String, String> pathParams;
+        // for METHOD_NOT_ALLOWED, sorted
+        final Set<String> allowedMethods;
+
+        private Lookup(Result result, Endpoint endpoint, Map<String, String> pathParams, Set<String> allowedMethods) {
+            this.result = result;
+            this.endpoint = endpoint;
+            this.pathParams = pathParams;
+            this.allowedMethods = allowedMethods;
+        }
+    }
+
+    private static final Lookup NOT_FOUND = new Lookup(Result.NOT_FOUND, null, Collections.emptyMap(), Collections.emptySet());
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        Node parameter;
+        String parameterName;
+        // method -> endpoint, for the path that ends at this node
+        final Map<String, Endpoint> endpoints = new HashMap<>();
+    }
+
+    // normalized path -> method -> endpoint
+    private final Map<String, Map<String, Endpoint>> exact = new HashMap<>();
+    private final Node root = new Node();
+    private int size;
+
+    void add(String method, String path, Endpoint endpoint) {
+        String normalizedMethod = method.toUpperCase();
+        List<String> segments = segments(path);
+        Map<String, Endpoint> byMethod;
+        if (segments.stream().noneMatch(RouteDispatchTable::isParameter)) {
+            byMethod = exact.computeIfAbsent(normalize(path), p -> new HashMap<>());
+        } else {
+            Node node = root;
+            for (String segment : segments) {
+                if (isParameter(segment)) {
+                    String name = segment.substring(1, segment.length() - 1);
+                    if (node.parameter == null) {
+                        node.parameter = new Node();
+                        node.parameterName = name;
+                    } else if (!node.parameterName.equals(name)) {
+                        throw new IllegalArgumentException("Path " + path + " names parameter {" + name
+                            + "} where another route uses {" + node.parameterName + "}");
+                    }
+                    node = node.parameter;
+                } else {
+                    node = node.literals.computeIfAbsent(segment, s -> new Node());
+                }
+            }
+            byMethod = node.endpoints;
+        }
+        if (byMethod.putIfAbsent(normalizedMethod, endpoint) != null) {
+            throw new IllegalArgumentException("Duplicate route " + normalizedMethod + " " + path);
+        }
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Lookup lookup(String method, String path) {
+        Map<String, Endpoint> byMethod = exact.get(normalize(path));
+        Map<String, String> pathParams = Collections.emptyMap();
+        if (byMethod == null) {
+            pathParams = new HashMap<>(4);
+            byMethod = walk(segments(path), pathParams);
+            if (byMethod == null) {
+                return NOT_FOUND;
+            }
+        }
+        Endpoint endpoint = byMethod.get(method);
+        if (endpoint == null) {
+            return new Lookup(Result.METHOD_NOT_ALLOWED, null, pathParams, new TreeSet<>(byMethod.keySet()));
+        }
+        return new Lookup(Result.FOUND, endpoint, pathParams, Collections.emptySet());
+    }
+
+    private Map<String, Endpoint> walk(List<String> segments, Map<String, String> pathParams) {
+        Node node = root;
+        for (String segment : segments) {
+            Node literal = node.literals.get(segment);
+            if (literal != null) {
+                node = literal;
+            } else if (node.parameter != null) {
+                pathParams.put(node.parameterName, segment);
+                node = node.parameter;
+            } else {
+                return null;
+            }
+        }
+        return node.endpoints.isEmpty() ? null : node.endpoints;
+    }
+
+    private static boolean isParameter(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    // "/a/b/" and "/a/b" are the same endpoint, "" is "/"
+    private static String normalize(String path) {
+        if (path.isEmpty()) {
+            return "/";
+        }
+        if (path.length() > 1 && path.charAt(path.length() - 1) == '/') {
+            return path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>(6);
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) {
+                    segments.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.cluster.http;
+
+import org.apache.pekko.http.javadsl.model.sse.ServerSentEvent;
+import org.apache.pekko.stream.javadsl.Source;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Application logic behind an sse-stream-handler endpoint: the {name} path parameters in,
+ * a stream of server-sent events out, sent as text/event-stream while they are produced.
+ * Registered by name in HttpServer like JsonEndpointHandler.
+ */
+public final class SseEndpointHandler {
+
+    private final Function<Map<String, String>, Source<ServerSentEvent, ?>> handle;
+
+    private SseEndpointHandler(Function<Map<String, String>, Source<ServerSentEvent, ?>> handle) {
+        this.handle = handle;
+    }
+
+    public static SseEndpointHandler of(Function<Map<String, String>, Source<ServerSentEvent, ?>> handle) {
+        return new SseEndpointHandler(handle);
+    }
+
+    Source<ServerSentEvent, ?> handle(Map<String, String> pathParams) {
+        return handle.apply(pathParams);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.cluster.kafka;
+
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.typed.javadsl.ActorContext;
+import org.apache.pekko.actor.typed.ActorSystem;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Async variant of ConsumingRoutingLogic.
+ * The returned stage completes when the target actor acknowledged the message,
+ * only then the Kafka offset of the record may be committed.
+ */
+@FunctionalInterface
+public interface AsyncConsumingRoutingLogic<T> {
+    CompletionStage<Done> handle(T message, ActorContext<?> ctx, ActorSystem<?> system);
+}
@@ -0,0 +1,159 @@
+package com.example.cluster.kafka;
+
+import com.example.cluster.commands.DeploymentStatusRequestBatchCommand;
+import com.example.cluster.commands.DeploymentStatusRequestCommand;
+import com.example.cluster.deadline.Deadlines;
+import com.typesafe.config.Config;
+import kamon.Kamon;
+import kamon.metric.Histogram;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.CoordinatedShutdown;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+import org.apache.pekko.japi.Pair;
+import org.apache.pekko.stream.BoundedSourceQueue;
+import org.apache.pekko.stream.QueueOfferResult;
+import org.apache.pekko.stream.javadsl.Keep;
+import org.apache.pekko.stream.javadsl.Sink;
+import org.apache.pekko.stream.javadsl.Source;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * How the CaseCompanionActors of a ClusterA node send their DeploymentStatusRequestCommands to ClusterB.
+ *
+ * kafka.batching.enabled = off: one record per request on deployment-requests (original POC way).
+ * kafka.batching.enabled = on: requests of all cases of the node are collected for up to max-items or
+ * max-delay, whatever comes first, and go out as one DeploymentStatusRequestBatchCommand record on
+ * deployment-request-batches. ClusterB answers it with one DeploymentStatusResponseBatchCommand on
+ * deployment-response-batches, the ClusterA consumer fans the responses out to the entities.
+ * One record per batch means one header, one content type and one key per batch instead of per case,
+ * and the codec compresses many similar requests together.
+ *
+ * The returned stage completes once the record carrying the request is in Kafka, fails when it could not be
+ * sent (the whole batch fails then) or with KafkaProducerOverflowException when queue-size requests wait already.
+ *
+ * Metrics: kafka.batch.size (requests per record).
+ */
+public class DeploymentRequestBatcher implements Extension {
+
+    public static final ExtensionId<DeploymentRequestBatcher> ID = new Id();
+
+    public static DeploymentRequestBatcher get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<DeploymentRequestBatcher> {
+        @Override
+        public DeploymentRequestBatcher createExtension(ActorSystem<?> system) {
+            return new DeploymentRequestBatcher(system);
+        }
+    }
+
+    private static final class Pending {
+        final DeploymentStatusRequestCommand request;
+        final long deadlineMillis;
+        final CompletableFuture<Done> sent = new CompletableFuture<>();
+
+        Pending(DeploymentStatusRequestCommand request, long deadlineMillis) {
+            this.request = request;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+
+    private final ActorSystem<?> system;
+    private final boolean enabled;
+    private final String requestsTopic;
+    private final String batchesTopic;
+    private final int queueSize;
+    private final BoundedSourceQueue<Pending> queue;
+    private final Histogram batchSize;
+
+    private DeploymentRequestBatcher(ActorSystem<?> system) {
+        Config config = system.settings().config().getConfig("kafka.batching");
+        this.system = system;
+        this.enabled = config.getBoolean("enabled");
+        this.requestsTopic = KafkaUtil.topicName(system, "deployment-requests");
+        this.batchesTopic = KafkaUtil.topicName(system, "deployment-request-batches");
+        this.queueSize = config.getInt("queue-size");
+        this.batchSize = Kamon.histogram("kafka.batch.size").withTag("topic", batchesTopic);
+        if (!enabled) {
+            this.queue = null;
+            return;
+        }
+
+        int maxItems = config.getInt("max-items");
+        Duration maxDelay = config.getDuration("max-delay");
+        Pair<BoundedSourceQueue<Pending>, CompletionStage<Done>> materialized =
+            Source.<Pending>queue(queueSize)
+                .groupedWithin(maxItems, maxDelay)
+                .mapAsync(config.getInt("max-in-flight"), this::sendBatch)
+                .toMat(Sink.ignore(), Keep.both())
+                .run(system);
+        this.queue = materialized.first();
+        CompletionStage<Done> streamDone = materialized.second();
+
+        // flush what is collected before the shared producer closes (PhaseBeforeActorSystemTerminate)
+        CoordinatedShutdown.get(system).addTask(
+            CoordinatedShutdown.PhaseServiceStop(),
+            "flush-deployment-request-batches",
+            () -> {
+                queue.complete();
+                return streamDone.exceptionally(ex -> Done.getInstance());
+            });
+
+        system.log().info("Deployment request batching on (max-items={}, max-delay={})", maxItems, maxDelay);
+    }
+
+    // deadlineMillis goes into the x-deadline header, ClusterB skips the record once it passed
+    public CompletionStage<Done> send(DeploymentStatusRequestCommand request, long deadlineMillis) {
+        if (!enabled) {
+            return KafkaUtil.produce(system, requestsTopic, request.requestId, request, deadlineMillis)
+                .thenApply(metadata -> Done.getInstance());
+        }
+        Pending pending = new Pending(request, deadlineMillis);
+        QueueOfferResult offered = queue.offer(pending);
+        if (offered == QueueOfferResult.enqueued()) {
+            return pending.sent;
+        }
+        if (offered == QueueOfferResult.dropped()) {
+            pending.sent.completeExceptionally(new KafkaProducerOverflowException(batchesTopic, queueSize));
+        } else if (offered instanceof QueueOfferResult.Failure) {
+            pending.sent.completeExceptionally(((QueueOfferResult.Failure) offered).cause());
+        } else {
+            pending.sent.completeExceptionally(
+                new IllegalStateException("Deployment request batcher is closed, request " + request.requestId + " not sent"));
+        }
+        return pending.sent;
+    }
+
+    private CompletionStage<Done> sendBatch(List<Pending> batch) {
+        List<DeploymentStatusRequestCommand> requests = new ArrayList<>(batch.size());
+        // the batch is worth answering until the last of its requesters gives up
+        long deadlineMillis = batch.get(0).deadlineMillis;
+        for (Pending pending : batch) {
+            requests.add(pending.request);
+            deadlineMillis = Deadlines.latest(deadlineMillis, pending.deadlineMillis);
+        }
+        batchSize.record(batch.size());
+        String batchId = UUID.randomUUID().toString();
+        return KafkaUtil.produce(system, batchesTopic, batchId, new DeploymentStatusRequestBatchCommand(batchId, requests), deadlineMillis)
+            .handle((metadata, ex) -> {
+                for (Pending pending : batch) {
+                    if (ex != null) {
+                        pending.sent.completeExceptionally(ex);
+                    } else {
+                        pending.sent.complete(Done.getInstance());
+                    }
+                }
+                // a failed batch fails its requests, not the stream
+                return Done.getInstance();
+            });
+    }
+}
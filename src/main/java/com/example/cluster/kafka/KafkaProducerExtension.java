@@ -0,0 +1,138 @@
+package com.example.cluster.kafka;
+
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.CoordinatedShutdown;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+import org.apache.pekko.japi.Pair;
+import org.apache.pekko.stream.ActorAttributes;
+import org.apache.pekko.stream.BoundedSourceQueue;
+import org.apache.pekko.stream.QueueOfferResult;
+import org.apache.pekko.stream.javadsl.Keep;
+import org.apache.pekko.stream.javadsl.Sink;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * One long-lived KafkaProducer per ActorSystem.
+ *
+ * Before this extension every KafkaUtil.produce call materialized its own stream with
+ * fresh ProducerSettings, so each case paid for producer setup and never shared a batch
+ * with any other case. Now all records of the node go through a single bounded queue
+ * into one producer, which batches them according to linger-ms / batch-size.
+ *
+ * Callers get a CompletionStage per record:
+ * - completed with RecordMetadata once the broker acknowledged the record
+ * - failed with KafkaProducerOverflowException when the queue is full (fast overflow signal,
+ *   nothing is buffered beyond kafka.producer.queue-size)
+ * - failed with the producer exception otherwise
+ *
+ * Backpressure: at most kafka.producer.max-in-flight records are handed to the producer
+ * without an ack, when the producer is slower than callers the queue fills up and callers are told so.
+ */
+public class KafkaProducerExtension implements Extension {
+
+    public static final ExtensionId<KafkaProducerExtension> ID = new Id();
+
+    public static KafkaProducerExtension get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<KafkaProducerExtension> {
+        @Override
+        public KafkaProducerExtension createExtension(ActorSystem<?> system) {
+            return new KafkaProducerExtension(system);
+        }
+    }
+
+    private static final class Envelope {
+        final ProducerRecord<String, byte[]> record;
+        final CompletableFuture<RecordMetadata> result = new CompletableFuture<>();
+
+        Envelope(ProducerRecord<String, byte[]> record) {
+            this.record = record;
+        }
+    }
+
+    private final Producer<String, byte[]> producer;
+    private final BoundedSourceQueue<Envelope> queue;
+    private final int queueSize;
+
+    private KafkaProducerExtension(ActorSystem<?> system) {
+        Config producerConfig = system.settings().config().getConfig("kafka.producer");
+        this.queueSize = producerConfig.getInt("queue-size");
+        int maxInFlight = producerConfig.getInt("max-in-flight");
+        Duration closeTimeout = producerConfig.getDuration("close-timeout");
+
+        this.producer = KafkaUtil.producerSettings(system).createKafkaProducer();
+
+        // send() may block on metadata or a full buffer.memory, so keep it off the default dispatcher
+        Pair<BoundedSourceQueue<Envelope>, CompletionStage<Done>> materialized =
+            Source.<Envelope>queue(queueSize)
+                .mapAsyncUnordered(maxInFlight, this::handOver)
+                .toMat(Sink.ignore(), Keep.both())
+                .withAttributes(ActorAttributes.dispatcher("pekko.kafka.default-dispatcher"))
+                .run(system);
+        this.queue = materialized.first();
+        CompletionStage<Done> streamDone = materialized.second();
+
+        CoordinatedShutdown.get(system).addTask(
+            CoordinatedShutdown.PhaseBeforeActorSystemTerminate(),
+            "close-shared-kafka-producer",
+            () -> {
+                queue.complete();
+                return streamDone
+                    .exceptionally(ex -> Done.getInstance())
+                    .thenApply(done -> {
+                        producer.close(closeTimeout);
+                        return Done.getInstance();
+                    });
+            });
+
+        system.log().info("Shared Kafka producer started (queue-size={}, max-in-flight={})", queueSize, maxInFlight);
+    }
+
+    /**
+     * Enqueue a record for the shared producer. Never blocks the caller.
+     */
+    public CompletionStage<RecordMetadata> send(ProducerRecord<String, byte[]> record) {
+        Envelope envelope = new Envelope(record);
+        QueueOfferResult offered = queue.offer(envelope);
+        if (offered == QueueOfferResult.enqueued()) {
+            return envelope.result;
+        }
+        if (offered == QueueOfferResult.dropped()) {
+            envelope.result.completeExceptionally(new KafkaProducerOverflowException(record.topic(), queueSize));
+        } else if (offered instanceof QueueOfferResult.Failure) {
+            envelope.result.completeExceptionally(((QueueOfferResult.Failure) offered).cause());
+        } else {
+            envelope.result.completeExceptionally(
+                new IllegalStateException("Shared Kafka producer is closed, record for topic " + record.topic() + " not sent"));
+        }
+        return envelope.result;
+    }
+
+    private CompletionStage<Done> handOver(Envelope envelope) {
+        try {
+            producer.send(envelope.record, (metadata, exception) -> {
+                if (exception != null) {
+                    envelope.result.completeExceptionally(exception);
+                } else {
+                    envelope.result.complete(metadata);
+                }
+            });
+        } catch (Exception e) {
+            // serialization errors, closed producer, max.block.ms exceeded - fail this record, keep the stream
+            envelope.result.completeExceptionally(e);
+        }
+        return envelope.result.handle((metadata, ex) -> Done.getInstance());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.cluster.kafka;
+
+/**
+ * Signals that the shared producer queue is full and the record was not accepted.
+ * Callers may retry later or fail their own request fast.
+ */
+public class KafkaProducerOverflowException extends RuntimeException {
+
+    public KafkaProducerOverflowException(String topic, int queueSize) {
+        super("Kafka producer queue is full (" + queueSize + " records), record for topic " + topic + " rejected");
+    }
+}
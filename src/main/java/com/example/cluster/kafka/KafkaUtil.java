@@ -1,32 +1,53 @@
 package com.example.cluster.kafka;
 
+import org.apache.pekko.NotUsed;
 import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.japi.Pair;
+import org.apache.pekko.kafka.AutoSubscription;
+import org.apache.pekko.kafka.ConsumerMessage;
 import org.apache.pekko.kafka.ConsumerSettings;
 import org.apache.pekko.kafka.ProducerSettings;
 import org.apache.pekko.kafka.Subscriptions;
 import org.apache.pekko.kafka.javadsl.Consumer;
-import org.apache.pekko.kafka.javadsl.Producer;
 import org.apache.pekko.stream.javadsl.Source;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.example.cluster.deadline.Deadlines;
+import com.example.cluster.kafka.codec.KafkaCodecs;
+import com.example.cluster.kafka.codec.KafkaPayloadCodec;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
 import com.typesafe.config.Config;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 public class KafkaUtil {
-    private static final ObjectMapper objectMapper = new ObjectMapper()
-            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // absolute deadline (epoch millis) of the work a record asks for, see Deadlines; absent = no deadline
+    public static final String DEADLINE_HEADER = "x-deadline";
+
+    // actual topic name of a kafka.topics entry, e.g. topicName(system, "deployment-requests")
+    public static String topicName(ActorSystem<?> system, String topicKey) {
+        return system.settings().config().getConfig("kafka.topics").getConfig(topicKey).getString("name");
+    }
 
     public static ProducerSettings<String, byte[]> producerSettings(ActorSystem<?> system) {
         Config config = system.settings().config().getConfig("kafka");
+        Config producerConfig = config.getConfig("producer");
         return ProducerSettings.create(system, new StringSerializer(), new ByteArraySerializer())
-                .withBootstrapServers(config.getString("bootstrap-servers"));
+                .withBootstrapServers(config.getString("bootstrap-servers"))
+                .withProperty(ProducerConfig.LINGER_MS_CONFIG, producerConfig.getString("linger-ms"))
+                .withProperty(ProducerConfig.BATCH_SIZE_CONFIG, producerConfig.getString("batch-size"))
+                .withProperty(ProducerConfig.COMPRESSION_TYPE_CONFIG, producerConfig.getString("compression-type"))
+                .withProperty(ProducerConfig.ACKS_CONFIG, producerConfig.getString("acks"));
     }
 
     public static ConsumerSettings<String, byte[]> consumerSettings(ActorSystem<?> system, String groupId) {
@@ -37,37 +58,98 @@ public class KafkaUtil {
                 .withProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
     }
 
-    public static <T> ProducerRecord<String, byte[]> toProducerRecord(String topic, String key, T message) throws Exception {
-        byte[] value = objectMapper.writeValueAsBytes(message);
-        return new ProducerRecord<>(topic, key, value);
+    // offsets are committed by the application after delivery, never by the client in the background
+    public static ConsumerSettings<String, byte[]> committableConsumerSettings(ActorSystem<?> system, String groupId) {
+        return consumerSettings(system, groupId)
+                .withProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
     }
 
-    public static <T> T fromConsumerRecord(ConsumerRecord<String, byte[]> record, Class<T> clazz) throws Exception {
-        return objectMapper.readValue(record.value(), clazz);
+    // value encoded with the codec configured for the topic, the codec is named in the content-type header
+    public static <T> ProducerRecord<String, byte[]> toProducerRecord(
+            ActorSystem<?> system, String topic, String key, T message) throws Exception {
+        KafkaPayloadCodec codec = KafkaCodecs.get(system).codecFor(topic);
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, codec.encode(message));
+        record.headers().add(KafkaCodecs.CONTENT_TYPE_HEADER, codec.contentType().getBytes(StandardCharsets.UTF_8));
+        return record;
     }
 
-    // producing a message
-    public static CompletionStage<org.apache.pekko.Done> produce(
+    // decoded with whatever codec the producer used (content-type header), not the one configured here
+    public static <T> T fromConsumerRecord(
+            ActorSystem<?> system, ConsumerRecord<String, byte[]> record, Class<T> clazz) throws Exception {
+        return KafkaCodecs.get(system).codecFor(record.headers()).decode(record.value(), clazz);
+    }
+
+    // producing a message - goes through the shared per-node producer, see KafkaProducerExtension
+    public static CompletionStage<RecordMetadata> produce(
             ActorSystem<?> system, String topic, String key, Object message) {
         ProducerRecord<String, byte[]> record;
         try {
-            record = toProducerRecord(topic, key, message);
+            record = toProducerRecord(system, topic, key, message);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return KafkaProducerExtension.get(system).send(record);
+    }
+
+    // same, with the deadline of the requester in the x-deadline header
+    public static CompletionStage<RecordMetadata> produce(
+            ActorSystem<?> system, String topic, String key, Object message, long deadlineMillis) {
+        ProducerRecord<String, byte[]> record;
+        try {
+            record = toProducerRecord(system, topic, key, message);
         } catch (Exception e) {
-            throw new RuntimeException(e);
+            return CompletableFuture.failedFuture(e);
+        }
+        if (deadlineMillis != Deadlines.NONE) {
+            record.headers().add(DEADLINE_HEADER, Long.toString(deadlineMillis).getBytes(StandardCharsets.UTF_8));
         }
-        return Source.single(record)
-                .runWith(Producer.plainSink(producerSettings(system)), system);
+        return KafkaProducerExtension.get(system).send(record);
+    }
+
+    public static long deadlineOf(ConsumerRecord<String, byte[]> record) {
+        Header header = record.headers().lastHeader(DEADLINE_HEADER);
+        if (header == null) {
+            return Deadlines.NONE;
+        }
+        try {
+            return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            // a garbled deadline must not drop the record
+            return Deadlines.NONE;
+        }
+    }
+
+    // consuming messages, one committable sub-source per assigned partition
+    public static Source<Pair<TopicPartition, Source<ConsumerMessage.CommittableMessage<String, byte[]>, NotUsed>>, Consumer.Control>
+            consumeCommittablePartitioned(ActorSystem<?> system, String topic, String groupId) {
+        return consumeCommittablePartitioned(system, Subscriptions.topics(topic), groupId);
+    }
+
+    public static Source<Pair<TopicPartition, Source<ConsumerMessage.CommittableMessage<String, byte[]>, NotUsed>>, Consumer.Control>
+            consumeCommittablePartitioned(ActorSystem<?> system, AutoSubscription subscription, String groupId) {
+        return Consumer.committablePartitionedSource(
+                committableConsumerSettings(system, groupId),
+                subscription);
+    }
+
+    // consuming records as they are, offsets are not committed
+    public static Source<ConsumerRecord<String, byte[]>, Consumer.Control> consumeRecords(
+            ActorSystem<?> system, AutoSubscription subscription, String groupId) {
+        return Consumer.plainSource(consumerSettings(system, groupId), subscription);
     }
 
     // consuming messages
     public static <T> Source<T, Consumer.Control> consume(
             ActorSystem<?> system, String topic, String groupId, Class<T> clazz) {
-        return Consumer.plainSource(
-                consumerSettings(system, groupId),
-                Subscriptions.topics(topic))
+        return consume(system, Subscriptions.topics(topic), groupId, clazz);
+    }
+
+    public static <T> Source<T, Consumer.Control> consume(
+            ActorSystem<?> system, AutoSubscription subscription, String groupId, Class<T> clazz) {
+        return consumeRecords(system, subscription, groupId)
                 .map(record -> {
                     try {
-                        return fromConsumerRecord(record, clazz);
+                        return fromConsumerRecord(system, record, clazz);
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
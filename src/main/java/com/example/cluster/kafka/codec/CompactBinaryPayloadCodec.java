@@ -0,0 +1,159 @@
+package com.example.cluster.kafka.codec;
+
+import com.example.cluster.commands.DeploymentStatusKafkaResponseCommand;
+import com.example.cluster.commands.DeploymentStatusRequestBatchCommand;
+import com.example.cluster.commands.DeploymentStatusRequestCommand;
+import com.example.cluster.commands.DeploymentStatusResponseBatchCommand;
+import com.example.cluster.serialize.CompactBinaryReader;
+import com.example.cluster.serialize.CompactBinaryWriter;
+
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed binary layout for the commands that travel between the clusters (single or batch envelope), no field names, no reflection.
+ * Uses the same primitives as CaseMessagesSerializer (see CompactBinaryWriter for the layout rules).
+ *
+ * The layout version is part of the content type, a changed layout gets a new version and the old
+ * one stays readable as long as such records can still sit in the topic.
+ *
+ * Every record starts with a type byte, so the decoder can refuse a record of the wrong type
+ * instead of producing garbage.
+ */
+public final class CompactBinaryPayloadCodec implements KafkaPayloadCodec {
+
+    public static final String CONTENT_TYPE = "application/x-case-binary;v=1";
+
+    private static final int DEPLOYMENT_STATUS_REQUEST = 1;
+    private static final int DEPLOYMENT_STATUS_RESPONSE = 2;
+    // batch envelopes only travel on their own topics, consumers of the single-record topics never see them
+    private static final int DEPLOYMENT_STATUS_REQUEST_BATCH = 3;
+    private static final int DEPLOYMENT_STATUS_RESPONSE_BATCH = 4;
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Object message) {
+        if (message instanceof DeploymentStatusRequestCommand) {
+            CompactBinaryWriter writer = new CompactBinaryWriter(96).writeByte(DEPLOYMENT_STATUS_REQUEST);
+            writeRequest(writer, (DeploymentStatusRequestCommand) message);
+            return writer.toByteArray();
+        }
+        if (message instanceof DeploymentStatusKafkaResponseCommand) {
+            CompactBinaryWriter writer = new CompactBinaryWriter(160).writeByte(DEPLOYMENT_STATUS_RESPONSE);
+            writeResponse(writer, (DeploymentStatusKafkaResponseCommand) message);
+            return writer.toByteArray();
+        }
+        if (message instanceof DeploymentStatusRequestBatchCommand) {
+            DeploymentStatusRequestBatchCommand batch = (DeploymentStatusRequestBatchCommand) message;
+            CompactBinaryWriter writer = new CompactBinaryWriter(64 + 80 * batch.requests.size())
+                .writeByte(DEPLOYMENT_STATUS_REQUEST_BATCH)
+                .writeString(batch.batchId)
+                .writeVarInt(batch.requests.size());
+            batch.requests.forEach(request -> writeRequest(writer, request));
+            return writer.toByteArray();
+        }
+        if (message instanceof DeploymentStatusResponseBatchCommand) {
+            DeploymentStatusResponseBatchCommand batch = (DeploymentStatusResponseBatchCommand) message;
+            CompactBinaryWriter writer = new CompactBinaryWriter(64 + 144 * batch.responses.size())
+                .writeByte(DEPLOYMENT_STATUS_RESPONSE_BATCH)
+                .writeString(batch.batchId)
+                .writeVarInt(batch.responses.size());
+            batch.responses.forEach(response -> writeResponse(writer, response));
+            return writer.toByteArray();
+        }
+        throw new IllegalArgumentException("No binary layout for " + message.getClass().getName());
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> clazz) throws Exception {
+        CompactBinaryReader reader = new CompactBinaryReader(bytes);
+        int type = reader.readByte();
+        Object decoded;
+        switch (type) {
+            case DEPLOYMENT_STATUS_REQUEST:
+                decoded = readRequest(reader);
+                break;
+            case DEPLOYMENT_STATUS_RESPONSE:
+                decoded = readResponse(reader);
+                break;
+            case DEPLOYMENT_STATUS_REQUEST_BATCH: {
+                String batchId = reader.readString();
+                int size = reader.readVarInt();
+                List<DeploymentStatusRequestCommand> requests = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    requests.add(readRequest(reader));
+                }
+                decoded = new DeploymentStatusRequestBatchCommand(batchId, requests);
+                break;
+            }
+            case DEPLOYMENT_STATUS_RESPONSE_BATCH: {
+                String batchId = reader.readString();
+                int size = reader.readVarInt();
+                List<DeploymentStatusKafkaResponseCommand> responses = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    responses.add(readResponse(reader));
+                }
+                decoded = new DeploymentStatusResponseBatchCommand(batchId, responses);
+                break;
+            }
+            default:
+                throw new NotSerializableException("Unknown binary payload type " + type);
+        }
+        if (!clazz.isInstance(decoded)) {
+            throw new NotSerializableException(
+                "Binary payload is a " + decoded.getClass().getSimpleName() + ", expected " + clazz.getSimpleName());
+        }
+        return clazz.cast(decoded);
+    }
+
+    // single records and batch items share the layout, only single records have the type byte in front
+    private static void writeRequest(CompactBinaryWriter writer, DeploymentStatusRequestCommand request) {
+        writer.writeString(request.requestId)
+            .writeString(request.caseId);
+    }
+
+    private static DeploymentStatusRequestCommand readRequest(CompactBinaryReader reader) throws NotSerializableException {
+        return new DeploymentStatusRequestCommand(reader.readString(), reader.readString());
+    }
+
+    private static void writeResponse(CompactBinaryWriter writer, DeploymentStatusKafkaResponseCommand response) {
+        writer.writeString(response.requestId)
+            .writeString(response.caseId);
+        writeList(writer, response.healthyServices);
+        writeList(writer, response.failedServices);
+    }
+
+    private static DeploymentStatusKafkaResponseCommand readResponse(CompactBinaryReader reader) throws NotSerializableException {
+        return new DeploymentStatusKafkaResponseCommand(
+            reader.readString(), reader.readString(), readList(reader), readList(reader));
+    }
+
+    // varint (size + 1), 0 = null list
+    private static void writeList(CompactBinaryWriter writer, List<String> values) {
+        if (values == null) {
+            writer.writeVarInt(0);
+            return;
+        }
+        writer.writeVarInt(values.size() + 1);
+        for (String value : values) {
+            writer.writeString(value);
+        }
+    }
+
+    private static List<String> readList(CompactBinaryReader reader) throws NotSerializableException {
+        int sizePlusOne = reader.readVarInt();
+        if (sizePlusOne == 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(sizePlusOne - 1);
+        for (int i = 0; i < sizePlusOne - 1; i++) {
+            values.add(reader.readString());
+        }
+        return values;
+    }
+}
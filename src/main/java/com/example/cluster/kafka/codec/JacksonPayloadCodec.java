@@ -0,0 +1,65 @@
+package com.example.cluster.kafka.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Jackson based codec, JSON or one of the binary Jackson formats (CBOR, Smile).
+ *
+ * ObjectReader/ObjectWriter are immutable and thread safe, so one pair per payload class is built
+ * on first use and reused - readValue(bytes, clazz) on the mapper looks the class up on every record.
+ */
+public final class JacksonPayloadCodec implements KafkaPayloadCodec {
+
+    private final String contentType;
+    private final ClassValue<ObjectReader> readers;
+    private final ClassValue<ObjectWriter> writers;
+
+    private JacksonPayloadCodec(String contentType, ObjectMapper mapper) {
+        this.contentType = contentType;
+        ObjectMapper configured = mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.readers = new ClassValue<>() {
+            @Override
+            protected ObjectReader computeValue(Class<?> type) {
+                return configured.readerFor(type);
+            }
+        };
+        this.writers = new ClassValue<>() {
+            @Override
+            protected ObjectWriter computeValue(Class<?> type) {
+                return configured.writerFor(type);
+            }
+        };
+    }
+
+    public static JacksonPayloadCodec json() {
+        return new JacksonPayloadCodec("application/json", new ObjectMapper());
+    }
+
+    public static JacksonPayloadCodec cbor() {
+        return new JacksonPayloadCodec("application/cbor", new ObjectMapper(new CBORFactory()));
+    }
+
+    public static JacksonPayloadCodec smile() {
+        return new JacksonPayloadCodec("application/x-jackson-smile", new ObjectMapper(new SmileFactory()));
+    }
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public byte[] encode(Object message) throws Exception {
+        return writers.get(message.getClass()).writeValueAsBytes(message);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> clazz) throws Exception {
+        return readers.get(clazz).readValue(bytes);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.cluster.kafka.codec;
+
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import com.typesafe.config.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Codec lookup of the node, built once from kafka.topics.
+ *
+ * - producing: codecFor(topic) is the codec configured for that topic (kafka.topics.<key>.codec)
+ * - consuming: codecFor(headers) follows the content-type header the producer wrote, records without
+ *   the header come from producers older than the codecs and are decoded with kafka.legacy-codec
+ */
+public class KafkaCodecs implements Extension {
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+
+    public static final ExtensionId<KafkaCodecs> ID = new Id();
+
+    public static KafkaCodecs get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<KafkaCodecs> {
+        @Override
+        public KafkaCodecs createExtension(ActorSystem<?> system) {
+            return new KafkaCodecs(system.settings().config().getConfig("kafka"));
+        }
+    }
+
+    private final Map<String, KafkaPayloadCodec> byName = new HashMap<>();
+    private final Map<String, KafkaPayloadCodec> byContentType = new HashMap<>();
+    // actual topic name -> codec the producer uses
+    private final Map<String, KafkaPayloadCodec> byTopic = new HashMap<>();
+    private final KafkaPayloadCodec legacyCodec;
+
+    private KafkaCodecs(Config kafkaConfig) {
+        register("json", JacksonPayloadCodec.json());
+        register("cbor", JacksonPayloadCodec.cbor());
+        register("smile", JacksonPayloadCodec.smile());
+        register("binary", new CompactBinaryPayloadCodec());
+
+        this.legacyCodec = named(kafkaConfig.getString("legacy-codec"), "kafka.legacy-codec");
+        Config topics = kafkaConfig.getConfig("topics");
+        for (String key : topics.root().keySet()) {
+            Config topic = topics.getConfig(key);
+            byTopic.put(topic.getString("name"), named(topic.getString("codec"), "kafka.topics." + key + ".codec"));
+        }
+    }
+
+    private void register(String name, KafkaPayloadCodec codec) {
+        byName.put(name, codec);
+        byContentType.put(codec.contentType(), codec);
+    }
+
+    private KafkaPayloadCodec named(String name, String configPath) {
+        KafkaPayloadCodec codec = byName.get(name);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown codec '" + name + "' in " + configPath + ", known: " + byName.keySet());
+        }
+        return codec;
+    }
+
+    public KafkaPayloadCodec codecFor(String topic) {
+        return byTopic.getOrDefault(topic, legacyCodec);
+    }
+
+    public KafkaPayloadCodec codecFor(Headers headers) {
+        Header header = headers == null ? null : headers.lastHeader(CONTENT_TYPE_HEADER);
+        if (header == null) {
+            return legacyCodec;
+        }
+        String contentType = new String(header.value(), StandardCharsets.UTF_8);
+        KafkaPayloadCodec codec = byContentType.get(contentType);
+        if (codec == null) {
+            throw new IllegalArgumentException("No codec for content type '" + contentType + "'");
+        }
+        return codec;
+    }
+}
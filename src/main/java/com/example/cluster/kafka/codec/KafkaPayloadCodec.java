@@ -0,0 +1,17 @@
+package com.example.cluster.kafka.codec;
+
+/**
+ * Turns Kafka record values into commands and back.
+ *
+ * The producer writes contentType() into the content-type header of every record, the consumer picks
+ * the codec by that header (see KafkaCodecs), so producers and consumers can switch codecs independently:
+ * first roll out consumers that know the new codec, then switch kafka.topics.<topic>.codec on the producers.
+ */
+public interface KafkaPayloadCodec {
+
+    String contentType();
+
+    byte[] encode(Object message) throws Exception;
+
+    <T> T decode(byte[] bytes, Class<T> clazz) throws Exception;
+}
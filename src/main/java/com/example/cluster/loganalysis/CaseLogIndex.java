@@ -0,0 +1,391 @@
+package com.example.cluster.loganalysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk index of one case's logs, in index-dir/caseId/:
+ * - checkpoint: per log file how far it is analysed plus the counts of everything analysed so far,
+ *   replaced atomically after every update
+ * - seg-NNNNNNNN.idx: append-only LogPostings segments, one per update that found indexed lines
+ *
+ * An update scans only what was appended to the files since the checkpoint, so a repeat analysis costs
+ * the new log volume. A file that shrank or was replaced (other file key), a file whose bytes before the checkpoint
+ * offset changed (copytruncate keeps the file key and the file may have grown past the offset again), a file that
+ * is gone or a change of the configured patterns throws the index away and starts over with a full scan.
+ * The part after the last newline of a file is left for the next update, a line still being written is never
+ * counted twice. Only a line longer than max-line-length is checkpointed before its end (it is counted truncated
+ * right away), the checkpoint marks it open and the next update skips the rest of it.
+ *
+ * Not thread-safe, LogAnalysisExtension serializes the updates of a case.
+ */
+final class CaseLogIndex {
+
+    private static final int CHECKPOINT_VERSION = 2;
+    // bytes before the checkpoint offset that have to be unchanged for the checkpoint to be valid
+    private static final int FINGERPRINT_BYTES = 256;
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+
+    private final Path dir;
+    private final LogScanEngine engine;
+    private final LogScanSettings settings;
+    private final int maxSegments;
+
+    CaseLogIndex(Path dir, LogScanEngine engine, int maxSegments) {
+        this.dir = dir;
+        this.engine = engine;
+        this.settings = engine.settings();
+        this.maxSegments = maxSegments;
+    }
+
+    LogAnalysisReport update(List<Path> files) throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(dir);
+        Checkpoint checkpoint = loadCheckpoint();
+        if (checkpoint == null || !stillValid(checkpoint, files)) {
+            deleteSegments(Set.of());
+            checkpoint = new Checkpoint(settings);
+        }
+        deleteStraySegments(checkpoint);
+
+        List<LogScanEngine.Region> regions = new ArrayList<>();
+        Map<FileState, Tail> newOffsets = new LinkedHashMap<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            FileState state = checkpoint.files.get(name);
+            if (state == null) {
+                state = new FileState(checkpoint.files.size(), fileKey(file), 0, 0, false);
+                checkpoint.files.put(name, state);
+            }
+            long start = state.offset;
+            if (state.lineOpen) {
+                // the rest of an over-long line, already counted
+                start = nextLineStart(file, state.offset);
+                if (start < 0) {
+                    long size = Files.size(file);
+                    if (size > state.offset) {
+                        newOffsets.put(state, tail(file, size));
+                    }
+                    continue;
+                }
+            }
+            long end = lastLineEnd(file, start);
+            if (end > start) {
+                regions.add(new LogScanEngine.Region(file, state.fileNo, start, end));
+            }
+            if (end > state.offset) {
+                newOffsets.put(state, tail(file, end));
+            }
+        }
+
+        LogScanResult delta = engine.scan(regions, true);
+        if (!delta.postings.isEmpty()) {
+            delta.postings.writeSegment(segmentPath(checkpoint.nextSegment));
+            checkpoint.nextSegment++;
+        }
+        checkpoint.totals.merge(delta);
+        newOffsets.forEach((state, tail) -> {
+            state.offset = tail.offset;
+            state.fingerprint = tail.fingerprint;
+            state.lineOpen = tail.lineOpen;
+        });
+        if (checkpoint.nextSegment - checkpoint.firstSegment > maxSegments) {
+            compact(checkpoint);
+        }
+        storeCheckpoint(checkpoint);
+
+        Map<String, String> lastSeen = signatureLastSeen(checkpoint);
+        return LogAnalysisReport.from(settings, checkpoint.totals, files.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), delta.bytes, lastSeen);
+    }
+
+    // where the newest indexed line with term is, null if there is none
+    private String lastOccurrence(Checkpoint checkpoint, String term) throws IOException {
+        for (long segment = checkpoint.nextSegment - 1; segment >= checkpoint.firstSegment; segment--) {
+            long posting = LogPostings.lastPosting(segmentPath(segment), term);
+            if (posting >= 0) {
+                return checkpoint.fileName(LogPostings.fileNo(posting)) + "@" + LogPostings.offset(posting);
+            }
+        }
+        return null;
+    }
+
+    private Map<String, String> signatureLastSeen(Checkpoint checkpoint) throws IOException {
+        Map<String, String> lastSeen = new LinkedHashMap<>();
+        for (int s = 0; s < settings.signatureNames.size(); s++) {
+            if (checkpoint.totals.signatureCounts[s] == 0) {
+                continue;
+            }
+            String name = settings.signatureNames.get(s);
+            String at = lastOccurrence(checkpoint, "signature:" + name);
+            if (at != null) {
+                lastSeen.put(name, at);
+            }
+        }
+        return lastSeen;
+    }
+
+    private boolean stillValid(Checkpoint checkpoint, List<Path> files) throws IOException {
+        Set<String> present = new HashSet<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            present.add(name);
+            FileState state = checkpoint.files.get(name);
+            if (state != null && (!state.key.equals(fileKey(file)) || Files.size(file) < state.offset
+                    || tail(file, state.offset).fingerprint != state.fingerprint)) {
+                return false;
+            }
+        }
+        return present.containsAll(checkpoint.files.keySet());
+    }
+
+    // offset after the last newline at or after from, from itself when no complete line was appended
+    private long lastLineEnd(Path file, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // a line longer than max-line-length is scanned truncated anyway, no need to wait for its end
+            long searchFrom = Math.max(from, size - settings.maxLineLength - 1);
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long blockEnd = size;
+            while (blockEnd > searchFrom) {
+                long blockStart = Math.max(searchFrom, blockEnd - buffer.capacity());
+                buffer.clear().limit((int) (blockEnd - blockStart));
+                while (buffer.hasRemaining() && channel.read(buffer, blockStart + buffer.position()) >= 0) {
+                    // read the whole block
+                }
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        return blockStart + i + 1;
+                    }
+                }
+                blockEnd = blockStart;
+            }
+            return searchFrom > from ? size : from;
+        }
+    }
+
+    // offset after the first newline at or after from, -1 if there is none yet
+    private static long nextLineStart(Path file, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long position = from;
+            while (true) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    return -1;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        return position + i + 1;
+                    }
+                }
+                position += read;
+            }
+        }
+    }
+
+    // the checkpoint state of a file analysed up to offset
+    private static Tail tail(Path file, long offset) throws IOException {
+        int length = (int) Math.min(FINGERPRINT_BYTES, offset);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        if (length > 0) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (buffer.hasRemaining() && channel.read(buffer, offset - length + buffer.position()) > 0) {
+                    // read the whole tail
+                }
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        boolean lineOpen = length > 0 && buffer.get(length - 1) != '\n';
+        return new Tail(offset, crc.getValue(), lineOpen);
+    }
+
+    // merges all live segments into one, older postings first
+    private void compact(Checkpoint checkpoint) throws IOException {
+        LogPostings merged = new LogPostings();
+        for (long segment = checkpoint.firstSegment; segment < checkpoint.nextSegment; segment++) {
+            merged.append(LogPostings.readSegment(segmentPath(segment)));
+        }
+        long compacted = checkpoint.nextSegment;
+        merged.writeSegment(segmentPath(compacted));
+        checkpoint.firstSegment = compacted;
+        checkpoint.nextSegment = compacted + 1;
+        // the old segments are deleted by deleteStraySegments once the checkpoint points past them
+    }
+
+    private void deleteStraySegments(Checkpoint checkpoint) throws IOException {
+        Set<Path> live = new HashSet<>();
+        for (long segment = checkpoint.firstSegment; segment < checkpoint.nextSegment; segment++) {
+            live.add(segmentPath(segment));
+        }
+        deleteSegments(live);
+    }
+
+    private void deleteSegments(Set<Path> keep) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*")) {
+            for (Path segment : stream) {
+                if (!keep.contains(segment)) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    // rotation by rename-and-recreate gives the same name a new file key
+    private static String fileKey(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Object key = attributes.fileKey();
+        return key != null ? key.toString() : String.valueOf(attributes.creationTime().toMillis());
+    }
+
+    private Checkpoint loadCheckpoint() throws IOException {
+        Path file = dir.resolve(CHECKPOINT);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_VERSION || in.readLong() != settings.patternFingerprint()) {
+                return null;
+            }
+            Checkpoint checkpoint = new Checkpoint(settings);
+            checkpoint.firstSegment = in.readLong();
+            checkpoint.nextSegment = in.readLong();
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                String name = in.readUTF();
+                checkpoint.files.put(name, new FileState(in.readInt(), in.readUTF(), in.readLong(), in.readLong(), in.readBoolean()));
+            }
+            LogScanResult totals = checkpoint.totals;
+            totals.lines = in.readLong();
+            totals.bytes = in.readLong();
+            totals.truncatedLines = in.readLong();
+            for (int i = 0; i < totals.levelCounts.length; i++) {
+                totals.levelCounts[i] = in.readLong();
+            }
+            for (int i = 0; i < totals.signatureCounts.length; i++) {
+                totals.signatureCounts[i] = in.readLong();
+            }
+            int exceptionCount = in.readInt();
+            for (int i = 0; i < exceptionCount; i++) {
+                String name = in.readUTF();
+                totals.exceptionCounts.put(name, new long[] {in.readLong()});
+            }
+            return checkpoint;
+        } catch (IOException e) {
+            // none yet (NoSuchFileException) or unreadable, a full scan rebuilds it
+            return null;
+        }
+    }
+
+    private void storeCheckpoint(Checkpoint checkpoint) throws IOException {
+        Path file = dir.resolve(CHECKPOINT);
+        Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeLong(settings.patternFingerprint());
+            out.writeLong(checkpoint.firstSegment);
+            out.writeLong(checkpoint.nextSegment);
+            out.writeInt(checkpoint.files.size());
+            for (Map.Entry<String, FileState> entry : checkpoint.files.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().fileNo);
+                out.writeUTF(entry.getValue().key);
+                out.writeLong(entry.getValue().offset);
+                out.writeLong(entry.getValue().fingerprint);
+                out.writeBoolean(entry.getValue().lineOpen);
+            }
+            LogScanResult totals = checkpoint.totals;
+            out.writeLong(totals.lines);
+            out.writeLong(totals.bytes);
+            out.writeLong(totals.truncatedLines);
+            for (long count : totals.levelCounts) {
+                out.writeLong(count);
+            }
+            for (long count : totals.signatureCounts) {
+                out.writeLong(count);
+            }
+            out.writeInt(totals.exceptionCounts.size());
+            for (Map.Entry<String, long[]> entry : totals.exceptionCounts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue()[0]);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteStraySegments(checkpoint);
+    }
+
+    private static final class FileState {
+        final int fileNo;
+        final String key;
+        long offset;
+        // CRC32C of the FINGERPRINT_BYTES before offset
+        long fingerprint;
+        // offset is inside an over-long line, not at a line start
+        boolean lineOpen;
+
+        FileState(int fileNo, String key, long offset, long fingerprint, boolean lineOpen) {
+            this.fileNo = fileNo;
+            this.key = key;
+            this.offset = offset;
+            this.fingerprint = fingerprint;
+            this.lineOpen = lineOpen;
+        }
+    }
+
+    private static final class Tail {
+        final long offset;
+        final long fingerprint;
+        final boolean lineOpen;
+
+        Tail(long offset, long fingerprint, boolean lineOpen) {
+            this.offset = offset;
+            this.fingerprint = fingerprint;
+            this.lineOpen = lineOpen;
+        }
+    }
+
+    static final class Checkpoint {
+        // live segments are firstSegment until nextSegment (exclusive)
+        long firstSegment = 0;
+        long nextSegment = 0;
+        final Map<String, FileState> files = new LinkedHashMap<>();
+        final LogScanResult totals;
+
+        Checkpoint(LogScanSettings settings) {
+            this.totals = new LogScanResult(settings.levelNames.size(), settings.signatureNames.size(), false);
+        }
+
+        String fileName(int fileNo) {
+            for (Map.Entry<String, FileState> entry : files.entrySet()) {
+                if (entry.getValue().fileNo == fileNo) {
+                    return entry.getKey();
+                }
+            }
+            return "file-" + fileNo;
+        }
+    }
+}
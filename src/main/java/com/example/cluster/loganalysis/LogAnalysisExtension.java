@@ -0,0 +1,125 @@
+package com.example.cluster.loganalysis;
+
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Per-node LogScanEngine (one fork-join pool for all analyses of the node)
+ * plus the lookup of a case's log files: every file matching file-glob in log-dir/caseId/.
+ * With log-analysis.index.enabled a case is analysed through its CaseLogIndex in index.dir/caseId/,
+ * a repeat analysis only reads what was appended since the last one.
+ */
+public class LogAnalysisExtension implements Extension {
+
+    public static final ExtensionId<LogAnalysisExtension> ID = new Id();
+
+    public static LogAnalysisExtension get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<LogAnalysisExtension> {
+        @Override
+        public LogAnalysisExtension createExtension(ActorSystem<?> system) {
+            return new LogAnalysisExtension(system);
+        }
+    }
+
+    // caseId comes from the HTTP body, it must never walk out of log-dir (or the index dir):
+    // no separators, and not "." / ".." / "..." which resolve to log-dir itself or above it
+    private static final Pattern SAFE_CASE_ID = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final Pattern DOTS_ONLY = Pattern.compile("\\.+");
+
+    private final LogScanEngine engine;
+    private final Path logDir;
+    private final String fileGlob;
+    private final ActorSystem<?> system;
+    // null when the index is off
+    private final Path indexDir;
+    private final int maxSegments;
+    // one update per case at a time on this node, the file lock covers other nodes on a shared index dir
+    private final ReentrantLock[] caseLocks = new ReentrantLock[64];
+
+    private LogAnalysisExtension(ActorSystem<?> system) {
+        Config config = system.settings().config().getConfig("log-analysis");
+        this.system = system;
+        this.engine = new LogScanEngine(new LogScanSettings(config));
+        this.logDir = Paths.get(config.getString("log-dir"));
+        this.fileGlob = config.getString("file-glob");
+        this.indexDir = config.getBoolean("index.enabled") ? Paths.get(config.getString("index.dir")) : null;
+        this.maxSegments = config.getInt("index.max-segments");
+        for (int i = 0; i < caseLocks.length; i++) {
+            caseLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public LogScanEngine engine() {
+        return engine;
+    }
+
+    /**
+     * Analysis of the case's files (from caseLogFiles), incremental when the index is on.
+     * Blocks, call it from a blocking dispatcher.
+     */
+    public LogAnalysisReport analyze(String caseId, List<Path> files) throws IOException {
+        if (indexDir == null || !isSafeCaseId(caseId)) {
+            return engine.analyze(files);
+        }
+        Path caseIndexDir = indexDir.resolve(caseId);
+        ReentrantLock lock = caseLocks[Math.floorMod(caseId.hashCode(), caseLocks.length)];
+        lock.lock();
+        try {
+            Files.createDirectories(caseIndexDir);
+            try (FileChannel lockFile = FileChannel.open(caseIndexDir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockFile.lock()) {
+                return new CaseLogIndex(caseIndexDir, engine, maxSegments).update(files);
+            }
+        } catch (IOException e) {
+            // the index is an optimization, a broken or full index disk must not fail the case
+            system.log().warn("Log index of case {} not usable, full scan instead: {}", caseId, e.toString());
+            return engine.analyze(files);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static boolean isSafeCaseId(String caseId) {
+        return SAFE_CASE_ID.matcher(caseId).matches() && !DOTS_ONLY.matcher(caseId).matches();
+    }
+
+    public List<Path> caseLogFiles(String caseId) throws IOException {
+        if (!isSafeCaseId(caseId)) {
+            return Collections.emptyList();
+        }
+        Path caseDir = logDir.resolve(caseId);
+        // belt and braces: whatever the id, its directory is a direct child of log-dir
+        if (!logDir.toAbsolutePath().normalize().equals(caseDir.toAbsolutePath().normalize().getParent()) || !Files.isDirectory(caseDir)) {
+            return Collections.emptyList();
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(caseDir, fileGlob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.cluster.loganalysis;
+
+import com.example.cluster.serialize.CborSerializable;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Structured outcome of one log analysis: counts by level, lines hitting each configured
+ * error signature and the most frequent exception classes.
+ * With the case log index the counts cover all logs of the case while only newBytesScanned were read this time,
+ * signatureLastSeen then says where each signature was last found ("file@offset").
+ */
+public final class LogAnalysisReport implements CborSerializable {
+    @JsonProperty("filesScanned")
+    public final int filesScanned;
+    @JsonProperty("bytesScanned")
+    public final long bytesScanned;
+    @JsonProperty("linesScanned")
+    public final long linesScanned;
+    @JsonProperty("truncatedLines")
+    public final long truncatedLines;
+    @JsonProperty("levelCounts")
+    public final Map<String, Long> levelCounts;
+    @JsonProperty("signatureCounts")
+    public final Map<String, Long> signatureCounts;
+    @JsonProperty("topExceptions")
+    public final Map<String, Long> topExceptions;
+    @JsonProperty("durationMillis")
+    public final long durationMillis;
+    @JsonProperty("newBytesScanned")
+    public final long newBytesScanned;
+    @JsonProperty("signatureLastSeen")
+    public final Map<String, String> signatureLastSeen;
+
+    @JsonCreator
+    public LogAnalysisReport(@JsonProperty("filesScanned") int filesScanned,
+                             @JsonProperty("bytesScanned") long bytesScanned,
+                             @JsonProperty("linesScanned") long linesScanned,
+                             @JsonProperty("truncatedLines") long truncatedLines,
+                             @JsonProperty("levelCounts") Map<String, Long> levelCounts,
+                             @JsonProperty("signatureCounts") Map<String, Long> signatureCounts,
+                             @JsonProperty("topExceptions") Map<String, Long> topExceptions,
+                             @JsonProperty("durationMillis") long durationMillis,
+                             @JsonProperty("newBytesScanned") long newBytesScanned,
+                             @JsonProperty("signatureLastSeen") Map<String, String> signatureLastSeen) {
+        this.filesScanned = filesScanned;
+        this.bytesScanned = bytesScanned;
+        this.linesScanned = linesScanned;
+        this.truncatedLines = truncatedLines;
+        this.levelCounts = levelCounts;
+        this.signatureCounts = signatureCounts;
+        this.topExceptions = topExceptions;
+        this.durationMillis = durationMillis;
+        this.newBytesScanned = newBytesScanned;
+        this.signatureLastSeen = signatureLastSeen == null ? Collections.emptyMap() : signatureLastSeen;
+    }
+
+    public static LogAnalysisReport empty() {
+        return new LogAnalysisReport(0, 0, 0, 0,
+            Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), 0, 0, Collections.emptyMap());
+    }
+
+    // full scan: everything counted was read now
+    static LogAnalysisReport from(LogScanSettings settings, LogScanResult result, int files, long durationMillis) {
+        return from(settings, result, files, durationMillis, result.bytes, Collections.emptyMap());
+    }
+
+    static LogAnalysisReport from(LogScanSettings settings, LogScanResult result, int files, long durationMillis,
+                                  long newBytesScanned, Map<String, String> signatureLastSeen) {
+        Map<String, Long> levels = new LinkedHashMap<>();
+        for (int i = 0; i < settings.levelNames.size(); i++) {
+            levels.put(settings.levelNames.get(i), result.levelCounts[i]);
+        }
+        Map<String, Long> signatures = new LinkedHashMap<>();
+        for (int i = 0; i < settings.signatureNames.size(); i++) {
+            signatures.put(settings.signatureNames.get(i), result.signatureCounts[i]);
+        }
+        Map<String, Long> exceptions = new LinkedHashMap<>();
+        result.exceptionCounts.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed())
+            .limit(settings.topExceptions)
+            .forEach(e -> exceptions.put(e.getKey(), e.getValue()[0]));
+        return new LogAnalysisReport(files, result.bytes, result.lines, result.truncatedLines,
+            levels, signatures, exceptions, durationMillis, newBytesScanned, signatureLastSeen);
+    }
+
+    // one line for logs and the case summary
+    public String summary() {
+        return "files=" + filesScanned + ", lines=" + linesScanned + ", bytes=" + bytesScanned
+            + ", levels=" + levelCounts + ", signatures=" + signatureCounts
+            + ", topExceptions=" + topExceptions
+            + (signatureLastSeen.isEmpty() ? "" : ", signatureLastSeen=" + signatureLastSeen)
+            + ", newBytes=" + newBytesScanned + ", tookMs=" + durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "LogAnalysisReport{" + summary() + "}";
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.cluster.loganalysis;
+
+import com.example.cluster.actors.LogAnalysisPoolActor;
+import com.example.cluster.commands.AnalyzeLogRequestCommand;
+import com.example.cluster.commands.Command;
+import com.typesafe.config.Config;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+import org.apache.pekko.actor.typed.Props;
+
+/**
+ * One LogAnalysisPoolActor per node: log-analysis.pool.workers long-lived LogAnalysisActors
+ * behind a queue of at most log-analysis.pool.queue-size requests.
+ * Entities submit here instead of spawning an actor per request, bursts queue up or get rejected
+ * (AnalyzeLogRejectedCommand to the replyTo) instead of creating unbounded actors.
+ */
+public class LogAnalysisWorkerPool implements Extension {
+
+    public static final ExtensionId<LogAnalysisWorkerPool> ID = new Id();
+
+    public static LogAnalysisWorkerPool get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<LogAnalysisWorkerPool> {
+        @Override
+        public LogAnalysisWorkerPool createExtension(ActorSystem<?> system) {
+            return new LogAnalysisWorkerPool(system);
+        }
+    }
+
+    private final ActorRef<Command> pool;
+
+    private LogAnalysisWorkerPool(ActorSystem<?> system) {
+        Config config = system.settings().config().getConfig("log-analysis.pool");
+        int workers = config.getInt("workers");
+        int queueSize = config.getInt("queue-size");
+        this.pool = system.systemActorOf(LogAnalysisPoolActor.create(workers, queueSize), "log-analysis-pool", Props.empty());
+        system.log().info("Log analysis pool started (workers={}, queue-size={})", workers, queueSize);
+    }
+
+    public void submit(AnalyzeLogRequestCommand request) {
+        pool.tell(request);
+    }
+}
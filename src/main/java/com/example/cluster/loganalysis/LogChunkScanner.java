@@ -0,0 +1,233 @@
+package com.example.cluster.loganalysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scans one line-aligned region of a mapped log file straight from the buffer.
+ *
+ * Every line is walked once: levels are looked for in the first level-window bytes,
+ * error signatures and exception class suffixes anywhere in the line. Candidate patterns are
+ * picked by the first byte, so most bytes cost one table lookup. A String is only built for an
+ * exception class name that actually matched.
+ *
+ * Stateless apart from the pattern tables, one instance serves all fork-join workers.
+ *
+ * When the result collects postings, the line start offset of every line with an indexed level,
+ * an error signature or an exception class is recorded under that term (see LogPostings).
+ */
+final class LogChunkScanner {
+
+    private static final int MAX_CLASS_NAME = 256;
+
+    private final byte[][] levels;
+    private final byte[][] signatures;
+    private final byte[][] exceptionSuffixes;
+    private final int[][] signaturesByFirstByte;
+    private final int[][] suffixesByFirstByte;
+    private final int levelWindow;
+    // index terms, null for levels that are counted but not indexed
+    private final String[] levelTerms;
+    private final String[] signatureTerms;
+
+    LogChunkScanner(LogScanSettings settings) {
+        this.levels = settings.levels.toArray(new byte[0][]);
+        this.signatures = settings.signatures.toArray(new byte[0][]);
+        this.exceptionSuffixes = settings.exceptionSuffixes.toArray(new byte[0][]);
+        this.signaturesByFirstByte = indexByFirstByte(signatures);
+        this.suffixesByFirstByte = indexByFirstByte(exceptionSuffixes);
+        this.levelWindow = settings.levelWindow;
+        this.levelTerms = new String[levels.length];
+        for (int l = 0; l < levels.length; l++) {
+            String name = settings.levelNames.get(l);
+            levelTerms[l] = settings.indexedLevels.contains(name) ? "level:" + name : null;
+        }
+        this.signatureTerms = new String[signatures.length];
+        for (int s = 0; s < signatures.length; s++) {
+            signatureTerms[s] = "signature:" + settings.signatureNames.get(s);
+        }
+    }
+
+    LogScanResult newResult(boolean collectPostings) {
+        return new LogScanResult(levels.length, signatures.length, collectPostings);
+    }
+
+    /**
+     * @param buf             the mapped region, position 0 .. limit
+     * @param atLineStart     true if the region starts a line (file start), otherwise byte 0 is the last
+     *                        byte of the previous chunk and the first partial line belongs to that chunk
+     * @param ownedEnd        lines starting before this index belong to this chunk
+     * @param mappedToEof     the region ends at end of the scanned range, a last line without newline is complete
+     * @param bufferOffset    file offset of buffer position 0, for postings
+     * @param fileNo          file number for postings
+     */
+    LogScanResult scan(ByteBuffer buf, boolean atLineStart, int ownedEnd, boolean mappedToEof,
+                       long bufferOffset, int fileNo, boolean collectPostings) {
+        LogScanResult result = newResult(collectPostings);
+        int limit = buf.limit();
+        int pos = 0;
+        if (!atLineStart) {
+            int newline = indexOfNewline(buf, 0, limit);
+            if (newline < 0) {
+                return result;
+            }
+            pos = newline + 1;
+        }
+        while (pos < ownedEnd) {
+            int newline = indexOfNewline(buf, pos, limit);
+            int lineEnd = newline < 0 ? limit : newline;
+            if (newline < 0 && !mappedToEof) {
+                // longer than max-line-length, we scan what we have
+                result.truncatedLines++;
+            }
+            long posting = collectPostings ? LogPostings.encode(fileNo, bufferOffset + pos) : -1;
+            scanLine(buf, pos, lineEnd, result, posting);
+            result.bytes += (newline < 0 ? lineEnd : newline + 1) - pos;
+            pos = lineEnd + 1;
+        }
+        return result;
+    }
+
+    private void scanLine(ByteBuffer buf, int from, int to, LogScanResult result, long posting) {
+        result.lines++;
+
+        int window = Math.min(to, from + levelWindow);
+        levelSearch:
+        for (int i = from; i < window; i++) {
+            byte b = buf.get(i);
+            for (int l = 0; l < levels.length; l++) {
+                byte[] level = levels[l];
+                if (level[0] == b && matchesAt(buf, i, to, level) && isWordAt(buf, from, to, i, level.length)) {
+                    result.levelCounts[l]++;
+                    if (posting >= 0 && levelTerms[l] != null) {
+                        result.postings.add(levelTerms[l], posting);
+                    }
+                    break levelSearch;
+                }
+            }
+        }
+
+        long signaturesSeen = 0L;
+        for (int i = from; i < to; i++) {
+            int b = buf.get(i) & 0xff;
+            int[] signatureCandidates = signaturesByFirstByte[b];
+            if (signatureCandidates != null) {
+                for (int s : signatureCandidates) {
+                    long bit = 1L << s;
+                    // a signature counts once per line
+                    if ((signaturesSeen & bit) == 0 && matchesAt(buf, i, to, signatures[s])) {
+                        signaturesSeen |= bit;
+                        result.signatureCounts[s]++;
+                        if (posting >= 0) {
+                            result.postings.add(signatureTerms[s], posting);
+                        }
+                    }
+                }
+            }
+            int[] suffixCandidates = suffixesByFirstByte[b];
+            if (suffixCandidates != null) {
+                for (int s : suffixCandidates) {
+                    byte[] suffix = exceptionSuffixes[s];
+                    if (matchesAt(buf, i, to, suffix)) {
+                        int end = i + suffix.length;
+                        if (end == to || !isIdentifierByte(buf.get(end))) {
+                            String className = exceptionEndingAt(buf, from, i, end);
+                            if (className != null) {
+                                result.countException(className);
+                                if (posting >= 0) {
+                                    result.postings.add("exception:" + className, posting);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // walks back from the suffix over [A-Za-z0-9_$.] to find e.g. java.lang.IllegalStateException
+    private static String exceptionEndingAt(ByteBuffer buf, int lineStart, int suffixStart, int end) {
+        int start = suffixStart;
+        while (start > lineStart && end - start < MAX_CLASS_NAME && isClassNameByte(buf.get(start - 1))) {
+            start--;
+        }
+        while (start < suffixStart && buf.get(start) == '.') {
+            start++;
+        }
+        if (start == suffixStart) {
+            // a bare "Exception" / "Error" word is not a class name
+            return null;
+        }
+        byte[] name = new byte[end - start];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buf.get(start + i);
+        }
+        return new String(name, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean matchesAt(ByteBuffer buf, int at, int to, byte[] pattern) {
+        if (at + pattern.length > to) {
+            return false;
+        }
+        for (int j = 1; j < pattern.length; j++) {
+            if (buf.get(at + j) != pattern[j]) {
+                return false;
+            }
+        }
+        return buf.get(at) == pattern[0];
+    }
+
+    private static boolean isWordAt(ByteBuffer buf, int from, int to, int at, int length) {
+        boolean startOk = at == from || !isLetter(buf.get(at - 1));
+        boolean endOk = at + length == to || !isLetter(buf.get(at + length));
+        return startOk && endOk;
+    }
+
+    private static int indexOfNewline(ByteBuffer buf, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buf.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static boolean isIdentifierByte(byte b) {
+        return isLetter(b) || (b >= '0' && b <= '9') || b == '_' || b == '$';
+    }
+
+    private static boolean isClassNameByte(byte b) {
+        return isIdentifierByte(b) || b == '.';
+    }
+
+    private static int[][] indexByFirstByte(byte[][] patterns) {
+        List<List<Integer>> byByte = new ArrayList<>(256);
+        for (int i = 0; i < 256; i++) {
+            byByte.add(null);
+        }
+        for (int p = 0; p < patterns.length; p++) {
+            if (patterns[p].length == 0) {
+                continue;
+            }
+            int first = patterns[p][0] & 0xff;
+            if (byByte.get(first) == null) {
+                byByte.set(first, new ArrayList<>());
+            }
+            byByte.get(first).add(p);
+        }
+        int[][] index = new int[256][];
+        for (int b = 0; b < 256; b++) {
+            List<Integer> candidates = byByte.get(b);
+            if (candidates != null) {
+                index[b] = candidates.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        return index;
+    }
+}
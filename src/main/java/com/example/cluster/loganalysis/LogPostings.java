@@ -0,0 +1,192 @@
+package com.example.cluster.loganalysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Inverted index of one scan: term -> line start offsets, in scan order.
+ * Terms are "level:ERROR", "signature:timeout", "exception:java.io.IOException".
+ * A posting packs the file number of the case index (upper 24 bits) and the byte offset (lower 40 bits).
+ *
+ * A segment file is the postings of one incremental scan, written once and never changed:
+ *   int magic, int terms, per term: UTF term, int postings, int byte length, zigzag varint deltas.
+ * The byte length lets a lookup skip the terms it does not want without decoding them.
+ */
+final class LogPostings {
+
+    private static final int MAGIC = 0x434C5831; // "CLX1"
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final Map<String, LongList> terms = new LinkedHashMap<>();
+
+    static long encode(int fileNo, long offset) {
+        return ((long) fileNo << OFFSET_BITS) | (offset & OFFSET_MASK);
+    }
+
+    static int fileNo(long posting) {
+        return (int) (posting >>> OFFSET_BITS);
+    }
+
+    static long offset(long posting) {
+        return posting & OFFSET_MASK;
+    }
+
+    void add(String term, long posting) {
+        terms.computeIfAbsent(term, t -> new LongList()).add(posting);
+    }
+
+    // other was scanned after this one (the chunk to the right), its postings go behind
+    void append(LogPostings other) {
+        other.terms.forEach((term, list) -> terms.computeIfAbsent(term, t -> new LongList()).addAll(list));
+    }
+
+    boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    long[] postings(String term) {
+        LongList list = terms.get(term);
+        return list == null ? new long[0] : Arrays.copyOf(list.values, list.size);
+    }
+
+    void writeSegment(Path segment) throws IOException {
+        Path tmp = segment.resolveSibling(segment.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(terms.size());
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            for (Map.Entry<String, LongList> entry : terms.entrySet()) {
+                encoded.reset();
+                LongList list = entry.getValue();
+                long previous = 0;
+                for (int i = 0; i < list.size; i++) {
+                    writeZigZag(encoded, list.values[i] - previous);
+                    previous = list.values[i];
+                }
+                out.writeUTF(entry.getKey());
+                out.writeInt(list.size);
+                out.writeInt(encoded.size());
+                encoded.writeTo(out);
+            }
+        }
+        Files.move(tmp, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static LogPostings readSegment(Path segment) throws IOException {
+        LogPostings postings = new LogPostings();
+        try (DataInputStream in = open(segment)) {
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                int count = in.readInt();
+                in.readInt();
+                LongList list = new LongList();
+                long previous = 0;
+                for (int i = 0; i < count; i++) {
+                    previous += readZigZag(in);
+                    list.add(previous);
+                }
+                postings.terms.put(term, list);
+            }
+        }
+        return postings;
+    }
+
+    // last posting of term in the segment, -1 if the term is not in it
+    static long lastPosting(Path segment, String term) throws IOException {
+        try (DataInputStream in = open(segment)) {
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String current = in.readUTF();
+                int count = in.readInt();
+                int length = in.readInt();
+                if (!current.equals(term)) {
+                    skipFully(in, length);
+                    continue;
+                }
+                long value = 0;
+                for (int i = 0; i < count; i++) {
+                    value += readZigZag(in);
+                }
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    private static DataInputStream open(Path segment) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)));
+        if (in.readInt() != MAGIC) {
+            in.close();
+            throw new IOException("Not a log index segment: " + segment);
+        }
+        return in;
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException("Truncated log index segment");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void writeZigZag(ByteArrayOutputStream out, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readZigZag(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated log index segment");
+            }
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Malformed varint in log index segment");
+    }
+
+    private static final class LongList {
+        long[] values = new long[8];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(LongList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.cluster.loganalysis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans log files for levels, error signatures and exception classes.
+ *
+ * Files are memory-mapped chunk by chunk (FileChannel.map), chunk boundaries are moved to line
+ * starts while scanning (a chunk owns every line that starts inside it), and the chunks of all
+ * files are scanned in parallel on the engine's own fork-join pool, then merged.
+ * Nothing is read through a heap buffer and no line becomes a String.
+ */
+public final class LogScanEngine implements AutoCloseable {
+
+    private final LogScanSettings settings;
+    private final LogChunkScanner scanner;
+    private final ForkJoinPool pool;
+
+    public LogScanEngine(LogScanSettings settings) {
+        this.settings = settings;
+        this.scanner = new LogChunkScanner(settings);
+        this.pool = new ForkJoinPool(settings.parallelism);
+    }
+
+    public LogScanSettings settings() {
+        return settings;
+    }
+
+    /**
+     * Blocks the caller until all chunks are scanned, call it from a blocking dispatcher.
+     */
+    public LogAnalysisReport analyze(List<Path> files) throws IOException {
+        long started = System.nanoTime();
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            regions.add(new Region(files.get(i), i, 0, Region.TO_END_OF_FILE));
+        }
+        LogScanResult total = scan(regions, false);
+        return LogAnalysisReport.from(settings, total, files.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Scans the given byte ranges, each must start on a line start and end on a line start or end of file.
+     * With collectPostings the result also holds the offsets of the indexed lines (for CaseLogIndex).
+     * Blocks like analyze().
+     */
+    LogScanResult scan(List<Region> regions, boolean collectPostings) throws IOException {
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            List<Chunk> chunks = new ArrayList<>();
+            for (Region region : regions) {
+                FileChannel channel = FileChannel.open(region.file, StandardOpenOption.READ);
+                channels.add(channel);
+                long end = region.to == Region.TO_END_OF_FILE ? channel.size() : Math.min(region.to, channel.size());
+                for (long start = region.from; start < end; start += settings.chunkSize) {
+                    chunks.add(new Chunk(channel, region.fileNo, region.from, start, Math.min(end, start + settings.chunkSize), end));
+                }
+            }
+            return chunks.isEmpty()
+                ? scanner.newResult(collectPostings)
+                : pool.invoke(new ScanTask(chunks, 0, chunks.size(), collectPostings));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private LogScanResult scanChunk(Chunk chunk, boolean collectPostings) {
+        // map one byte before the chunk to see whether it starts a line, and enough after it to finish its last line
+        boolean regionStart = chunk.start == chunk.regionStart;
+        long mapStart = regionStart ? chunk.start : chunk.start - 1;
+        long mapEnd = Math.min(chunk.regionEnd, chunk.end + settings.maxLineLength);
+        try {
+            MappedByteBuffer buffer = chunk.channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+            return scanner.scan(buffer, regionStart, (int) (chunk.end - mapStart), mapEnd == chunk.regionEnd,
+                mapStart, chunk.fileNo, collectPostings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // bytes from .. to of one file, fileNo is what postings refer to
+    static final class Region {
+        static final long TO_END_OF_FILE = -1;
+
+        final Path file;
+        final int fileNo;
+        final long from;
+        final long to;
+
+        Region(Path file, int fileNo, long from, long to) {
+            this.file = file;
+            this.fileNo = fileNo;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final class Chunk {
+        final FileChannel channel;
+        final int fileNo;
+        final long regionStart;
+        final long start;
+        final long end;
+        final long regionEnd;
+
+        Chunk(FileChannel channel, int fileNo, long regionStart, long start, long end, long regionEnd) {
+            this.channel = channel;
+            this.fileNo = fileNo;
+            this.regionStart = regionStart;
+            this.start = start;
+            this.end = end;
+            this.regionEnd = regionEnd;
+        }
+    }
+
+    private final class ScanTask extends RecursiveTask<LogScanResult> {
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+        private final boolean collectPostings;
+
+        ScanTask(List<Chunk> chunks, int from, int to, boolean collectPostings) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.collectPostings = collectPostings;
+        }
+
+        @Override
+        protected LogScanResult compute() {
+            if (to - from == 1) {
+                return scanChunk(chunks.get(from), collectPostings);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(chunks, from, middle, collectPostings);
+            left.fork();
+            LogScanResult right = new ScanTask(chunks, middle, to, collectPostings).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.cluster.loganalysis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mutable counters of one scanned chunk. Chunks are scanned in parallel, each into its own
+ * instance, and merged pairwise afterwards - no sharing, no locking.
+ */
+final class LogScanResult {
+
+    long lines;
+    long bytes;
+    long truncatedLines;
+    final long[] levelCounts;
+    final long[] signatureCounts;
+    final Map<String, long[]> exceptionCounts = new HashMap<>();
+    // offsets of the indexed lines, null when the scan does not feed a CaseLogIndex
+    final LogPostings postings;
+
+    LogScanResult(int levels, int signatures, boolean collectPostings) {
+        this.levelCounts = new long[levels];
+        this.signatureCounts = new long[signatures];
+        this.postings = collectPostings ? new LogPostings() : null;
+    }
+
+    void countException(String className) {
+        exceptionCounts.computeIfAbsent(className, k -> new long[1])[0]++;
+    }
+
+    LogScanResult merge(LogScanResult other) {
+        lines += other.lines;
+        bytes += other.bytes;
+        truncatedLines += other.truncatedLines;
+        for (int i = 0; i < levelCounts.length; i++) {
+            levelCounts[i] += other.levelCounts[i];
+        }
+        for (int i = 0; i < signatureCounts.length; i++) {
+            signatureCounts[i] += other.signatureCounts[i];
+        }
+        other.exceptionCounts.forEach((name, count) ->
+            exceptionCounts.computeIfAbsent(name, k -> new long[1])[0] += count[0]);
+        if (postings != null && other.postings != null) {
+            postings.append(other.postings);
+        }
+        return this;
+    }
+}
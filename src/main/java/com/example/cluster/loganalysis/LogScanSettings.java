@@ -0,0 +1,85 @@
+package com.example.cluster.loganalysis;
+
+import com.typesafe.config.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * What the scan engine looks for and how it splits the work, read from the log-analysis config block.
+ * Patterns are turned into bytes once here, scanning never builds Strings for non-matching lines.
+ */
+public final class LogScanSettings {
+
+    public final long chunkSize;
+    public final int maxLineLength;
+    public final int parallelism;
+    public final int levelWindow;
+    public final int topExceptions;
+
+    final List<String> levelNames = new ArrayList<>();
+    final List<byte[]> levels = new ArrayList<>();
+    final List<String> signatureNames = new ArrayList<>();
+    final List<byte[]> signatures = new ArrayList<>();
+    final List<byte[]> exceptionSuffixes = new ArrayList<>();
+    // levels whose lines get postings in the case log index (all levels are counted)
+    final Set<String> indexedLevels = new HashSet<>();
+
+    public LogScanSettings(Config config) {
+        this.chunkSize = config.getBytes("chunk-size");
+        this.maxLineLength = (int) (long) config.getBytes("max-line-length");
+        int configuredParallelism = config.getInt("parallelism");
+        this.parallelism = configuredParallelism > 0 ? configuredParallelism : Runtime.getRuntime().availableProcessors();
+        this.levelWindow = config.getInt("level-window");
+        this.topExceptions = config.getInt("top-exceptions");
+        if (chunkSize <= 0 || chunkSize + maxLineLength + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("log-analysis.chunk-size must be between 1 byte and ~2GiB, was " + chunkSize);
+        }
+
+        for (String level : config.getStringList("levels")) {
+            if (level.isEmpty()) {
+                continue;
+            }
+            levelNames.add(level);
+            levels.add(level.getBytes(StandardCharsets.US_ASCII));
+        }
+        Config signaturesConfig = config.getConfig("error-signatures");
+        for (String name : signaturesConfig.root().keySet()) {
+            signatureNames.add(name);
+            signatures.add(signaturesConfig.getString(name).getBytes(StandardCharsets.UTF_8));
+        }
+        if (signatures.size() > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " log-analysis.error-signatures are supported");
+        }
+        for (String suffix : config.getStringList("exception-suffixes")) {
+            if (suffix.isEmpty()) {
+                continue;
+            }
+            exceptionSuffixes.add(suffix.getBytes(StandardCharsets.US_ASCII));
+        }
+        if (config.hasPath("index.levels")) {
+            indexedLevels.addAll(config.getStringList("index.levels"));
+        }
+    }
+
+    // changes whenever the counted or indexed patterns change, a case index built with other patterns is rebuilt
+    long patternFingerprint() {
+        long hash = 17;
+        hash = 31 * hash + levelNames.hashCode();
+        hash = 31 * hash + signatureNames.hashCode();
+        for (byte[] signature : signatures) {
+            hash = 31 * hash + Arrays.hashCode(signature);
+        }
+        for (byte[] suffix : exceptionSuffixes) {
+            hash = 31 * hash + Arrays.hashCode(suffix);
+        }
+        hash = 31 * hash + new TreeSet<>(indexedLevels).hashCode();
+        hash = 31 * hash + levelWindow;
+        return hash;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.cluster.metrics;
+
+import com.example.cluster.nodelog.NodeInfoLogger;
+import com.example.cluster.trace.PipelineStageEvent;
+import kamon.Kamon;
+import kamon.metric.Counter;
+import kamon.metric.Histogram;
+import kamon.metric.MeasurementUnit;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of every stage of a case resolution, so the stage dominating p99 shows up on a dashboard
+ * (monitoring/grafana/case-resolution-pipeline.json) instead of in pocrun log lines.
+ *
+ * case-resolution.stage-time (tags stage, outcome, node), one histogram for all stages:
+ * - accept: HTTP node accepted the request until the entity got the ResolveCaseCommand (wall clock, crosses nodes)
+ * - log-analysis-queue: waiting in the log analysis pool queue of the entity's node
+ * - log-analysis: the analysis on a pool worker
+ * - kafka-produce: deployment request handed to the producer until Kafka acked it
+ * - clusterb: ClusterB answering a request or batch, until its response is in Kafka
+ * - kafka-round-trip: deployment request sent until its status arrived at the entity
+ * - persist: writing the resolution (journal or durable state)
+ * - reply: handing the answer to the waiters (ReplyRegistry or PubSub publish)
+ * - total: HTTP node accepted the request until it had the answer
+ *
+ * case-resolution.requests (tags outcome, node): resolve requests answered by the HTTP layer.
+ *
+ * node = host:port of this cluster member.
+ *
+ * Every recorded stage is also a PipelineStageEvent (JFR) with its caseId, for tracing single cases in a recording.
+ */
+public class PipelineMetrics implements Extension {
+
+    public static final ExtensionId<PipelineMetrics> ID = new Id();
+
+    public static PipelineMetrics get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<PipelineMetrics> {
+        @Override
+        public PipelineMetrics createExtension(ActorSystem<?> system) {
+            return new PipelineMetrics(system);
+        }
+    }
+
+    public static final String ACCEPT = "accept";
+    public static final String LOG_ANALYSIS_QUEUE = "log-analysis-queue";
+    public static final String LOG_ANALYSIS = "log-analysis";
+    public static final String KAFKA_PRODUCE = "kafka-produce";
+    public static final String CLUSTER_B = "clusterb";
+    public static final String KAFKA_ROUND_TRIP = "kafka-round-trip";
+    public static final String PERSIST = "persist";
+    public static final String REPLY = "reply";
+    public static final String TOTAL = "total";
+
+    public static final String OK = "ok";
+    public static final String ERROR = "error";
+    // dropped for its deadline, see Deadlines
+    public static final String EXPIRED = "expired";
+    public static final String REJECTED = "rejected";
+    public static final String TIMEOUT = "timeout";
+
+    private final String node;
+    // stage + "/" + outcome -> histogram, withTag builds a new instrument lookup every call
+    private final Map<String, Histogram> stageTimes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> requests = new ConcurrentHashMap<>();
+
+    private PipelineMetrics(ActorSystem<?> system) {
+        this.node = NodeInfoLogger.getNodeInfo(system);
+    }
+
+    public void recordNanos(String stage, String outcome, String caseId, long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        stageTime(stage, outcome).record(micros);
+        PipelineStageEvent.emit(caseId, node, stage, outcome, micros);
+    }
+
+    // startedNanos from System.nanoTime() on this node
+    public void recordSince(String stage, String outcome, String caseId, long startedNanos) {
+        recordNanos(stage, outcome, caseId, System.nanoTime() - startedNanos);
+    }
+
+    // startedMillis from System.currentTimeMillis(), possibly on another node: clock skew shows up here, negative counts as 0
+    public void recordSinceEpochMillis(String stage, String outcome, String caseId, long startedMillis) {
+        recordNanos(stage, outcome, caseId, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startedMillis));
+    }
+
+    public void requestAnswered(String outcome, String caseId, long acceptedNanos) {
+        recordSince(TOTAL, outcome, caseId, acceptedNanos);
+        requests.computeIfAbsent(outcome, o ->
+            Kamon.counter("case-resolution.requests").withTag("outcome", o).withTag("node", node)).increment();
+    }
+
+    private Histogram stageTime(String stage, String outcome) {
+        return stageTimes.computeIfAbsent(stage + "/" + outcome, key ->
+            Kamon.histogram("case-resolution.stage-time", MeasurementUnit.time().microseconds())
+                .withTag("stage", stage)
+                .withTag("outcome", outcome)
+                .withTag("node", node));
+    }
+}
@@ -1,14 +1,37 @@
 package com.example.cluster.nodelog;
 import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
 import org.apache.pekko.actor.typed.javadsl.ActorContext;
 import org.apache.pekko.cluster.typed.Cluster;
 
 public class NodeInfoLogger {
     public static String getNodeInfo(ActorContext<?> context) {
-        ActorSystem<?> system = context.getSystem();
-        Cluster cluster = Cluster.get(system);
-        String host = cluster.selfMember().address().host().isDefined() ? cluster.selfMember().address().host().get() : "unknown";
-        int port = cluster.selfMember().address().port().isDefined() ? (int) cluster.selfMember().address().port().get() : 0;
-        return host + ":" + port;
+        return getNodeInfo(context.getSystem());
+    }
+
+    // host:port of the cluster member, looked up once per node (it never changes while the system runs)
+    public static String getNodeInfo(ActorSystem<?> system) {
+        return NodeInfo.ID.get(system).hostPort;
+    }
+
+    private static final class NodeInfo implements Extension {
+        static final ExtensionId<NodeInfo> ID = new Id();
+
+        private static class Id extends ExtensionId<NodeInfo> {
+            @Override
+            public NodeInfo createExtension(ActorSystem<?> system) {
+                return new NodeInfo(system);
+            }
+        }
+
+        final String hostPort;
+
+        NodeInfo(ActorSystem<?> system) {
+            Cluster cluster = Cluster.get(system);
+            String host = cluster.selfMember().address().host().isDefined() ? cluster.selfMember().address().host().get() : "unknown";
+            int port = cluster.selfMember().address().port().isDefined() ? (int) cluster.selfMember().address().port().get() : 0;
+            this.hostPort = host + ":" + port;
+        }
     }
 }
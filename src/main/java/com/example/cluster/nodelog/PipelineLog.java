@@ -0,0 +1,44 @@
+package com.example.cluster.nodelog;
+
+import com.typesafe.config.Config;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+
+import java.util.Objects;
+
+/**
+ * Whether the per-message INFO lines of the pipeline (the "pocrun" lines) are written, see pipeline-log in
+ * application.conf. Off by default: the JFR events of com.example.cluster.trace record every case at a
+ * fraction of the cost.
+ *
+ * Sampled per case, not per line: with sample-every = n one case in n logs all its stages and the others
+ * none, so a sampled case still reads start to end.
+ */
+public class PipelineLog implements Extension {
+
+    public static final ExtensionId<PipelineLog> ID = new Id();
+
+    public static PipelineLog get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<PipelineLog> {
+        @Override
+        public PipelineLog createExtension(ActorSystem<?> system) {
+            return new PipelineLog(system.settings().config().getConfig("pipeline-log"));
+        }
+    }
+
+    private final boolean enabled;
+    private final int sampleEvery;
+
+    private PipelineLog(Config config) {
+        this.enabled = config.getBoolean("enabled");
+        this.sampleEvery = Math.max(1, config.getInt("sample-every"));
+    }
+
+    public boolean sampled(String caseId) {
+        return enabled && (sampleEvery == 1 || Math.floorMod(Objects.hashCode(caseId), sampleEvery) == 0);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.cluster.reply;
+
+import com.example.cluster.commands.CaseProgressCommand;
+import com.example.cluster.commands.CaseReplyCommand;
+import com.example.cluster.commands.CaseResolvedMessage;
+import com.example.cluster.commands.Command;
+import com.example.cluster.serialize.CborSerializable;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.pekko.actor.typed.ActorRef;
+
+import java.util.Objects;
+
+/**
+ * Where to send the answer for one waiting HTTP request: the reply registry of the node
+ * that accepted the request plus the request id the registry correlates by.
+ * Travels inside ResolveCaseCommand to whatever node hosts the entity.
+ */
+public final class ReplyHandle implements CborSerializable {
+    @JsonProperty("registry")
+    public final ActorRef<Command> registry;
+
+    @JsonProperty("requestId")
+    public final String requestId;
+
+    // the waiting client streams the stages (SSE), so the entity reports them, not only the final answer
+    @JsonProperty("streamsProgress")
+    public final boolean streamsProgress;
+
+    @JsonCreator
+    public ReplyHandle(@JsonProperty("registry") ActorRef<Command> registry,
+                       @JsonProperty("requestId") String requestId,
+                       @JsonProperty("streamsProgress") boolean streamsProgress) {
+        this.registry = registry;
+        this.requestId = requestId;
+        this.streamsProgress = streamsProgress;
+    }
+
+    public ReplyHandle(ActorRef<Command> registry, String requestId) {
+        this(registry, requestId, false);
+    }
+
+    public void reply(CaseResolvedMessage response) {
+        registry.tell(new CaseReplyCommand(requestId, response));
+    }
+
+    // no message at all when nobody streams, the plain resolve pays nothing for this
+    public void reportStage(String stage) {
+        if (streamsProgress) {
+            registry.tell(new CaseProgressCommand(requestId, stage));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReplyHandle that = (ReplyHandle) o;
+        return streamsProgress == that.streamsProgress
+                && Objects.equals(registry, that.registry)
+                && Objects.equals(requestId, that.requestId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(registry, requestId, streamsProgress);
+    }
+
+    @Override
+    public String toString() {
+        return "ReplyHandle{requestId='" + requestId + "', registry=" + registry.path()
+                + (streamsProgress ? ", streamsProgress" : "") + "}";
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.cluster.reply;
+
+import com.example.cluster.actors.reply.ReplyReceiverActor;
+import com.example.cluster.commands.CaseResolvedMessage;
+import com.example.cluster.commands.Command;
+import com.example.cluster.deadline.Deadlines;
+import com.typesafe.config.Config;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+import org.apache.pekko.actor.typed.Props;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Node-local registry of HTTP requests waiting for a case resolution.
+ *
+ * The PubSub way spawned an actor and subscribed a fresh topic per request, and every
+ * subscribe/unsubscribe was gossiped through the whole cluster. Here a waiting request is just
+ * an entry in a map keyed by request id, the entity answers straight to the one
+ * ReplyReceiverActor of this node (see ReplyHandle), and one timer wheel expires all of them.
+ * Nothing of it is visible outside the node.
+ */
+public class ReplyRegistry implements Extension {
+
+    public static final ExtensionId<ReplyRegistry> ID = new Id();
+
+    public static ReplyRegistry get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<ReplyRegistry> {
+        @Override
+        public ReplyRegistry createExtension(ActorSystem<?> system) {
+            return new ReplyRegistry(system);
+        }
+    }
+
+    public static final class PendingReply {
+        public final ReplyHandle handle;
+        public final CompletionStage<CaseResolvedMessage> response;
+        // when the registry answers "timeout", nobody waits for the resolution after it (epoch millis, see Deadlines)
+        public final long deadlineMillis;
+
+        PendingReply(ReplyHandle handle, CompletionStage<CaseResolvedMessage> response, long deadlineMillis) {
+            this.handle = handle;
+            this.response = response;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+
+    private final Map<String, CompletableFuture<CaseResolvedMessage>> pending = new ConcurrentHashMap<>();
+    // only for requests registered with a stage listener
+    private final Map<String, Consumer<String>> stageListeners = new ConcurrentHashMap<>();
+    private final ReplyTimerWheel timerWheel;
+    private final ActorRef<Command> receiver;
+    private final Duration timeout;
+
+    private ReplyRegistry(ActorSystem<?> system) {
+        Config config = system.settings().config().getConfig("reply-registry");
+        this.timeout = config.getDuration("timeout");
+        Duration tick = config.getDuration("tick");
+        this.timerWheel = new ReplyTimerWheel(tick, config.getInt("wheel-size"), this::expire);
+        this.receiver = system.systemActorOf(ReplyReceiverActor.create(this), "case-reply-receiver", Props.empty());
+        system.scheduler().scheduleAtFixedRate(tick, tick, timerWheel::tick, system.executionContext());
+    }
+
+    /**
+     * Registers a new waiting request with the configured timeout.
+     * Pass the handle to the entity, complete the HTTP request from the response stage.
+     */
+    public PendingReply register() {
+        String requestId = UUID.randomUUID().toString();
+        CompletableFuture<CaseResolvedMessage> future = new CompletableFuture<>();
+        pending.put(requestId, future);
+        timerWheel.schedule(requestId, timeout);
+        return new PendingReply(new ReplyHandle(receiver, requestId), future, Deadlines.after(timeout));
+    }
+
+    /**
+     * Like register(), and the entity reports every finished stage (CaseProgressCommand stage names)
+     * to stageListener, called on the ReplyReceiverActor - keep it short and non-blocking.
+     */
+    public PendingReply register(Consumer<String> stageListener) {
+        String requestId = UUID.randomUUID().toString();
+        CompletableFuture<CaseResolvedMessage> future = new CompletableFuture<>();
+        stageListeners.put(requestId, stageListener);
+        pending.put(requestId, future);
+        timerWheel.schedule(requestId, timeout);
+        return new PendingReply(new ReplyHandle(receiver, requestId, true), future, Deadlines.after(timeout));
+    }
+
+    public void stageCompleted(String requestId, String stage) {
+        Consumer<String> listener = stageListeners.get(requestId);
+        if (listener != null) {
+            listener.accept(stage);
+        }
+    }
+
+    /**
+     * @return false if nobody waits for this request id anymore (timed out or unknown)
+     */
+    public boolean complete(String requestId, CaseResolvedMessage response) {
+        stageListeners.remove(requestId);
+        CompletableFuture<CaseResolvedMessage> future = pending.remove(requestId);
+        return future != null && future.complete(response);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private void expire(String requestId) {
+        stageListeners.remove(requestId);
+        CompletableFuture<CaseResolvedMessage> future = pending.remove(requestId);
+        if (future != null) {
+            // same answer the PubSub ResponseSubscriberActor gives on timeout
+            future.complete(new CaseResolvedMessage("timeout", "Request timed out"));
+        }
+    }
+}
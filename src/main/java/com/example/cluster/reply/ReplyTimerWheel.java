@@ -0,0 +1,73 @@
+package com.example.cluster.reply;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: one periodic tick drives all request timeouts of the node,
+ * instead of one scheduled task per request.
+ *
+ * A timeout lands in bucket (deadlineTick % wheelSize). Every tick drains exactly one bucket,
+ * fires what is due and puts back entries that belong to a later round of the wheel.
+ * Precision is one tick, which is plenty for HTTP request timeouts.
+ *
+ * schedule() is safe from any thread, tick() must be called from one thread at a time
+ * (the scheduler task does that).
+ */
+public final class ReplyTimerWheel {
+
+    private static final class Entry {
+        final String key;
+        final long deadlineTick;
+
+        Entry(String key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickNanos;
+    private final Queue<Entry>[] buckets;
+    private final AtomicLong nextTick = new AtomicLong();
+    private final Consumer<String> onExpired;
+
+    @SuppressWarnings("unchecked")
+    public ReplyTimerWheel(Duration tick, int wheelSize, Consumer<String> onExpired) {
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("wheel-size must be positive, was " + wheelSize);
+        }
+        this.tickNanos = tick.toNanos();
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.onExpired = onExpired;
+    }
+
+    public void schedule(String key, Duration timeout) {
+        long ticks = Math.max(1, (timeout.toNanos() + tickNanos - 1) / tickNanos);
+        long deadlineTick = nextTick.get() + ticks;
+        buckets[(int) (deadlineTick % buckets.length)].add(new Entry(key, deadlineTick));
+    }
+
+    public void tick() {
+        long current = nextTick.get();
+        Queue<Entry> bucket = buckets[(int) (current % buckets.length)];
+        List<Entry> laterRounds = new ArrayList<>();
+        Entry entry;
+        while ((entry = bucket.poll()) != null) {
+            if (entry.deadlineTick <= current) {
+                onExpired.accept(entry.key);
+            } else {
+                laterRounds.add(entry);
+            }
+        }
+        bucket.addAll(laterRounds);
+        nextTick.incrementAndGet();
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.cluster.serialize;
+
+import com.example.cluster.commands.CaseProgressCommand;
+import com.example.cluster.commands.CaseReplyCommand;
+import com.example.cluster.commands.CaseResolvedMessage;
+import com.example.cluster.commands.Command;
+import com.example.cluster.commands.DeploymentStatusArrivedCommand;
+import com.example.cluster.commands.ResolveCaseCommand;
+import com.example.cluster.commands.ResponseReceivedCommand;
+import com.example.cluster.deadline.Deadlines;
+import com.example.cluster.events.CaseResolvedCountIncremented;
+import com.example.cluster.reply.ReplyHandle;
+import com.example.cluster.states.State;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.ExtendedActorSystem;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.ActorRefResolver;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.apache.pekko.serialization.SerializerWithStringManifest;
+
+import java.io.NotSerializableException;
+
+/**
+ * Hand-written binary serializer for the messages that are on the hot path of every case resolution:
+ * they cross Artery on every request (ResolveCaseCommand, DeploymentStatusArrivedCommand, replies)
+ * or are written to Postgres on every resolution (CaseResolvedCountIncremented, State).
+ *
+ * Jackson CBOR writes every field name into every message and resolves the class reflectively,
+ * here the manifest says which class it is and the layout is fixed, so only the values travel.
+ *
+ * Manifests are versioned ("RC1" = ResolveCaseCommand layout 1). Within a manifest the layout only grows
+ * at the end: a new optional field is appended after all others, announced by a new flag bit (RC1: STREAMS_PROGRESS,
+ * HAS_DEADLINE, HAS_ACCEPTED_AT) or read only if bytes remain (DA1: the trailing requestId). Older readers stop
+ * before it, newer readers get the default for rows without it. Any other change (removing, reordering or
+ * retyping a field) gets a new manifest version and fromBinary keeps reading the old ones, the journal keeps rows forever.
+ *
+ * Journal rows and snapshots written before this serializer existed carry the jackson-cbor serializer id,
+ * pekko picks the deserializer by that id, so they are still read by jackson-cbor (that is why it stays
+ * registered in application.conf). Only new rows are written in this format.
+ */
+public class CaseMessagesSerializer extends SerializerWithStringManifest {
+
+    // must be unique among the serializers of the system and never change, it is stored with every journal row
+    public static final int IDENTIFIER = 7301;
+
+    static final String RESOLVE_CASE_V1 = "RC1";
+    static final String DEPLOYMENT_STATUS_ARRIVED_V1 = "DA1";
+    static final String CASE_RESOLVED_MESSAGE_V1 = "CR1";
+    static final String RESPONSE_RECEIVED_V1 = "RR1";
+    static final String CASE_REPLY_V1 = "CP1";
+    static final String CASE_RESOLVED_COUNT_INCREMENTED_V1 = "EC1";
+    static final String STATE_V1 = "ST1";
+    static final String CASE_PROGRESS_V1 = "PG1";
+
+    // ResolveCaseCommand flags
+    private static final int HAS_RESPONSE_TOPIC = 1;
+    private static final int HAS_REPLY_HANDLE = 1 << 1;
+    // added later, RC1 rows written before never set it and read as no progress streaming
+    private static final int STREAMS_PROGRESS = 1 << 2;
+    // added later like STREAMS_PROGRESS: the deadline is appended after all other fields, older readers ignore both
+    private static final int HAS_DEADLINE = 1 << 3;
+    // same again, appended after the deadline
+    private static final int HAS_ACCEPTED_AT = 1 << 4;
+
+    private final ExtendedActorSystem system;
+    // resolved on first use, the serializer is created while the actor system is still starting
+    private volatile ActorRefResolver actorRefResolver;
+
+    public CaseMessagesSerializer(ExtendedActorSystem system) {
+        this.system = system;
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object o) {
+        if (o instanceof ResolveCaseCommand) return RESOLVE_CASE_V1;
+        if (o instanceof DeploymentStatusArrivedCommand) return DEPLOYMENT_STATUS_ARRIVED_V1;
+        if (o instanceof CaseResolvedMessage) return CASE_RESOLVED_MESSAGE_V1;
+        if (o instanceof ResponseReceivedCommand) return RESPONSE_RECEIVED_V1;
+        if (o instanceof CaseReplyCommand) return CASE_REPLY_V1;
+        if (o instanceof CaseResolvedCountIncremented) return CASE_RESOLVED_COUNT_INCREMENTED_V1;
+        if (o instanceof State) return STATE_V1;
+        if (o instanceof CaseProgressCommand) return CASE_PROGRESS_V1;
+        throw new IllegalArgumentException("Can't serialize object of type " + o.getClass() + " in " + getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object o) {
+        if (o instanceof ResolveCaseCommand) return resolveCaseToBinary((ResolveCaseCommand) o);
+        if (o instanceof DeploymentStatusArrivedCommand) return deploymentStatusArrivedToBinary((DeploymentStatusArrivedCommand) o);
+        if (o instanceof CaseResolvedMessage) {
+            CaseResolvedMessage message = (CaseResolvedMessage) o;
+            return writeCaseResolved(new CompactBinaryWriter(sizeHint(message)), message).toByteArray();
+        }
+        if (o instanceof ResponseReceivedCommand) {
+            CaseResolvedMessage message = ((ResponseReceivedCommand) o).response;
+            return writeNullableCaseResolved(new CompactBinaryWriter(sizeHint(message) + 1), message).toByteArray();
+        }
+        if (o instanceof CaseReplyCommand) {
+            CaseReplyCommand reply = (CaseReplyCommand) o;
+            CompactBinaryWriter writer = new CompactBinaryWriter(sizeHint(reply.response) + 48);
+            writer.writeString(reply.requestId);
+            return writeNullableCaseResolved(writer, reply.response).toByteArray();
+        }
+        if (o instanceof CaseResolvedCountIncremented) {
+            return new CompactBinaryWriter(32).writeString(((CaseResolvedCountIncremented) o).caseId).toByteArray();
+        }
+        if (o instanceof State) {
+            State state = (State) o;
+            return new CompactBinaryWriter(40)
+                .writeString(state.caseId)
+                .writeBoolean(state.isResolved)
+                .writeVarInt(state.getResolveCount())
+                .toByteArray();
+        }
+        if (o instanceof CaseProgressCommand) {
+            CaseProgressCommand progress = (CaseProgressCommand) o;
+            return new CompactBinaryWriter(80).writeString(progress.requestId).writeString(progress.stage).toByteArray();
+        }
+        throw new IllegalArgumentException("Can't serialize object of type " + o.getClass() + " in " + getClass().getName());
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        CompactBinaryReader reader = new CompactBinaryReader(bytes);
+        switch (manifest) {
+            case RESOLVE_CASE_V1:
+                return resolveCaseFromBinary(reader);
+            case DEPLOYMENT_STATUS_ARRIVED_V1: {
+                String caseId = reader.readString();
+                String deploymentStatusJson = reader.readString();
+                ActorRef<Done> ackTo = readNullableRef(reader);
+                return new DeploymentStatusArrivedCommand(caseId, deploymentStatusJson, ackTo,
+                    reader.hasRemaining() ? reader.readString() : null);
+            }
+            case CASE_RESOLVED_MESSAGE_V1:
+                return readCaseResolved(reader);
+            case RESPONSE_RECEIVED_V1:
+                return new ResponseReceivedCommand(readNullableCaseResolved(reader));
+            case CASE_REPLY_V1:
+                return new CaseReplyCommand(reader.readString(), readNullableCaseResolved(reader));
+            case CASE_RESOLVED_COUNT_INCREMENTED_V1:
+                return new CaseResolvedCountIncremented(reader.readString());
+            case STATE_V1:
+                return new State(reader.readString(), reader.readBoolean(), reader.readVarInt());
+            case CASE_PROGRESS_V1:
+                return new CaseProgressCommand(reader.readString(), reader.readString());
+            default:
+                throw new NotSerializableException(
+                    "Unknown manifest [" + manifest + "] for " + getClass().getName() + ", written by a newer version?");
+        }
+    }
+
+    private byte[] resolveCaseToBinary(ResolveCaseCommand command) {
+        int flags = (command.hasResponseTopic() ? HAS_RESPONSE_TOPIC : 0)
+            | (command.hasReplyHandle() ? HAS_REPLY_HANDLE : 0)
+            | (command.hasReplyHandle() && command.getReplyHandle().streamsProgress ? STREAMS_PROGRESS : 0)
+            | (command.getDeadlineMillis() != Deadlines.NONE ? HAS_DEADLINE : 0)
+            | (command.getAcceptedAtMillis() != 0 ? HAS_ACCEPTED_AT : 0);
+        CompactBinaryWriter writer = new CompactBinaryWriter(command.hasReplyHandle() ? 160 : 64);
+        writer.writeByte(flags);
+        writer.writeString(command.getCaseId());
+        if (command.hasResponseTopic()) {
+            writer.writeString(command.getResponseTopicId());
+        }
+        if (command.hasReplyHandle()) {
+            ReplyHandle handle = command.getReplyHandle();
+            writer.writeString(resolver().toSerializationFormat(handle.registry));
+            writer.writeString(handle.requestId);
+        }
+        if (command.getDeadlineMillis() != Deadlines.NONE) {
+            writer.writeVarLong(command.getDeadlineMillis());
+        }
+        if (command.getAcceptedAtMillis() != 0) {
+            writer.writeVarLong(command.getAcceptedAtMillis());
+        }
+        return writer.toByteArray();
+    }
+
+    private ResolveCaseCommand resolveCaseFromBinary(CompactBinaryReader reader) throws NotSerializableException {
+        int flags = reader.readByte();
+        String caseId = reader.readString();
+        String responseTopicId = (flags & HAS_RESPONSE_TOPIC) != 0 ? reader.readString() : null;
+        ReplyHandle replyHandle = null;
+        if ((flags & HAS_REPLY_HANDLE) != 0) {
+            ActorRef<Command> registry = resolver().resolveActorRef(reader.readString());
+            replyHandle = new ReplyHandle(registry, reader.readString(), (flags & STREAMS_PROGRESS) != 0);
+        }
+        long deadlineMillis = (flags & HAS_DEADLINE) != 0 ? reader.readVarLong() : Deadlines.NONE;
+        long acceptedAtMillis = (flags & HAS_ACCEPTED_AT) != 0 ? reader.readVarLong() : 0L;
+        return new ResolveCaseCommand(caseId, responseTopicId, replyHandle, deadlineMillis, acceptedAtMillis);
+    }
+
+    private byte[] deploymentStatusArrivedToBinary(DeploymentStatusArrivedCommand command) {
+        int jsonLength = command.deploymentStatusJson == null ? 0 : command.deploymentStatusJson.length();
+        CompactBinaryWriter writer = new CompactBinaryWriter(jsonLength + 128);
+        writer.writeString(command.caseId);
+        writer.writeString(command.deploymentStatusJson);
+        writer.writeString(command.ackTo == null ? null : resolver().toSerializationFormat(command.ackTo));
+        // added later at the end, older readers stop before it, older writers leave it out
+        writer.writeString(command.requestId);
+        return writer.toByteArray();
+    }
+
+    private ActorRef<Done> readNullableRef(CompactBinaryReader reader) throws NotSerializableException {
+        String path = reader.readString();
+        return path == null ? null : resolver().resolveActorRef(path);
+    }
+
+    private static CompactBinaryWriter writeCaseResolved(CompactBinaryWriter writer, CaseResolvedMessage message) {
+        return writer.writeString(message.caseId).writeString(message.summary);
+    }
+
+    private static CompactBinaryWriter writeNullableCaseResolved(CompactBinaryWriter writer, CaseResolvedMessage message) {
+        writer.writeBoolean(message != null);
+        return message == null ? writer : writeCaseResolved(writer, message);
+    }
+
+    private static CaseResolvedMessage readCaseResolved(CompactBinaryReader reader) throws NotSerializableException {
+        return new CaseResolvedMessage(reader.readString(), reader.readString());
+    }
+
+    private static CaseResolvedMessage readNullableCaseResolved(CompactBinaryReader reader) throws NotSerializableException {
+        return reader.readBoolean() ? readCaseResolved(reader) : null;
+    }
+
+    // summaries are mostly ascii, length in chars is a good first guess for the utf-8 size
+    private static int sizeHint(CaseResolvedMessage message) {
+        if (message == null) {
+            return 16;
+        }
+        return 16 + (message.caseId == null ? 0 : message.caseId.length())
+            + (message.summary == null ? 0 : message.summary.length());
+    }
+
+    private ActorRefResolver resolver() {
+        ActorRefResolver resolver = actorRefResolver;
+        if (resolver == null) {
+            resolver = ActorRefResolver.get(Adapter.toTyped(system));
+            actorRefResolver = resolver;
+        }
+        return resolver;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.cluster.serialize;
+
+import java.io.NotSerializableException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads what CompactBinaryWriter wrote, see there for the encoding of the values.
+ * Truncated or corrupt input ends in NotSerializableException, which is what pekko expects from fromBinary.
+ */
+public final class CompactBinaryReader {
+
+    private final byte[] bytes;
+    private int position;
+
+    public CompactBinaryReader(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public int readByte() throws NotSerializableException {
+        require(1);
+        return bytes[position++] & 0xFF;
+    }
+
+    public boolean readBoolean() throws NotSerializableException {
+        return readByte() != 0;
+    }
+
+    public int readVarInt() throws NotSerializableException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new NotSerializableException("Malformed varint at offset " + position);
+    }
+
+    public long readVarLong() throws NotSerializableException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new NotSerializableException("Malformed varlong at offset " + position);
+    }
+
+    public String readString() throws NotSerializableException {
+        int lengthPlusOne = readVarInt();
+        if (lengthPlusOne == 0) {
+            return null;
+        }
+        int length = lengthPlusOne - 1;
+        require(length);
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    // for fields appended to a layout later: absent when an older version wrote it
+    public boolean hasRemaining() {
+        return position < bytes.length;
+    }
+
+    private void require(int count) throws NotSerializableException {
+        if (count < 0 || position + count > bytes.length) {
+            throw new NotSerializableException(
+                "Truncated payload: need " + count + " bytes at offset " + position + ", have " + (bytes.length - position));
+        }
+    }
+}
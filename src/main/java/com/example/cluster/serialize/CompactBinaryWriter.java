@@ -0,0 +1,76 @@
+package com.example.cluster.serialize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the few primitives CaseMessagesSerializer needs.
+ *
+ * Encoding of the values (fixed for good, the journal keeps rows forever; how a manifest's layout may grow
+ * is in CaseMessagesSerializer: append-only, a new field gated by a flag bit or by bytes remaining):
+ * - int: unsigned LEB128 varint, the counters are small so mostly 1 byte
+ * - long: unsigned LEB128 varint as well, up to 10 bytes (epoch millis take 6)
+ * - string: varint (utf-8 length + 1) followed by the utf-8 bytes, 0 means null
+ * - boolean: one byte 0/1
+ */
+public final class CompactBinaryWriter {
+
+    private byte[] buffer;
+    private int position;
+
+    public CompactBinaryWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public CompactBinaryWriter writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public CompactBinaryWriter writeBoolean(boolean value) {
+        return writeByte(value ? 1 : 0);
+    }
+
+    public CompactBinaryWriter writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public CompactBinaryWriter writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public CompactBinaryWriter writeString(String value) {
+        if (value == null) {
+            return writeVarInt(0);
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(utf8.length + 1);
+        ensureCapacity(utf8.length);
+        System.arraycopy(utf8, 0, buffer, position, utf8.length);
+        position += utf8.length;
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.cluster.sharding;
+
+import kamon.Kamon;
+import kamon.metric.Counter;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.cluster.sharding.ShardCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.collection.immutable.IndexedSeq;
+import scala.jdk.javaapi.CollectionConverters;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Places CaseCompanion shards by the load the nodes report (ShardLoadTracker), not by shard count.
+ * A region's load is the sum of its shards, each shard-base-load plus its reported load, so with nothing
+ * reported yet it balances shard counts like the least-shard strategy.
+ *
+ * allocateShard: the least loaded region (fewest shards on a tie).
+ *
+ * rebalance moves shards from the most to the least loaded region, damped so a hot shard does not travel
+ * between nodes with every burst:
+ * - loads are smoothed rates (rate-smoothing) and nothing moves while a handoff is still in progress
+ * - imbalanced means most > least * (1 + imbalance-threshold) and most - least >= min-load-difference,
+ *   for stable-rounds rebalance rounds in a row
+ * - a shard only moves if the gap left afterwards is at least min-load-difference smaller: not the shard
+ *   hotter than the gap itself (the hot spot would just change sides), not the nearly idle one (a handoff for nothing);
+ *   of those the one closest to half the gap
+ * - a moved shard stays put for shard-cooldown, at most max-moves-per-round per round
+ *
+ * Called by the shard coordinator only, one call at a time.
+ *
+ * Metric: shard-allocation.moves (tag strategy = load-aware) - shards handed off by rebalance.
+ */
+public class LoadAwareShardAllocationStrategy extends ShardCoordinator.AbstractShardAllocationStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadAwareShardAllocationStrategy.class);
+
+    private final Supplier<Map<String, Double>> shardLoads;
+    private final ShardLoadSettings settings;
+    private final LongSupplier nanoClock;
+    private final long cooldownNanos;
+    // shard id -> System.nanoTime() of its last move, dropped after shard-cooldown
+    private final Map<String, Long> movedAtNanos = new HashMap<>();
+    private int imbalancedRounds = 0;
+    private final Counter moves = Kamon.counter("shard-allocation.moves").withTag("strategy", "load-aware");
+
+    public LoadAwareShardAllocationStrategy(ActorSystem<?> system) {
+        this(ShardLoadTracker.get(system)::clusterShardLoads, ShardLoadTracker.get(system).settings(), System::nanoTime);
+    }
+
+    // shardLoads and nanoClock given, for simulations without a cluster
+    public LoadAwareShardAllocationStrategy(Supplier<Map<String, Double>> shardLoads, ShardLoadSettings settings, LongSupplier nanoClock) {
+        this.shardLoads = shardLoads;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.cooldownNanos = settings.shardCooldown.toNanos();
+    }
+
+    private static final class RegionLoad {
+        final ActorRef region;
+        final List<String> shards;
+        double load;
+
+        RegionLoad(ActorRef region, List<String> shards, double load) {
+            this.region = region;
+            this.shards = shards;
+            this.load = load;
+        }
+    }
+
+    private static final Comparator<RegionLoad> BY_LOAD =
+        Comparator.<RegionLoad>comparingDouble(r -> r.load).thenComparingInt(r -> r.shards.size());
+
+    @Override
+    public CompletionStage<ActorRef> allocateShard(ActorRef requester, String shardId,
+                                                   Map<ActorRef, IndexedSeq<String>> currentShardAllocations) {
+        if (currentShardAllocations.isEmpty()) {
+            return CompletableFuture.completedFuture(requester);
+        }
+        Map<String, Double> loads = shardLoads.get();
+        RegionLoad least = regionLoads(currentShardAllocations, loads).stream().min(BY_LOAD).get();
+        return CompletableFuture.completedFuture(least.region);
+    }
+
+    @Override
+    public CompletionStage<Set<String>> rebalance(Map<ActorRef, IndexedSeq<String>> currentShardAllocations,
+                                                  Set<String> rebalanceInProgress) {
+        if (!rebalanceInProgress.isEmpty() || currentShardAllocations.size() < 2) {
+            // judge the layout once the running handoffs are done
+            imbalancedRounds = 0;
+            return CompletableFuture.completedFuture(Set.of());
+        }
+        long now = nanoClock.getAsLong();
+        movedAtNanos.values().removeIf(movedAt -> now - movedAt >= cooldownNanos);
+
+        Map<String, Double> loads = shardLoads.get();
+        List<RegionLoad> regions = regionLoads(currentShardAllocations, loads);
+        if (!imbalanced(regions.stream().max(BY_LOAD).get(), regions.stream().min(BY_LOAD).get())) {
+            imbalancedRounds = 0;
+            return CompletableFuture.completedFuture(Set.of());
+        }
+        if (++imbalancedRounds < settings.stableRounds) {
+            return CompletableFuture.completedFuture(Set.of());
+        }
+
+        Set<String> moving = new HashSet<>();
+        List<String> described = new ArrayList<>();
+        while (moving.size() < settings.maxMovesPerRound) {
+            RegionLoad most = regions.stream().max(BY_LOAD).get();
+            RegionLoad least = regions.stream().min(BY_LOAD).get();
+            if (!imbalanced(most, least)) {
+                break;
+            }
+            String shard = pickShard(most, least, loads, moving);
+            if (shard == null) {
+                break;
+            }
+            double load = shardLoad(shard, loads);
+            described.add(String.format("%s (%.1f) %.1f -> %.1f", shard, load, most.load, least.load));
+            // as if already moved, for the next pick of this round
+            most.shards.remove(shard);
+            most.load -= load;
+            least.shards.add(shard);
+            least.load += load;
+            moving.add(shard);
+            movedAtNanos.put(shard, now);
+        }
+        if (!moving.isEmpty()) {
+            imbalancedRounds = 0;
+            moves.increment(moving.size());
+            log.debug("Rebalancing CaseCompanion shards by load: {}", described);
+        }
+        return CompletableFuture.completedFuture(moving);
+    }
+
+    private boolean imbalanced(RegionLoad most, RegionLoad least) {
+        return most.load - least.load >= settings.minLoadDifference
+            && most.load > least.load * (1 + settings.imbalanceThreshold);
+    }
+
+    // the shard of most whose move shrinks the gap the most while leaving it at least min-load-difference smaller; null if none
+    private String pickShard(RegionLoad most, RegionLoad least, Map<String, Double> loads, Set<String> moving) {
+        double gap = most.load - least.load;
+        String best = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (String shard : most.shards) {
+            if (moving.contains(shard) || movedAtNanos.containsKey(shard)) {
+                continue;
+            }
+            double load = shardLoad(shard, loads);
+            if (Math.abs(gap - 2 * load) > gap - settings.minLoadDifference) {
+                continue;
+            }
+            double distance = Math.abs(gap / 2 - load);
+            if (distance < bestDistance) {
+                best = shard;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private double shardLoad(String shard, Map<String, Double> loads) {
+        return settings.shardBaseLoad + loads.getOrDefault(shard, 0.0);
+    }
+
+    private List<RegionLoad> regionLoads(Map<ActorRef, IndexedSeq<String>> allocations, Map<String, Double> loads) {
+        List<RegionLoad> regions = new ArrayList<>(allocations.size());
+        allocations.forEach((region, allocated) -> {
+            List<String> shards = new ArrayList<>(CollectionConverters.asJava(allocated));
+            double load = 0;
+            for (String shard : shards) {
+                load += shardLoad(shard, loads);
+            }
+            regions.add(new RegionLoad(region, shards, load));
+        });
+        return regions;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.cluster.sharding;
+
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.cluster.ddata.Key;
+import org.apache.pekko.cluster.ddata.LWWMap;
+import org.apache.pekko.cluster.ddata.LWWMapKey;
+import org.apache.pekko.cluster.ddata.SelfUniqueAddress;
+import org.apache.pekko.cluster.ddata.typed.javadsl.DistributedData;
+import org.apache.pekko.cluster.ddata.typed.javadsl.Replicator;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Spreads the shard load reports of the ClusterA nodes: one LWWMap entry per node, written locally
+ * (WriteLocal, no round trip) and gossiped by the replicator like any other Distributed Data. A report
+ * is a few dozen numbers every report-interval, so the deltas are tiny.
+ *
+ * Every change of the map, local or gossiped in, goes to onChange.
+ */
+final class ShardLoadGossip {
+
+    interface Message {
+    }
+
+    static final class Publish implements Message {
+        final ShardLoadReport report;
+
+        Publish(ShardLoadReport report) {
+            this.report = report;
+        }
+    }
+
+    private static final class UpdateResponse implements Message {
+        final Replicator.UpdateResponse<LWWMap<String, ShardLoadReport>> response;
+
+        UpdateResponse(Replicator.UpdateResponse<LWWMap<String, ShardLoadReport>> response) {
+            this.response = response;
+        }
+    }
+
+    private static final class SubscribeResponse implements Message {
+        final Replicator.SubscribeResponse<LWWMap<String, ShardLoadReport>> response;
+
+        SubscribeResponse(Replicator.SubscribeResponse<LWWMap<String, ShardLoadReport>> response) {
+            this.response = response;
+        }
+    }
+
+    static final Key<LWWMap<String, ShardLoadReport>> KEY = LWWMapKey.create("case-companion-shard-load");
+
+    private ShardLoadGossip() {
+    }
+
+    // nodeKey = host:port of this node, without the uid so a restarted node overwrites its old report
+    static Behavior<Message> create(String nodeKey, Consumer<Map<String, ShardLoadReport>> onChange) {
+        return Behaviors.setup(context -> DistributedData.<Message, LWWMap<String, ShardLoadReport>>withReplicatorMessageAdapter(replicator -> {
+            SelfUniqueAddress self = DistributedData.get(context.getSystem()).selfUniqueAddress();
+            replicator.subscribe(KEY, SubscribeResponse::new);
+
+            return Behaviors.receive(Message.class)
+                .onMessage(Publish.class, publish -> {
+                    replicator.askUpdate(
+                        replyTo -> new Replicator.Update<>(KEY, LWWMap.create(), Replicator.writeLocal(), replyTo,
+                            map -> map.put(self, nodeKey, publish.report)),
+                        UpdateResponse::new);
+                    return Behaviors.same();
+                })
+                .onMessage(UpdateResponse.class, updated -> {
+                    if (!(updated.response instanceof Replicator.UpdateSuccess)) {
+                        context.getLog().warn("Shard load report of {} not stored: {}", nodeKey, updated.response);
+                    }
+                    return Behaviors.same();
+                })
+                .onMessage(SubscribeResponse.class, changed -> {
+                    if (changed.response instanceof Replicator.Changed) {
+                        onChange.accept(((Replicator.Changed<LWWMap<String, ShardLoadReport>>) changed.response).get(KEY).getEntries());
+                    }
+                    return Behaviors.same();
+                })
+                .build();
+        }));
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.cluster.sharding;
+
+import com.example.cluster.serialize.CborSerializable;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+// what one node last reported about its CaseCompanion shards, value of the gossiped LWWMap (key = node address)
+public final class ShardLoadReport implements CborSerializable {
+    // shard id -> load, see ShardLoadSettings.loadOf
+    public final Map<String, Double> shardLoads;
+    public final long reportedAtMillis;
+
+    @JsonCreator
+    public ShardLoadReport(
+            @JsonProperty("shardLoads") Map<String, Double> shardLoads,
+            @JsonProperty("reportedAtMillis") long reportedAtMillis) {
+        this.shardLoads = shardLoads;
+        this.reportedAtMillis = reportedAtMillis;
+    }
+}
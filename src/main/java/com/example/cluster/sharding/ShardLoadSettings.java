@@ -0,0 +1,55 @@
+package com.example.cluster.sharding;
+
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+
+/**
+ * case-companion.sharding.load-aware, shared by the nodes reporting shard load (ShardLoadTracker)
+ * and the coordinator deciding with it (LoadAwareShardAllocationStrategy).
+ */
+public final class ShardLoadSettings {
+
+    public final Duration reportInterval;
+    public final Duration staleAfter;
+    public final double rateSmoothing;
+    public final double messageRateWeight;
+    public final double activeEntityWeight;
+    public final double inFlightAnalysisWeight;
+    public final double shardBaseLoad;
+    public final double imbalanceThreshold;
+    public final double minLoadDifference;
+    public final int stableRounds;
+    public final Duration shardCooldown;
+    public final int maxMovesPerRound;
+
+    private ShardLoadSettings(Config config) {
+        this.reportInterval = config.getDuration("report-interval");
+        this.staleAfter = config.getDuration("stale-after");
+        this.rateSmoothing = config.getDouble("rate-smoothing");
+        this.messageRateWeight = config.getDouble("message-rate-weight");
+        this.activeEntityWeight = config.getDouble("active-entity-weight");
+        this.inFlightAnalysisWeight = config.getDouble("in-flight-analysis-weight");
+        this.shardBaseLoad = config.getDouble("shard-base-load");
+        this.imbalanceThreshold = config.getDouble("imbalance-threshold");
+        this.minLoadDifference = config.getDouble("min-load-difference");
+        this.stableRounds = Math.max(1, config.getInt("stable-rounds"));
+        this.shardCooldown = config.getDuration("shard-cooldown");
+        this.maxMovesPerRound = Math.max(1, config.getInt("max-moves-per-round"));
+        if (rateSmoothing <= 0 || rateSmoothing > 1) {
+            throw new IllegalArgumentException("case-companion.sharding.load-aware.rate-smoothing must be in (0, 1], was " + rateSmoothing);
+        }
+    }
+
+    // config = the load-aware block itself
+    public static ShardLoadSettings fromConfig(Config config) {
+        return new ShardLoadSettings(config);
+    }
+
+    // what one shard weighs, messageRate in resolve requests/s (smoothed)
+    public double loadOf(double messageRate, int activeEntities, int inFlightAnalyses) {
+        return messageRateWeight * messageRate
+            + activeEntityWeight * activeEntities
+            + inFlightAnalysisWeight * inFlightAnalyses;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.cluster.sharding;
+
+import com.example.cluster.commands.Command;
+import com.example.cluster.nodelog.NodeInfoLogger;
+import com.typesafe.config.Config;
+import kamon.Kamon;
+import kamon.metric.Gauge;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.ActorSystem;
+import org.apache.pekko.actor.typed.Extension;
+import org.apache.pekko.actor.typed.ExtensionId;
+import org.apache.pekko.actor.typed.Props;
+import org.apache.pekko.cluster.sharding.typed.HashCodeMessageExtractor;
+import org.apache.pekko.cluster.sharding.typed.ShardingEnvelope;
+import org.apache.pekko.cluster.sharding.typed.ShardingMessageExtractor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load of the CaseCompanion shards of this node, for case-companion.sharding.allocation = "load-aware".
+ *
+ * The entities count into their shard: resolve requests received, entities alive, log analyses in flight.
+ * Every load-aware.report-interval the request count becomes a smoothed rate and each shard one number
+ * (ShardLoadSettings.loadOf), published to the other nodes through ShardLoadGossip. The shard coordinator,
+ * wherever it runs, reads the merged reports of all nodes (clusterShardLoads) in LoadAwareShardAllocationStrategy.
+ *
+ * With any other allocation all of it is off and the counting methods return right away.
+ *
+ * Metric: shard-allocation.node-load (tag node) - sum of the shard loads of this node, as last reported.
+ */
+public class ShardLoadTracker implements Extension {
+
+    public static final ExtensionId<ShardLoadTracker> ID = new Id();
+
+    public static ShardLoadTracker get(ActorSystem<?> system) {
+        return ID.get(system);
+    }
+
+    private static class Id extends ExtensionId<ShardLoadTracker> {
+        @Override
+        public ShardLoadTracker createExtension(ActorSystem<?> system) {
+            return new ShardLoadTracker(system);
+        }
+    }
+
+    // below this many requests/s a shard without entities is not reported anymore
+    private static final double IDLE_RATE = 0.01;
+
+    // counters of one shard; never removed, there are at most number-of-shards of them
+    private static final class ShardCounters {
+        final LongAdder messages = new LongAdder();
+        final AtomicInteger activeEntities = new AtomicInteger();
+        final AtomicInteger inFlightAnalyses = new AtomicInteger();
+        // smoothed requests/s, only written by report()
+        volatile double messageRate;
+    }
+
+    private final boolean enabled;
+    private final ShardLoadSettings settings;
+    // the extractor the load-aware entity is started with, so the shard ids counted here are the coordinator's
+    private final HashCodeMessageExtractor<Command> extractor;
+    private final Map<String, ShardCounters> shards = new ConcurrentHashMap<>();
+    private final ActorRef<ShardLoadGossip.Message> gossip;
+    private final Gauge nodeLoad;
+    // node -> its last report, replaced on every gossip change
+    private volatile Map<String, ShardLoadReport> reports = Map.of();
+    private long lastReportNanos = System.nanoTime();
+
+    private ShardLoadTracker(ActorSystem<?> system) {
+        Config config = system.settings().config();
+        this.settings = ShardLoadSettings.fromConfig(config.getConfig("case-companion.sharding.load-aware"));
+        this.enabled = "load-aware".equals(config.getString("case-companion.sharding.allocation"));
+        this.extractor = new HashCodeMessageExtractor<>(config.getInt("pekko.cluster.sharding.number-of-shards"));
+        String node = NodeInfoLogger.getNodeInfo(system);
+        this.nodeLoad = Kamon.gauge("shard-allocation.node-load").withTag("node", node);
+        if (!enabled) {
+            this.gossip = null;
+            return;
+        }
+        this.gossip = system.systemActorOf(
+            ShardLoadGossip.create(node, view -> reports = Map.copyOf(view)), "case-companion-shard-load", Props.empty());
+        system.scheduler().scheduleWithFixedDelay(settings.reportInterval, settings.reportInterval,
+            this::report, system.executionContext());
+    }
+
+    public ShardLoadSettings settings() {
+        return settings;
+    }
+
+    public ShardingMessageExtractor<ShardingEnvelope<Command>, Command> messageExtractor() {
+        return extractor;
+    }
+
+    public void requestReceived(String caseId) {
+        if (enabled) {
+            counters(caseId).messages.increment();
+        }
+    }
+
+    public void entityStarted(String caseId) {
+        if (enabled) {
+            counters(caseId).activeEntities.incrementAndGet();
+        }
+    }
+
+    public void entityStopped(String caseId) {
+        if (enabled) {
+            counters(caseId).activeEntities.decrementAndGet();
+        }
+    }
+
+    public void analysisStarted(String caseId) {
+        if (enabled) {
+            counters(caseId).inFlightAnalyses.incrementAndGet();
+        }
+    }
+
+    public void analysisFinished(String caseId) {
+        if (enabled) {
+            counters(caseId).inFlightAnalyses.decrementAndGet();
+        }
+    }
+
+    /**
+     * Shard id -> load over all nodes, from their last reports. Reports older than stale-after (node gone or
+     * stuck) are ignored; a shard in two reports (just handed off) counts with the newer one.
+     */
+    public Map<String, Double> clusterShardLoads() {
+        long oldest = System.currentTimeMillis() - settings.staleAfter.toMillis();
+        Map<String, Double> loads = new HashMap<>();
+        Map<String, Long> reportedAt = new HashMap<>();
+        for (ShardLoadReport report : reports.values()) {
+            if (report.reportedAtMillis < oldest) {
+                continue;
+            }
+            report.shardLoads.forEach((shardId, load) -> {
+                Long seen = reportedAt.get(shardId);
+                if (seen == null || seen < report.reportedAtMillis) {
+                    loads.put(shardId, load);
+                    reportedAt.put(shardId, report.reportedAtMillis);
+                }
+            });
+        }
+        return loads;
+    }
+
+    private ShardCounters counters(String caseId) {
+        return shards.computeIfAbsent(extractor.shardId(caseId), shardId -> new ShardCounters());
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(0.001, (now - lastReportNanos) / 1e9);
+        lastReportNanos = now;
+        Map<String, Double> loads = new HashMap<>();
+        double total = 0;
+        for (Map.Entry<String, ShardCounters> shard : shards.entrySet()) {
+            ShardCounters counters = shard.getValue();
+            double rate = counters.messages.sumThenReset() / seconds;
+            counters.messageRate += settings.rateSmoothing * (rate - counters.messageRate);
+            int entities = Math.max(0, counters.activeEntities.get());
+            int analyses = Math.max(0, counters.inFlightAnalyses.get());
+            if (entities == 0 && analyses == 0 && counters.messageRate < IDLE_RATE) {
+                // moved away or idle, the coordinator counts it with shard-base-load only
+                continue;
+            }
+            double load = settings.loadOf(counters.messageRate, entities, analyses);
+            loads.put(shard.getKey(), load);
+            total += load;
+        }
+        nodeLoad.update(total);
+        gossip.tell(new ShardLoadGossip.Publish(new ShardLoadReport(loads, System.currentTimeMillis())));
+    }
+}
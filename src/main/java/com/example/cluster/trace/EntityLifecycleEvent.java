@@ -0,0 +1,55 @@
+package com.example.cluster.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event per lifecycle transition of a sharded entity: started, recovered (with the recovery time) and
+ * stopped (passivation, rebalance or node shutdown).
+ */
+@Name("com.example.cluster.EntityLifecycle")
+@Label("Entity Lifecycle")
+@Category({"Pekko Cluster POC", "Entities"})
+@Description("A sharded entity started, recovered its state or stopped")
+@StackTrace(false)
+public class EntityLifecycleEvent extends Event {
+
+    public static final String STARTED = "started";
+    public static final String RECOVERED = "recovered";
+    public static final String STOPPED = "stopped";
+
+    @Label("Entity Type")
+    public String entityType;
+
+    @Label("Entity Id")
+    public String entityId;
+
+    @Label("Node")
+    public String node;
+
+    @Label("Transition")
+    public String transition;
+
+    // recovery time for recovered, time since start for stopped, 0 for started
+    @Label("Transition Duration")
+    @Timespan(Timespan.MICROSECONDS)
+    public long transitionDuration;
+
+    public static void emit(String entityType, String entityId, String node, String transition, long micros) {
+        EntityLifecycleEvent event = new EntityLifecycleEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.entityType = entityType;
+        event.entityId = entityId;
+        event.node = node;
+        event.transition = transition;
+        event.transitionDuration = micros;
+        event.commit();
+    }
+}
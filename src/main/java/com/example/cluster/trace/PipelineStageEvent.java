@@ -0,0 +1,51 @@
+package com.example.cluster.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event per finished pipeline stage of a case, committed by PipelineMetrics next to the
+ * case-resolution.stage-time histogram. The stage may have started on another thread or node,
+ * so its length is the stageDuration field, not the event's own duration.
+ */
+@Name("com.example.cluster.PipelineStage")
+@Label("Pipeline Stage")
+@Category({"Pekko Cluster POC", "Case Resolution"})
+@Description("A finished stage of a case resolution")
+@StackTrace(false)
+public class PipelineStageEvent extends Event {
+
+    @Label("Case Id")
+    public String caseId;
+
+    @Label("Node")
+    public String node;
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Stage Duration")
+    @Timespan(Timespan.MICROSECONDS)
+    public long stageDuration;
+
+    public static void emit(String caseId, String node, String stage, String outcome, long micros) {
+        PipelineStageEvent event = new PipelineStageEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.caseId = caseId;
+        event.node = node;
+        event.stage = stage;
+        event.outcome = outcome;
+        event.stageDuration = micros;
+        event.commit();
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.cluster.serialize;
+
+import com.example.cluster.commands.CaseProgressCommand;
+import com.example.cluster.commands.CaseReplyCommand;
+import com.example.cluster.commands.CaseResolvedMessage;
+import com.example.cluster.commands.Command;
+import com.example.cluster.commands.DeploymentStatusArrivedCommand;
+import com.example.cluster.commands.ResolveCaseCommand;
+import com.example.cluster.commands.ResponseReceivedCommand;
+import com.example.cluster.deadline.Deadlines;
+import com.example.cluster.events.CaseResolvedCountIncremented;
+import com.example.cluster.reply.ReplyHandle;
+import com.example.cluster.states.State;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.ExtendedActorSystem;
+import org.apache.pekko.actor.testkit.typed.javadsl.ActorTestKit;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.ActorRefResolver;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.NotSerializableException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every manifest of CaseMessagesSerializer round trips, and bytes written in the older layouts of a manifest
+ * (before a field was appended to it) still read. The layouts are in the journal for good, so the fixed byte
+ * arrays here must never be changed to make a test pass.
+ */
+class CaseMessagesSerializerTest {
+
+    private static ActorTestKit testKit;
+    private static CaseMessagesSerializer serializer;
+    private static ActorRef<Command> registry;
+    private static ActorRef<Done> ackTo;
+
+    @BeforeAll
+    static void setup() {
+        // no application.conf, the serializer only needs a system to resolve actor refs
+        testKit = ActorTestKit.create("case-messages-serializer-test", ConfigFactory.empty());
+        serializer = new CaseMessagesSerializer((ExtendedActorSystem) Adapter.toClassic(testKit.system()));
+        registry = testKit.<Command>createTestProbe().getRef();
+        ackTo = testKit.<Done>createTestProbe().getRef();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        testKit.shutdownTestKit();
+    }
+
+    private static Object roundTrip(Object message) throws NotSerializableException {
+        return serializer.fromBinary(serializer.toBinary(message), serializer.manifest(message));
+    }
+
+    @Test
+    void resolveCaseWithResponseTopic() throws Exception {
+        ResolveCaseCommand command = new ResolveCaseCommand("case-1", "case-response-1", Deadlines.NONE, 0);
+        assertEquals(CaseMessagesSerializer.RESOLVE_CASE_V1, serializer.manifest(command));
+        assertEquals(command, roundTrip(command));
+    }
+
+    @Test
+    void resolveCaseWithReplyHandleDeadlineAndAcceptedAt() throws Exception {
+        ReplyHandle handle = new ReplyHandle(registry, "request-1", true);
+        ResolveCaseCommand command = new ResolveCaseCommand("case-1", null, handle, 1_760_000_030_000L, 1_760_000_000_000L);
+        assertEquals(command, roundTrip(command));
+    }
+
+    @Test
+    void resolveCaseWithoutAnyOptionalField() throws Exception {
+        ResolveCaseCommand command = new ResolveCaseCommand("case-1");
+        assertEquals(command, roundTrip(command));
+    }
+
+    @Test
+    void deploymentStatusArrived() throws Exception {
+        DeploymentStatusArrivedCommand command = new DeploymentStatusArrivedCommand("case-1", "{\"healthy\":[]}", ackTo, "request-1");
+        assertEquals(CaseMessagesSerializer.DEPLOYMENT_STATUS_ARRIVED_V1, serializer.manifest(command));
+        DeploymentStatusArrivedCommand read = (DeploymentStatusArrivedCommand) roundTrip(command);
+        assertEquals("case-1", read.caseId);
+        assertEquals("{\"healthy\":[]}", read.deploymentStatusJson);
+        assertEquals(ackTo, read.ackTo);
+        assertEquals("request-1", read.requestId);
+    }
+
+    @Test
+    void deploymentStatusArrivedWithoutAckOrRequestId() throws Exception {
+        DeploymentStatusArrivedCommand read = (DeploymentStatusArrivedCommand) roundTrip(
+            new DeploymentStatusArrivedCommand("case-1", null));
+        assertEquals("case-1", read.caseId);
+        assertNull(read.deploymentStatusJson);
+        assertNull(read.ackTo);
+        assertNull(read.requestId);
+    }
+
+    @Test
+    void caseResolvedMessage() throws Exception {
+        CaseResolvedMessage message = new CaseResolvedMessage("case-1", "LogAnalysisResults: [], TotalResolutions: 3 ✓");
+        assertEquals(CaseMessagesSerializer.CASE_RESOLVED_MESSAGE_V1, serializer.manifest(message));
+        CaseResolvedMessage read = (CaseResolvedMessage) roundTrip(message);
+        assertEquals(message.caseId, read.caseId);
+        assertEquals(message.summary, read.summary);
+    }
+
+    @Test
+    void responseReceived() throws Exception {
+        ResponseReceivedCommand command = new ResponseReceivedCommand(new CaseResolvedMessage("case-1", "summary"));
+        assertEquals(CaseMessagesSerializer.RESPONSE_RECEIVED_V1, serializer.manifest(command));
+        ResponseReceivedCommand read = (ResponseReceivedCommand) roundTrip(command);
+        assertEquals("case-1", read.response.caseId);
+        assertEquals("summary", read.response.summary);
+        assertNull(((ResponseReceivedCommand) roundTrip(new ResponseReceivedCommand(null))).response);
+    }
+
+    @Test
+    void caseReply() throws Exception {
+        CaseReplyCommand command = new CaseReplyCommand("request-1", new CaseResolvedMessage("timeout", "Request timed out"));
+        assertEquals(CaseMessagesSerializer.CASE_REPLY_V1, serializer.manifest(command));
+        CaseReplyCommand read = (CaseReplyCommand) roundTrip(command);
+        assertEquals("request-1", read.requestId);
+        assertEquals("timeout", read.response.caseId);
+        assertEquals("Request timed out", read.response.summary);
+    }
+
+    @Test
+    void caseResolvedCountIncremented() throws Exception {
+        CaseResolvedCountIncremented event = new CaseResolvedCountIncremented("case-1");
+        assertEquals(CaseMessagesSerializer.CASE_RESOLVED_COUNT_INCREMENTED_V1, serializer.manifest(event));
+        assertEquals("case-1", ((CaseResolvedCountIncremented) roundTrip(event)).caseId);
+    }
+
+    @Test
+    void state() throws Exception {
+        State state = new State("case-1", true, 300);
+        assertEquals(CaseMessagesSerializer.STATE_V1, serializer.manifest(state));
+        State read = (State) roundTrip(state);
+        assertEquals("case-1", read.caseId);
+        assertTrue(read.isResolved);
+        assertEquals(300, read.getResolveCount());
+    }
+
+    @Test
+    void caseProgress() throws Exception {
+        CaseProgressCommand command = new CaseProgressCommand("request-1", CaseProgressCommand.LOG_ANALYSIS_DONE);
+        assertEquals(CaseMessagesSerializer.CASE_PROGRESS_V1, serializer.manifest(command));
+        CaseProgressCommand read = (CaseProgressCommand) roundTrip(command);
+        assertEquals("request-1", read.requestId);
+        assertEquals(CaseProgressCommand.LOG_ANALYSIS_DONE, read.stage);
+    }
+
+    // journal rows: EC1 and ST1 have never changed
+
+    @Test
+    void readsFixedEventBytes() throws Exception {
+        byte[] ec1 = bytes(0x07, "case-1");
+        CaseResolvedCountIncremented event = (CaseResolvedCountIncremented) serializer.fromBinary(ec1, "EC1");
+        assertEquals("case-1", event.caseId);
+        assertArrayEquals(ec1, serializer.toBinary(new CaseResolvedCountIncremented("case-1")));
+    }
+
+    @Test
+    void readsFixedStateBytes() throws Exception {
+        byte[] st1 = bytes(0x07, "case-1", 0x01, 0x03);
+        State state = (State) serializer.fromBinary(st1, "ST1");
+        assertEquals("case-1", state.caseId);
+        assertTrue(state.isResolved);
+        assertEquals(3, state.getResolveCount());
+        assertArrayEquals(st1, serializer.toBinary(new State("case-1", true, 3)));
+    }
+
+    // RC1 before STREAMS_PROGRESS, HAS_DEADLINE and HAS_ACCEPTED_AT: flags, caseId, topic and/or handle, nothing after
+
+    @Test
+    void readsResolveCaseWithTopicInTheFirstLayout() throws Exception {
+        byte[] rc1 = bytes(0x01, 0x07, "case-1", 0x10, "case-response-1");
+        ResolveCaseCommand command = (ResolveCaseCommand) serializer.fromBinary(rc1, "RC1");
+        assertEquals(new ResolveCaseCommand("case-1", "case-response-1", null, Deadlines.NONE, 0), command);
+        // nothing set that was appended later, so it is still written byte for byte the same
+        assertArrayEquals(rc1, serializer.toBinary(command));
+    }
+
+    @Test
+    void readsResolveCaseWithReplyHandleInTheFirstLayout() throws Exception {
+        String registryPath = ActorRefResolver.get(testKit.system()).toSerializationFormat(registry);
+        byte[] rc1 = concat(
+            bytes(0x02, 0x07, "case-1"),
+            string(registryPath),
+            bytes(0x0a, "request-1"));
+        ResolveCaseCommand command = (ResolveCaseCommand) serializer.fromBinary(rc1, "RC1");
+        assertEquals(new ResolveCaseCommand("case-1", null, new ReplyHandle(registry, "request-1", false), Deadlines.NONE, 0), command);
+        assertFalse(command.getReplyHandle().streamsProgress);
+    }
+
+    @Test
+    void appendedResolveCaseFieldsComeAfterTheFirstLayout() throws Exception {
+        byte[] rc1 = bytes(0x01, 0x07, "case-1", 0x10, "case-response-1");
+        byte[] withDeadline = serializer.toBinary(new ResolveCaseCommand("case-1", "case-response-1", null, 1_760_000_030_000L, 0));
+        // only the flag byte differs, the fields of the first layout are unchanged and the deadline comes after them
+        assertEquals(0x01 | 0x08, withDeadline[0]);
+        assertArrayEquals(Arrays.copyOfRange(rc1, 1, rc1.length), Arrays.copyOfRange(withDeadline, 1, rc1.length));
+        assertTrue(withDeadline.length > rc1.length);
+    }
+
+    // DA1 before the trailing requestId: caseId, json, ackTo
+
+    @Test
+    void readsDeploymentStatusArrivedWithoutRequestId() throws Exception {
+        byte[] da1 = bytes(0x07, "case-1", 0x03, "{}", 0x00);
+        DeploymentStatusArrivedCommand command = (DeploymentStatusArrivedCommand) serializer.fromBinary(da1, "DA1");
+        assertEquals("case-1", command.caseId);
+        assertEquals("{}", command.deploymentStatusJson);
+        assertNull(command.ackTo);
+        assertNull(command.requestId);
+    }
+
+    @Test
+    void appendedRequestIdComesAfterTheFirstDeploymentStatusLayout() {
+        byte[] da1 = bytes(0x07, "case-1", 0x03, "{}", 0x00);
+        byte[] withRequestId = serializer.toBinary(new DeploymentStatusArrivedCommand("case-1", "{}", null, "request-1"));
+        // an older reader stops after ackTo and never sees the requestId
+        assertArrayEquals(da1, Arrays.copyOf(withRequestId, da1.length));
+        assertArrayEquals(bytes(0x0a, "request-1"), Arrays.copyOfRange(withRequestId, da1.length, withRequestId.length));
+    }
+
+    @Test
+    void unknownManifestIsNotSerializable() {
+        assertThrows(NotSerializableException.class, () -> serializer.fromBinary(new byte[] {0x01}, "RC2"));
+    }
+
+    @Test
+    void truncatedInputIsNotSerializable() {
+        byte[] rc1 = bytes(0x01, 0x07, "case-1", 0x10, "case-response-1");
+        assertThrows(NotSerializableException.class, () -> serializer.fromBinary(Arrays.copyOf(rc1, rc1.length - 3), "RC1"));
+    }
+
+    // ints are single bytes (flags, varints below 128), strings their utf-8 bytes
+    private static byte[] bytes(Object... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Object part : parts) {
+            if (part instanceof Integer) {
+                out.write((Integer) part);
+            } else {
+                out.writeBytes(((String) part).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    // varint (utf-8 length + 1) and the bytes, for strings whose length is not known up front
+    private static byte[] string(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long length = utf8.length + 1;
+        while (length >= 0x80) {
+            out.write((int) (length & 0x7f) | 0x80);
+            length >>>= 7;
+        }
+        out.write((int) length);
+        out.writeBytes(utf8);
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}